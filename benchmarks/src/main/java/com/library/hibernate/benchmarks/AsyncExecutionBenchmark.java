@@ -0,0 +1,215 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.hibernate.AsyncCustomHibernate;
+import com.library.hibernate.AsyncCustomHibernate.ExecutionMode;
+import com.library.hibernate.CustomHibernate;
+import com.library.hibernate.utils.VirtualThreads;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Platform-thread executor vs virtual threads gated by a pool sized
+ * semaphore, with 1k and 10k concurrent blocking callers. Each operation
+ * starts one caller per count, every caller submits a countRows and blocks on
+ * get() until it completes, and the operation waits for all callers.
+ *
+ * The callers run on threads of the mode being measured: a fixed pool of
+ * `callers` platform threads for PLATFORM, one virtual thread per call for
+ * VIRTUAL, so 1k/10k callers really are parked at the same time. Both modes
+ * run at most pool size statements at once, so DB-bound throughput is capped
+ * by the pool either way; what is compared is the caller side. Besides the
+ * time per operation, CallerCounters reports the mean submit-to-completion
+ * latency of a call, the peak number of platform threads (the callers plus
+ * the executor threads) and the calls rejected. Needs JDK 21 and an
+ * sghibernate jar built with -Pvirtual-threads for the VIRTUAL runs:
+ *
+ * java -jar target/benchmarks.jar AsyncExecutionBenchmark
+ *
+ * @author smallgod
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AsyncExecutionBenchmark {
+
+    @Param({"1000", "10000"})
+    private int callers;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ExecutionMode mode;
+
+    private CustomHibernate customHibernate;
+    private AsyncCustomHibernate asyncHibernate;
+    private ExecutorService callerThreads;
+    private Map<String, Object> uploadedFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        if (mode == ExecutionMode.VIRTUAL && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("VIRTUAL runs need JDK 21 and an sghibernate jar built with -Pvirtual-threads");
+        }
+
+        //let every caller wait instead of being rejected, so both modes do the same work
+        String configXml = BenchmarkDatabase.readResource(BenchmarkDatabase.CONFIG_RESOURCE)
+                .replace("</session-factory>", "<property name=\"sghibernate.async.queue_size\">" + (callers * 2) + "</property>\n    </session-factory>");
+
+        customHibernate = BenchmarkDatabase.open(configXml);
+        BenchmarkDatabase.seed(customHibernate, 1000);
+
+        asyncHibernate = new AsyncCustomHibernate(customHibernate, mode);
+        callerThreads = newCallerThreads();
+
+        Set<Object> uploaded = new HashSet<>();
+        uploaded.add(Boolean.FALSE);
+        uploadedFilter = Collections.<String, Object>singletonMap("isUploadedToDSM", uploaded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        callerThreads.shutdownNow();
+        asyncHibernate.shutdown();
+        customHibernate.releaseDBResources();
+    }
+
+    /**
+     * Threads the blocking callers run on, of the same kind as the mode under
+     * test
+     *
+     * @return
+     */
+    private ExecutorService newCallerThreads() {
+
+        if (mode == ExecutionMode.VIRTUAL) {
+            return VirtualThreads.newThreadPerTaskExecutor("benchmark-caller-");
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(callers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "benchmark-caller-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Caller-side cost of the calls of one iteration, reported by JMH next to
+     * the time per operation
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CallerCounters {
+
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        public long rejectedCalls;
+        public long peakPlatformThreads;
+        public double callLatencyMicros;
+
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+
+            rejectedCalls = 0;
+            peakPlatformThreads = 0;
+            callLatencyMicros = 0;
+            latencyNanos.set(0);
+            calls.set(0);
+            THREADS.resetPeakThreadCount();
+        }
+
+        void record(long submittedNanos) {
+            latencyNanos.addAndGet(System.nanoTime() - submittedNanos);
+            calls.incrementAndGet();
+        }
+
+        void update(long rejected) {
+
+            rejectedCalls += rejected;
+            peakPlatformThreads = THREADS.getPeakThreadCount();
+            long count = calls.get();
+            callLatencyMicros = count == 0 ? 0 : latencyNanos.get() / 1000.0 / count;
+        }
+    }
+
+    @Benchmark
+    public long concurrentCallers(final CallerCounters counters) throws InterruptedException, ExecutionException {
+
+        long rejectedBefore = asyncHibernate.getRejectedCount();
+
+        List<Future<Number>> results = new ArrayList<>(callers);
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(callerThreads.submit(new Callable<Number>() {
+                    @Override
+                    public Number call() throws Exception {
+
+                        long submitted = System.nanoTime();
+                        try {
+                            Number count = asyncHibernate.submit(new Callable<Number>() {
+                                @Override
+                                public Number call() throws Exception {
+                                    return customHibernate.countRows(BenchmarkRecord.class, uploadedFilter);
+                                }
+                            }).get();
+                            counters.record(submitted);
+                            return count;
+
+                        } catch (ExecutionException ex) {
+                            if (ex.getCause() instanceof RejectedExecutionException) {
+                                return null; //counted by getRejectedCount()
+                            }
+                            throw ex;
+                        }
+                    }
+                }));
+            }
+
+            for (Future<Number> result : results) {
+                result.get();
+            }
+        } finally {
+            counters.update(asyncHibernate.getRejectedCount() - rejectedBefore);
+        }
+        return asyncHibernate.getCompletedCount();
+    }
+}
@@ -0,0 +1,116 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.configs.HibernateConfig;
+import com.library.customexception.MyCustomException;
+import com.library.hibernate.CustomHibernate;
+import com.library.sgsharedinterface.DBInterface;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Boots a CustomHibernate instance against the embedded H2 database described
+ * in benchmark-hibernate.cfg.xml and seeds it with benchmark records
+ *
+ * @author smallgod
+ */
+public final class BenchmarkDatabase {
+
+    public static final String CONFIG_RESOURCE = "/benchmark-hibernate.cfg.xml";
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Open the embedded H2 database
+     *
+     * @return an initialised CustomHibernate
+     * @throws IOException
+     */
+    public static CustomHibernate open() throws IOException {
+        return open(readResource(CONFIG_RESOURCE));
+    }
+
+    /**
+     * CustomHibernate only accepts a file path, so the configuration is
+     * written out to a temporary file first
+     *
+     * @param configXml hibernate.cfg.xml contents
+     * @return an initialised CustomHibernate
+     * @throws IOException
+     */
+    public static CustomHibernate open(String configXml) throws IOException {
+
+        File configFile = File.createTempFile("benchmark-hibernate", ".cfg.xml");
+        configFile.deleteOnExit();
+        Files.write(configFile.toPath(), configXml.getBytes(StandardCharsets.UTF_8));
+
+        HibernateConfig hibernateConfig = new HibernateConfig();
+        hibernateConfig.setHibernateFilePath(configFile.getAbsolutePath());
+
+        CustomHibernate customHibernate = new CustomHibernate(hibernateConfig);
+        if (!customHibernate.initialiseDBResources()) {
+            throw new IllegalStateException("Failed to initialise the benchmark SessionFactory from: " + configFile);
+        }
+        return customHibernate;
+    }
+
+    /**
+     * Read a bundled resource as text
+     *
+     * @param resource
+     * @return
+     * @throws IOException
+     */
+    public static String readResource(String resource) throws IOException {
+
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream(resource)) {
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Create detached records ready to be inserted
+     *
+     * @param count
+     * @param offset used to keep screen codes unique across invocations
+     * @return
+     */
+    public static Set<BenchmarkRecord> newRecords(int count, long offset) {
+
+        Set<BenchmarkRecord> records = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            records.add(new BenchmarkRecord("SCR" + (offset + i), offset + i));
+        }
+        return records;
+    }
+
+    /**
+     * Seed the table with a fixed number of rows
+     *
+     * @param customHibernate
+     * @param count
+     * @return the seeded (now persistent and detached) records
+     * @throws MyCustomException
+     */
+    public static Set<BenchmarkRecord> seed(CustomHibernate customHibernate, int count) throws MyCustomException {
+
+        Set<BenchmarkRecord> records = newRecords(count, 0L);
+        Set<DBInterface> toInsert = new HashSet<>();
+        toInsert.addAll(records);
+        customHibernate.insertBulk(toInsert);
+        return records;
+    }
+}
@@ -0,0 +1,85 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.datamodel.model.v1_0.BaseEntity;
+import com.library.sgsharedinterface.DBInterface;
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * Flat entity used by the benchmarks so that every CRUD path can be exercised
+ * against H2 without pulling in the whole ad data model
+ *
+ * @author smallgod
+ */
+@Entity
+@Table(name = "bench_record")
+@NamedQueries({
+    @NamedQuery(name = BenchmarkRecord.FETCH_BY_IDS, query = "SELECT rec FROM BenchmarkRecord rec WHERE rec.id IN (:id)")
+})
+public class BenchmarkRecord extends BaseEntity implements DBInterface, Serializable {
+
+    private static final long serialVersionUID = -4116729393014712518L;
+
+    public static final String FETCH_BY_IDS = "fetchBenchmarkRecordsByIds";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "screen_code", length = 20)
+    private String screenCode;
+
+    @Column(name = "amount")
+    private long amount;
+
+    @Column(name = "is_uploaded_to_dsm")
+    private boolean isUploadedToDSM;
+
+    public BenchmarkRecord() {
+    }
+
+    public BenchmarkRecord(String screenCode, long amount) {
+        this.screenCode = screenCode;
+        this.amount = amount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getScreenCode() {
+        return screenCode;
+    }
+
+    public void setScreenCode(String screenCode) {
+        this.screenCode = screenCode;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(long amount) {
+        this.amount = amount;
+    }
+
+    public boolean isIsUploadedToDSM() {
+        return isUploadedToDSM;
+    }
+
+    public void setIsUploadedToDSM(boolean isUploadedToDSM) {
+        this.isUploadedToDSM = isUploadedToDSM;
+    }
+}
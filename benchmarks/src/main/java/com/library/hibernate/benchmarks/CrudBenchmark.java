@@ -0,0 +1,124 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.datamodel.model.v1_0.BaseEntity;
+import com.library.hibernate.CustomHibernate;
+import com.library.sgsharedinterface.DBInterface;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One benchmark per CustomHibernate CRUD path. Throughput and SampleTime
+ * (latency percentiles) are reported for every method, allocation rate comes
+ * from the GC profiler that BenchmarkRunner adds
+ *
+ * @author smallgod
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class CrudBenchmark {
+
+    @Param({"10000"})
+    private int seededRows;
+
+    @Param({"100"})
+    private int batchSize;
+
+    private CustomHibernate customHibernate;
+    private Set<BaseEntity> recordsToUpdate;
+    private Map<String, Object> idFilter;
+    private Map<String, Object> uploadedFilter;
+    private final AtomicLong sequence = new AtomicLong(1000000L);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        customHibernate = BenchmarkDatabase.open();
+        Set<BenchmarkRecord> seeded = BenchmarkDatabase.seed(customHibernate, seededRows);
+
+        recordsToUpdate = new HashSet<>();
+        Set<Object> ids = new HashSet<>();
+        for (BenchmarkRecord record : seeded) {
+            if (recordsToUpdate.size() < batchSize) {
+                recordsToUpdate.add(record);
+                ids.add(record.getId());
+            }
+        }
+
+        idFilter = new HashMap<>();
+        idFilter.put("id", ids);
+
+        Set<Object> uploaded = new HashSet<>();
+        uploaded.add(Boolean.FALSE);
+        uploadedFilter = new HashMap<>();
+        uploadedFilter.put("isUploadedToDSM", uploaded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        customHibernate.releaseDBResources();
+    }
+
+    @Benchmark
+    public Object saveEntity() throws Exception {
+        return customHibernate.saveEntity(new BenchmarkRecord("SCR" + sequence.incrementAndGet(), 1L));
+    }
+
+    @Benchmark
+    public boolean saveBulk() throws Exception {
+        return customHibernate.saveBulk(BenchmarkDatabase.newRecords(batchSize, sequence.getAndAdd(batchSize)));
+    }
+
+    @Benchmark
+    public boolean insertBulk() throws Exception {
+
+        Set<DBInterface> records = new HashSet<>();
+        records.addAll(BenchmarkDatabase.newRecords(batchSize, sequence.getAndAdd(batchSize)));
+        return customHibernate.insertBulk(records);
+    }
+
+    @Benchmark
+    public Set<Object> fetchBulkWithFilter() throws Exception {
+        return customHibernate.fetchBulk(BenchmarkRecord.class, idFilter);
+    }
+
+    @Benchmark
+    public Set<Object> fetchEntitiesNamedQuery() throws Exception {
+        return customHibernate.fetchEntities(BenchmarkRecord.FETCH_BY_IDS, idFilter);
+    }
+
+    @Benchmark
+    public Number countRows() throws Exception {
+        return customHibernate.countRows(BenchmarkRecord.class, uploadedFilter);
+    }
+
+    @Benchmark
+    public boolean updateBulk() throws Exception {
+
+        for (BaseEntity entity : recordsToUpdate) {
+            BenchmarkRecord record = (BenchmarkRecord) entity;
+            record.setAmount(record.getAmount() + 1);
+        }
+        return customHibernate.updateBulk(recordsToUpdate);
+    }
+}
@@ -0,0 +1,105 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.hibernate.utils.TimeOrderedIdGenerator;
+import com.library.utilities.dsmbridge.IDCreator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention benchmark: the lock-free TimeOrderedIdGenerator against the
+ * previous scheme (static synchronized method, IDCreator.GenerateLong() and a
+ * collision check against the known IDs). The table scan of the old scheme
+ * is left out so only the locking cost is compared. Compare the ops/us of
+ * the 1, 4 and MAX thread variants. All threads of the time-ordered
+ * generator CAS the same AtomicLong, so it does not scale with cores: what
+ * is measured is the cost of contended CAS retries on one word (and its
+ * cache line moving between cores) against threads parking on a monitor.
+ * It also never issues more than 4096 IDs per millisecond (about 4 ops/us),
+ * callers spin once those are used up.
+ *
+ * @author smallgod
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IdGeneratorContentionBenchmark {
+
+    private static final Set<Long> KNOWN_IDS = new HashSet<>();
+
+    private TimeOrderedIdGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        generator = new TimeOrderedIdGenerator(1L);
+
+        synchronized (IdGeneratorContentionBenchmark.class) {
+            KNOWN_IDS.clear();
+            for (long i = 0; i < 100000L; i++) {
+                KNOWN_IDS.add(i);
+            }
+        }
+    }
+
+    private static synchronized long synchronizedGenerate() {
+
+        long id;
+        do {
+            id = IDCreator.GenerateLong();
+        } while (KNOWN_IDS.contains(id));
+
+        return id;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long timeOrdered_1thread() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long timeOrdered_4threads() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long timeOrdered_maxThreads() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long synchronized_1thread() {
+        return synchronizedGenerate();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long synchronized_4threads() {
+        return synchronizedGenerate();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long synchronized_maxThreads() {
+        return synchronizedGenerate();
+    }
+}
@@ -0,0 +1,115 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.hibernate.CustomHibernate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The read methods with sghibernate.read_only.enabled off (stateful session,
+ * snapshots, flush and clear every 10 scrolled rows) and on. Compare
+ * gc.alloc.rate.norm for the allocation per call and the average time for
+ * the CPU spent in Hibernate; H2 in memory keeps the database share small:
+ *
+ * java -jar target/benchmarks.jar ReadOnlyFetchBenchmark
+ *
+ * @author smallgod
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ReadOnlyFetchBenchmark {
+
+    @Param({"false", "true"})
+    private boolean readOnly;
+
+    @Param({"10000"})
+    private int seededRows;
+
+    @Param({"100"})
+    private int filteredRows;
+
+    private CustomHibernate customHibernate;
+    private Map<String, Object> idFilter;
+    private Map<String, Object> uploadedFilter;
+    private Object singleId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        String configXml = BenchmarkDatabase.readResource(BenchmarkDatabase.CONFIG_RESOURCE)
+                .replace("</session-factory>", "<property name=\"sghibernate.read_only.enabled\">" + readOnly + "</property>\n    </session-factory>");
+
+        customHibernate = BenchmarkDatabase.open(configXml);
+        Set<BenchmarkRecord> seeded = BenchmarkDatabase.seed(customHibernate, seededRows);
+
+        Set<Object> ids = new HashSet<>();
+        for (BenchmarkRecord record : seeded) {
+            if (ids.size() < filteredRows) {
+                ids.add(record.getId());
+            }
+        }
+        singleId = ids.iterator().next();
+
+        idFilter = new HashMap<>();
+        idFilter.put("id", ids);
+
+        Set<Object> uploaded = new HashSet<>();
+        uploaded.add(Boolean.FALSE);
+        uploadedFilter = new HashMap<>();
+        uploadedFilter.put("isUploadedToDSM", uploaded);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        customHibernate.releaseDBResources();
+    }
+
+    @Benchmark
+    public Set<Object> fetchBulkAll() throws Exception {
+        return customHibernate.fetchBulk(BenchmarkRecord.class);
+    }
+
+    @Benchmark
+    public Set<Object> fetchBulkWithFilter() throws Exception {
+        return customHibernate.fetchBulk(BenchmarkRecord.class, idFilter);
+    }
+
+    @Benchmark
+    public Set<Object> fetchEntitiesNamedQuery() throws Exception {
+        return customHibernate.fetchEntities(BenchmarkRecord.FETCH_BY_IDS, idFilter);
+    }
+
+    @Benchmark
+    public Object fetchEntity() throws Exception {
+        return customHibernate.fetchEntity(BenchmarkRecord.class, "id", singleId);
+    }
+
+    @Benchmark
+    public Number countRows() throws Exception {
+        return customHibernate.countRows(BenchmarkRecord.class, uploadedFilter);
+    }
+
+    @Benchmark
+    public boolean isRecordExists() throws Exception {
+        return customHibernate.isRecordExists(BenchmarkRecord.class, idFilter);
+    }
+}
@@ -0,0 +1,101 @@
+package com.library.hibernate.benchmarks;
+
+import com.library.customexception.MyCustomException;
+import com.library.hibernate.CustomHibernate;
+import com.library.hibernate.utils.RowHandler;
+import com.library.sgsharedinterface.DBInterface;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Measures the peak heap of a full streamBulk scroll over a large MySQL
+ * table. Peak heap is not something JMH reports, so this is a plain main
+ * program. Run it once per mode in a fresh JVM and compare:
+ *
+ * <pre>
+ * java -Xmx4g -cp benchmarks.jar com.library.hibernate.benchmarks.ScrollHeapBenchmark \
+ *      jdbc:mysql://localhost:3306/bench user password buffered|streaming|cursor [rows]
+ * </pre>
+ *
+ * The table is topped up to [rows] (default 5,000,000) before measuring.
+ *
+ * @author smallgod
+ */
+public final class ScrollHeapBenchmark {
+
+    private static final String CONFIG_TEMPLATE = "/benchmark-mysql-hibernate.cfg.xml";
+    private static final int SEED_CHUNK = 10000;
+
+    private ScrollHeapBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 4) {
+            System.err.println("usage: ScrollHeapBenchmark <jdbcUrl> <user> <password> <buffered|streaming|cursor> [rows]");
+            System.exit(1);
+        }
+
+        String mode = args[3];
+        long rows = args.length > 4 ? Long.parseLong(args[4]) : 5000000L;
+
+        String configXml = BenchmarkDatabase.readResource(CONFIG_TEMPLATE)
+                .replace("${url}", args[0])
+                .replace("${user}", args[1])
+                .replace("${password}", args[2])
+                .replace("${streaming}", String.valueOf(mode.equals("streaming")))
+                .replace("${cursor_fetch}", String.valueOf(mode.equals("cursor")));
+
+        CustomHibernate customHibernate = BenchmarkDatabase.open(configXml);
+
+        try {
+            seed(customHibernate, rows);
+
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+
+            final long[] checksum = new long[1];
+            long start = System.nanoTime();
+
+            int scrolled = customHibernate.streamBulk(BenchmarkRecord.class, new RowHandler<BenchmarkRecord>() {
+                @Override
+                public boolean handle(BenchmarkRecord row) {
+                    checksum[0] += row.getAmount();
+                    return true;
+                }
+            });
+
+            long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+
+            long peakHeap = 0L;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakHeap += pool.getPeakUsage().getUsed();
+                }
+            }
+
+            System.out.println("mode=" + mode + " rows=" + scrolled + " elapsedMs=" + elapsedMillis
+                    + " peakHeapMB=" + (peakHeap / (1024 * 1024)) + " checksum=" + checksum[0]);
+
+        } finally {
+            customHibernate.releaseDBResources();
+        }
+    }
+
+    private static void seed(CustomHibernate customHibernate, long rows) throws MyCustomException {
+
+        long existing = customHibernate.countRows(BenchmarkRecord.class, null).longValue();
+
+        for (long offset = existing; offset < rows; offset += SEED_CHUNK) {
+
+            Set<DBInterface> chunk = new HashSet<>();
+            chunk.addAll(BenchmarkDatabase.newRecords((int) Math.min(SEED_CHUNK, rows - offset), offset));
+            customHibernate.insertBulk(chunk);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.library.hibernate;
+
+import com.library.hibernate.utils.HibernateProperties;
+import com.library.hibernate.utils.VirtualThreads;
+import com.library.sglogger.util.LoggerUtil;
+import com.library.sgsharedinterface.DBInterface;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking facade over CustomHibernate. Each call runs on a dedicated
+ * executor with as many threads as the connection pool has connections (more
+ * would only wait for a connection) and returns at once with a
+ * CompletableFuture, so a request thread can start several DB calls and
+ * compose their results.
+ *
+ * Calls wait in a bounded queue when all threads are busy. Once the queue is
+ * full new calls fail fast with a RejectedExecutionException (in the returned
+ * future) instead of piling up; getRejectedCount() tells how often that
+ * happens. A MyCustomException thrown by CustomHibernate completes the future
+ * exceptionally with it.
+ *
+ * In ExecutionMode.VIRTUAL (Java 21, jar built with the virtual-threads
+ * profile) every call gets its own virtual thread and a semaphore with one
+ * permit per pooled connection gates the DB work. Thousands of callers can
+ * then wait for a connection without holding a platform thread each. The
+ * queue bound applies to the calls waiting for a permit. Connector/J 5.1 and
+ * c3p0 block inside synchronized code, which pins the carrier thread, so keep
+ * the pool size close to the number of cores in this mode.
+ *
+ * @author smallgod
+ */
+public final class AsyncCustomHibernate {
+
+    private static final LoggerUtil LOGGER = new LoggerUtil(AsyncCustomHibernate.class);
+
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * Virtual threads waiting for a permit cost little, allow many more
+     */
+    public static final int DEFAULT_VIRTUAL_QUEUE_SIZE = 100000;
+
+    public enum ExecutionMode {
+
+        /**
+         * Pool sized ThreadPoolExecutor with a bounded queue
+         */
+        PLATFORM,
+        /**
+         * A virtual thread per call, gated by a pool sized semaphore
+         */
+        VIRTUAL
+    }
+
+    private final CustomHibernate customHibernate;
+    private final ExecutionMode mode;
+    private final ExecutorService executor;
+    private final int maxQueued;
+
+    /**
+     * Pooled connections free to VIRTUAL mode calls, null in PLATFORM mode
+     */
+    private final Semaphore connectionPermits;
+    private final int permitCount;
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Mode taken from sghibernate.async.mode (default platform)
+     *
+     * @param customHibernate
+     */
+    public AsyncCustomHibernate(CustomHibernate customHibernate) {
+        this(customHibernate, getConfiguredMode(customHibernate.getHibernateProperties()));
+    }
+
+    public AsyncCustomHibernate(CustomHibernate customHibernate, ExecutionMode mode) {
+
+        this.customHibernate = customHibernate;
+        this.mode = mode;
+
+        Properties properties = customHibernate.getHibernateProperties();
+        int poolSize = HibernateProperties.getPoolSize(properties);
+        int threads = Math.max(1, Math.min(poolSize, HibernateProperties.getInt(properties, HibernateProperties.ASYNC_THREADS, poolSize)));
+
+        if (mode == ExecutionMode.VIRTUAL) {
+
+            if (!VirtualThreads.isSupported()) {
+                throw new UnsupportedOperationException("ExecutionMode.VIRTUAL needs Java 21 and a jar built with the virtual-threads profile");
+            }
+
+            this.maxQueued = HibernateProperties.getInt(properties, HibernateProperties.ASYNC_QUEUE_SIZE, DEFAULT_VIRTUAL_QUEUE_SIZE);
+            this.executor = VirtualThreads.newThreadPerTaskExecutor("sghibernate-async-vt-");
+            this.connectionPermits = new Semaphore(threads, Boolean.TRUE);
+            this.permitCount = threads;
+
+            LOGGER.debug("Async DB calls on virtual threads, " + threads + " permits, up to " + maxQueued + " waiting");
+            return;
+        }
+
+        this.maxQueued = HibernateProperties.getInt(properties, HibernateProperties.ASYNC_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        this.connectionPermits = null;
+        this.permitCount = threads;
+
+        ThreadPoolExecutor platformExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maxQueued), new ThreadFactory() {
+
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sghibernate-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(Boolean.TRUE);
+                return thread;
+            }
+        });
+        platformExecutor.allowCoreThreadTimeOut(Boolean.TRUE);
+        this.executor = platformExecutor;
+
+        LOGGER.debug("Async DB executor: " + threads + " threads, queue of " + maxQueued);
+    }
+
+    private static ExecutionMode getConfiguredMode(Properties properties) {
+
+        String mode = HibernateProperties.getString(properties, HibernateProperties.ASYNC_MODE);
+        return mode == null ? ExecutionMode.PLATFORM : ExecutionMode.valueOf(mode.toUpperCase());
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return mode;
+    }
+
+    public CompletableFuture<Object> saveEntity(final DBInterface entity) {
+
+        return submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return customHibernate.saveEntity(entity);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> saveOrUpdateEntity(final DBInterface entity) {
+
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                customHibernate.saveOrUpdateEntity(entity);
+                return null;
+            }
+        });
+    }
+
+    public CompletableFuture<Boolean> updateEntity(final DBInterface entity) {
+
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return customHibernate.updateEntity(entity);
+            }
+        });
+    }
+
+    public CompletableFuture<Boolean> insertBulk(final Set<DBInterface> entityList) {
+
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return customHibernate.insertBulk(entityList);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<T> fetchEntity(final Class entityType, final Map<String, Set<Object>> propertyNameValues) {
+
+        return submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return customHibernate.<T>fetchEntity(entityType, propertyNameValues);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<T> fetchEntity(final Class entityType, final String propertyName, final Object propertyValue) {
+
+        return submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return customHibernate.<T>fetchEntity(entityType, propertyName, propertyValue);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<Set<T>> fetchEntities(final String namedQuery, final Map<String, Object> propertyNameValues) {
+
+        return submit(new Callable<Set<T>>() {
+            @Override
+            public Set<T> call() throws Exception {
+                return customHibernate.<T>fetchEntities(namedQuery, propertyNameValues);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<Set<T>> fetchEntities(final String namedQuery, final String parameterName, final Object parameterValue) {
+
+        return submit(new Callable<Set<T>>() {
+            @Override
+            public Set<T> call() throws Exception {
+                return customHibernate.<T>fetchEntities(namedQuery, parameterName, parameterValue);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<Set<T>> fetchBulk(final Class entityType) {
+
+        return submit(new Callable<Set<T>>() {
+            @Override
+            public Set<T> call() throws Exception {
+                return customHibernate.<T>fetchBulk(entityType);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<Set<T>> fetchBulk(final Class entityType, final Map<String, Object> propertyNameValues) {
+
+        return submit(new Callable<Set<T>>() {
+            @Override
+            public Set<T> call() throws Exception {
+                return customHibernate.<T>fetchBulk(entityType, propertyNameValues);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<Set<T>> fetchOnlyColumn(final Class entityType, final String columToFetch, final Map<String, Object> propertyNameValues) {
+
+        return submit(new Callable<Set<T>>() {
+            @Override
+            public Set<T> call() throws Exception {
+                return customHibernate.<T>fetchOnlyColumn(entityType, columToFetch, propertyNameValues);
+            }
+        });
+    }
+
+    public CompletableFuture<Number> countRows(final Class entityType, final Map<String, Object> propertyNameValues) {
+
+        return submit(new Callable<Number>() {
+            @Override
+            public Number call() throws Exception {
+                return customHibernate.countRows(entityType, propertyNameValues);
+            }
+        });
+    }
+
+    public CompletableFuture<Boolean> isRecordExists(final Class entityType, final Map<String, Object> propertyNameValues) {
+
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return customHibernate.isRecordExists(entityType, propertyNameValues);
+            }
+        });
+    }
+
+    /**
+     * Run any other CustomHibernate call on the DB executor
+     *
+     * @param <T>
+     * @param call
+     * @return
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> call) {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        if (connectionPermits != null && waitingCount.incrementAndGet() > maxQueued) {
+            waitingCount.decrementAndGet();
+            return reject(future, new RejectedExecutionException("More than " + maxQueued + " async DB calls waiting for a connection"));
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (connectionPermits == null) {
+                            future.complete(call.call());
+                        } else {
+                            future.complete(callWithPermit(call));
+                        }
+                        completedCount.incrementAndGet();
+                    } catch (Throwable ex) {
+                        failedCount.incrementAndGet();
+                        future.completeExceptionally(ex);
+                    }
+                }
+            });
+            submittedCount.incrementAndGet();
+
+        } catch (RejectedExecutionException ex) {
+
+            if (connectionPermits != null) {
+                waitingCount.decrementAndGet();
+            }
+            return reject(future, ex);
+        }
+
+        return future;
+    }
+
+    private <T> T callWithPermit(Callable<T> call) throws Exception {
+
+        try {
+            connectionPermits.acquire();
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+
+        try {
+            return call.call();
+        } finally {
+            connectionPermits.release();
+        }
+    }
+
+    private <T> CompletableFuture<T> reject(CompletableFuture<T> future, RejectedExecutionException ex) {
+
+        rejectedCount.incrementAndGet();
+        LOGGER.warn("Async DB call rejected, " + getQueuedCount() + " calls already waiting");
+        future.completeExceptionally(ex);
+        return future;
+    }
+
+    /**
+     * Stop taking calls, those already queued still run
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * @return calls that completed with an exception
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return calls refused because the queue was full (or after shutdown)
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return calls waiting for a thread (PLATFORM) or a connection permit
+     * (VIRTUAL)
+     */
+    public int getQueuedCount() {
+
+        if (connectionPermits != null) {
+            return waitingCount.get();
+        }
+        return ((ThreadPoolExecutor) executor).getQueue().size();
+    }
+
+    /**
+     * @return calls running right now
+     */
+    public int getActiveCount() {
+
+        if (connectionPermits != null) {
+            return permitCount - connectionPermits.availablePermits();
+        }
+        return ((ThreadPoolExecutor) executor).getActiveCount();
+    }
+}
@@ -6,27 +6,68 @@ import com.library.datamodel.Constants.AdPaymentStatus;
 import com.library.datamodel.Constants.AdSlotsReserve;
 import com.library.datamodel.Constants.CampaignStatus;
 import com.library.datamodel.Constants.ErrorCode;
-import com.library.datamodel.Constants.FetchStatus;
 import com.library.datamodel.Constants.NamedConstants;
 import com.library.datamodel.Constants.TaskType;
 import com.library.datamodel.dsm_bridge.TbTerminal;
+import com.library.datamodel.model.v1_0.AdProgram;
 import com.library.datamodel.model.v1_0.BaseEntity;
 import com.library.hibernate.utils.AuditTrailInterceptor;
+import com.library.hibernate.utils.BulkInsertReport;
+import com.library.hibernate.utils.CacheRegionStatistics;
 import com.library.hibernate.utils.CallBack;
+import com.library.hibernate.utils.CampaignUpdateBatch;
+import com.library.hibernate.utils.ChunkedWriteReport;
+import com.library.hibernate.utils.ConnectionPoolStats;
+import com.library.hibernate.utils.FilterConverterRegistry;
+import com.library.hibernate.utils.HikariConnectionProvider;
+import com.library.hibernate.utils.HibernateProperties;
+import com.library.hibernate.utils.IdBlock;
+import com.library.hibernate.utils.InsertBatchStatistics;
+import com.library.hibernate.utils.JdbcStatementCounter;
+import com.library.hibernate.utils.KeysetPage;
+import com.library.hibernate.utils.NamedQueryResultCache;
+import com.library.hibernate.utils.OperationMetrics;
+import com.library.hibernate.utils.RowHandler;
+import com.library.hibernate.utils.ScreenIdSequencer;
+import com.library.hibernate.utils.SecondLevelCache;
+import com.library.hibernate.utils.SegmentIdAllocator;
+import com.library.hibernate.utils.SlowQueryRecorder;
+import com.library.hibernate.utils.SqlCaptureInspector;
+import com.library.hibernate.utils.StatisticsExporter;
+import com.library.hibernate.utils.StatisticsSnapshot;
+import com.library.hibernate.utils.UnitOfWork;
+import com.library.hibernate.utils.WriteRange;
 import com.library.sgsharedinterface.DBInterface;
 import com.library.utilities.DbUtils;
 import com.library.utilities.GeneralUtils;
 import com.library.sglogger.util.LoggerUtil;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.naming.NamingException;
 import javax.persistence.TypedQuery;
 import org.hibernate.CacheMode;
@@ -41,13 +82,21 @@ import org.hibernate.SessionFactory;
 import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
-import org.joda.time.LocalDate;
+import org.hibernate.type.Type;
 import org.joda.time.LocalDateTime;
 
 /**
@@ -57,22 +106,97 @@ import org.joda.time.LocalDateTime;
 public final class CustomHibernate {
 
     private static final LoggerUtil LOGGER = new LoggerUtil(CustomHibernate.class);
-    private static String hibernateFilePath;
+    private static final String ID_SEGMENT_TABLE = "sg_id_segment";
+    /**
+     * Values bound in one IN (...) list, well under MySQL's packet and
+     * placeholder limits
+     */
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
+    /**
+     * Programs per status change update, each adds a CASE branch
+     */
+    private static final int STATUS_CHANGE_CHUNK_SIZE = 100;
+    private static final int STATUS_CHANGE_CASE_STEP = 10;
+    /**
+     * Suffix of the ascending (newer records) variant of a keyset paged named
+     * query, see fetchEntitiesPage
+     */
+    private static final String PREVIOUS_PAGE_QUERY_SUFFIX = ".previous";
+    private static final ThreadLocal<UnitOfWorkScope> UNIT_OF_WORK = new ThreadLocal<>();
+    /**
+     * One SessionFactory (with its own pool, batch settings and cache regions)
+     * per config file, shared by the instances given the same file. It is
+     * closed when the last of them calls releaseDBResources
+     */
+    private static final ConcurrentMap<String, ConfigureHibernate> CONFIGURATIONS = new ConcurrentHashMap<>();
     private final HibernateConfig hibernateConfig;
-    private SessionFactory sessionFactory;
+    private final ConfigureHibernate configureHibernate;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private final SegmentIdAllocator idAllocator;
+    private final OperationMetrics metrics;
+    private ExecutorService parallelReadExecutor;
+    private volatile boolean idSegmentTableCreated;
 
     public CustomHibernate(HibernateConfig hibernateConfig) {
         this.hibernateConfig = hibernateConfig;
-        CustomHibernate.hibernateFilePath = hibernateConfig.getHibernateFilePath();
+        this.configureHibernate = configurationOf(hibernateConfig.getHibernateFilePath());
+        this.configureHibernate.acquire();
+        this.metrics = configureHibernate.getOperationMetrics();
+        this.idAllocator = new SegmentIdAllocator(this);
+
+    }
+
+    /**
+     * Block (hi/lo) ID allocator backed by this instance's database
+     *
+     * @return
+     */
+    public SegmentIdAllocator getIdAllocator() {
+        return idAllocator;
+    }
 
+    /**
+     * Screen ID sequences of this instance's database, shared by the
+     * instances given the same config file
+     *
+     * @return
+     */
+    public ScreenIdSequencer getScreenIdSequencer() {
+        return configureHibernate.getScreenIdSequencer();
+    }
+
+    private static ConfigureHibernate configurationOf(String hibernateFilePath) {
+
+        String key = new File(hibernateFilePath).getAbsolutePath();
+
+        ConfigureHibernate configuration = CONFIGURATIONS.get(key);
+        if (configuration == null) {
+            //configuring is deferred to the first getSessionFactory, so losing this race costs nothing
+            ConfigureHibernate created = new ConfigureHibernate(key);
+            configuration = CONFIGURATIONS.putIfAbsent(key, created);
+            if (configuration == null) {
+                configuration = created;
+            }
+        }
+        return configuration;
     }
 
+    /**
+     * Built on first use
+     *
+     * @return null if the configuration failed
+     */
     private SessionFactory getSessionFactory() {
+        return configureHibernate.createSessionFactory();
+    }
 
+    private SessionFactory requireSessionFactory() throws MyCustomException {
+
+        SessionFactory sessionFactory = getSessionFactory();
         if (sessionFactory == null) {
-            sessionFactory = ConfigureHibernate.getInstance().createSessionFactory();
+            MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, "Hibernate configuration failed for: " + hibernateConfig.getHibernateFilePath());
+            throw error;
         }
-
         return sessionFactory;
     }
 
@@ -85,40 +209,89 @@ public final class CustomHibernate {
 
         boolean initialised = Boolean.TRUE;
 
-        sessionFactory = ConfigureHibernate.getInstance().createSessionFactory();
-
-        if (sessionFactory == null) {
+        if (getSessionFactory() == null) {
             initialised = Boolean.FALSE;
+        } else {
+            String name = new File(hibernateConfig.getHibernateFilePath()).getName();
+            metrics.register(name);
+            configureHibernate.startStatisticsExporter(name);
+
+            HikariConnectionProvider pool = getConnectionPool();
+            if (pool != null) {
+                pool.register(name);
+                if (HibernateProperties.getBoolean(getHibernateProperties(), HibernateProperties.POOL_PREFILL, Boolean.TRUE)) {
+                    pool.prefill();
+                }
+            }
         }
 
         return initialised;
     }
 
     /**
-     * Close the hibernate session factory after use
+     * @return the pool, null unless sghibernate.pool.provider is hikari
+     */
+    private HikariConnectionProvider getConnectionPool() {
+
+        SessionFactory sessionFactory = getSessionFactory();
+        if (sessionFactory == null) {
+            return null;
+        }
+
+        ConnectionProvider provider = ((SessionFactoryImplementor) sessionFactory).getServiceRegistry().getService(ConnectionProvider.class);
+        return provider instanceof HikariConnectionProvider ? (HikariConnectionProvider) provider : null;
+    }
+
+    /**
+     * Connection counts and the time callers waited for a connection, also
+     * published over JMX by initialiseDBResources
+     *
+     * @return null unless sghibernate.pool.provider is hikari
+     */
+    public ConnectionPoolStats getConnectionPoolStats() {
+
+        HikariConnectionProvider pool = getConnectionPool();
+        return pool == null ? null : pool.getStats();
+    }
+
+    /**
+     * Close the hibernate session factory after use. The factory is shared by
+     * the instances given the same config file, and only closed once all of
+     * them have released it
      */
     public void releaseDBResources() {
 
-        if (getSessionFactory() != null && !getSessionFactory().isClosed()) {
-            getSessionFactory().close();
+        synchronized (this) {
+            if (parallelReadExecutor != null) {
+                parallelReadExecutor.shutdownNow();
+                parallelReadExecutor = null;
+            }
+        }
 
-            LOGGER.debug("Closing Hibernate SessionFactory...");
+        if (released.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+            configureHibernate.release();
         } else {
-            LOGGER.debug(">>>>>> called closeHibernateSessionFactory() but SessionFactory already CLOSED!!!!");
+            LOGGER.debug(">>>>>> called releaseDBResources() more than once on the same instance");
         }
     }
 
     //Session methods
-    private Session getSession() {
+    private Session getSession() throws MyCustomException {
+
+        UnitOfWorkScope scope = UNIT_OF_WORK.get();
+        if (scope != null && scope.isOwnedBy(this)) {
+            return scope.getSession();
+        }
 
+        SessionFactory sessionFactory = requireSessionFactory();
         Session session = null;
 
         try {
 
-            session = getSessionFactory().getCurrentSession();
+            session = sessionFactory.getCurrentSession();
 
             if (!session.isOpen()) {
-                session = getSessionFactory().openSession();
+                session = sessionFactory.openSession();
             }
 
         } catch (HibernateException he) {
@@ -128,12 +301,13 @@ public final class CustomHibernate {
         return session;
     }
 
-    private StatelessSession getStatelessSession() throws NullPointerException {
+    private StatelessSession getStatelessSession() throws MyCustomException {
 
+        SessionFactory sessionFactory = requireSessionFactory();
         StatelessSession statelessSession;
 
         try {
-            statelessSession = getSessionFactory().openStatelessSession();
+            statelessSession = sessionFactory.openStatelessSession();
             LOGGER.debug("openned stateless session");
         } catch (HibernateException he) {
             LOGGER.error("Hibernate exception openning stateless session: " + he.toString());
@@ -142,8 +316,73 @@ public final class CustomHibernate {
         return statelessSession;
     }
 
+    /**
+     * Begin a transaction, or join the unit of work the session belongs to
+     *
+     * @param session from getSession
+     * @return
+     */
+    private static Transaction beginTransaction(Session session) {
+
+        UnitOfWorkScope scope = UNIT_OF_WORK.get();
+        if (scope != null && scope.getSession() == session) {
+            return scope.join();
+        }
+        return session.beginTransaction();
+    }
+
+    /**
+     * Begin the transaction of a read method: read-only unless disabled by
+     * sghibernate.read_only.enabled or the session belongs to a unit of work,
+     * whose entities may still be written
+     *
+     * @param session from getSession
+     * @return
+     */
+    private Transaction beginReadOnlyTransaction(Session session) {
+
+        UnitOfWorkScope scope = UNIT_OF_WORK.get();
+        if (scope != null && scope.getSession() == session) {
+            return scope.join();
+        }
+
+        Properties properties = getHibernateProperties();
+        if (!HibernateProperties.getBoolean(properties, HibernateProperties.READ_ONLY_ENABLED, Boolean.TRUE)) {
+            return session.beginTransaction();
+        }
+        return ReadOnlyTransaction.begin(session, HibernateProperties.getBoolean(properties, HibernateProperties.READ_ONLY_CONNECTION, Boolean.FALSE));
+    }
+
+    /**
+     * The scrolling fetches used to flush and clear the session every few
+     * rows. A read-only session has nothing to flush and keeps no snapshots,
+     * and clearing a unit of work's session would detach its entities
+     *
+     * @param session
+     * @return
+     */
+    private static boolean clearsWhileScrolling(Session session) {
+        return !session.isDefaultReadOnly() && !isUnitOfWorkSession(session);
+    }
+
+    /**
+     * @param session
+     * @return true if the session is the one of the unit of work running on
+     * this thread, which inUnitOfWork closes and which must not be cleared
+     */
+    private static boolean isUnitOfWorkSession(Session session) {
+
+        UnitOfWorkScope scope = UNIT_OF_WORK.get();
+        return scope != null && scope.getSession() == session;
+    }
+
     private static void closeSession(Session session) {
 
+        if (isUnitOfWorkSession(session)) {
+            //closed by inUnitOfWork
+            return;
+        }
+
         LOGGER.warn("Closing session..");
 
         if (session != null) {
@@ -170,539 +409,854 @@ public final class CustomHibernate {
         }
     }
 
-    //CRUD methods
     /**
-     * Method supports a callback function that can process multiple records
-     * while saving in the database
+     * Run several operations on one session and transaction. The methods of
+     * this instance that use a Session (fetch*, save*, update*, countRows,
+     * ...) called from work on this thread join the unit instead of opening
+     * their own: the entities they load stay in one first level cache and
+     * everything is committed once, when work returns. If an operation fails
+     * or work throws, the whole unit is rolled back.
      *
-     * @param callBack
-     * @return number of records processed and saved
-     * @throws com.library.customexception.MyCustomException
+     * Calling inUnitOfWork again from work joins the running unit. Methods
+     * on a StatelessSession (insertBulk, processAndSave, the stream* and
+     * *Stateless methods, ...) and calls made on other threads (e.g. through
+     * AsyncCustomHibernate) still run in their own transaction, and so do the
+     * chunks of saveBulkChunked and updateBulkChunked. saveOrUpdateEntity and
+     * updateEntity only flush the unit's session, entities loaded earlier
+     * stay attached. saveBulk and updateBulk do clear it between batches to
+     * bound its memory, detaching what the unit loaded before them.
+     *
+     * @param <T>
+     * @param work
+     * @return what work returned
+     * @throws MyCustomException
      */
-    public int processAndSave(CallBack callBack) throws MyCustomException {
+    public <T> T inUnitOfWork(UnitOfWork<T> work) throws MyCustomException {
 
-        StatelessSession tempSession = getStatelessSession();
-        Transaction transaction = null;
+        UnitOfWorkScope outer = UNIT_OF_WORK.get();
+        if (outer != null && outer.isOwnedBy(this)) {
+            return work.execute();
+        }
+
+        long started = System.nanoTime();
+
+        Session session = requireSessionFactory().openSession();
+        UnitOfWorkScope scope = null;
         String errorDetails;
 
         try {
 
-            transaction = tempSession.beginTransaction();
+            scope = new UnitOfWorkScope(this, session);
+            UNIT_OF_WORK.set(scope);
 
-            int recordsProcessed = callBack.processAndSaveMultipleRecords(tempSession);
+            T result = work.execute();
 
-            transaction.commit();
+            if (!scope.isRollbackOnly()) {
+                scope.commit();
+                return recorded("inUnitOfWork", started, result);
+            }
+
+            errorDetails = "Unit of work rolled back, one of its operations failed";
+            scope.rollback();
 
-            return recordsProcessed;
+        } catch (MyCustomException ex) {
+
+            if (scope != null) {
+                scope.rollback();
+            }
+            throw failed("inUnitOfWork", started, ex);
 
         } catch (HibernateException he) {
 
-            errorDetails = "hibernate exception inserting/updating records in the database: " + he.toString();
+            errorDetails = "HibernateException occurred in unit of work: " + he.toString();
 
-            if (transaction != null) {
-                transaction.rollback();
+            if (scope != null) {
+                scope.rollback();
             }
-        } catch (Exception e) {
 
-            errorDetails = "General exception performing the processAndSave callback function that saves/updates records in the database: " + e.getCause().toString();
+        } catch (Exception ex) {
 
-            if (transaction != null) {
-                transaction.rollback();
+            errorDetails = "General exception occurred in unit of work: " + ex.toString();
+
+            if (scope != null) {
+                scope.rollback();
             }
+
         } finally {
-            closeSession(tempSession);
+
+            if (outer == null) {
+                UNIT_OF_WORK.remove();
+            } else {
+                UNIT_OF_WORK.set(outer);
+            }
+            closeSession(session);
+
+            if (scope != null) {
+                scope.runAfterCompletion();
+            }
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("inUnitOfWork", started, error);
     }
 
     /**
-     * Insert a list of entity records
+     * Settings from the hibernate config file
      *
-     * @param entityList to insert
-     * @return if entity record has been inserted/saved
-     * @throws com.library.customexception.MyCustomException
+     * @return
      */
-    public boolean insertBulk(Set<DBInterface> entityList) throws MyCustomException {
+    Properties getHibernateProperties() {
 
-        StatelessSession tempSession = getStatelessSession();
-        Transaction transaction = null;
-        String errorDetails;
+        getSessionFactory();
+        return configureHibernate.getProperties();
+    }
 
-        try {
+    /**
+     * Property and named query parameter types used to convert the values of
+     * the property name/values maps. Register converters here for properties
+     * whose values need custom parsing
+     *
+     * @return
+     */
+    public FilterConverterRegistry getFilterConverterRegistry() {
 
-            transaction = tempSession.beginTransaction();
-            for (DBInterface entity : entityList) {
-                tempSession.insert(entity);
-            }
-            transaction.commit();
-            return Boolean.TRUE;
+        getSessionFactory();
+        return configureHibernate.getConverterRegistry();
+    }
 
-        } catch (HibernateException he) {
+    private SecondLevelCache getSecondLevelCache() {
 
-            errorDetails = "hibernate exception saving records in the database: " + he.toString();
+        getSessionFactory();
+        return configureHibernate.getSecondLevelCache();
+    }
 
-            if (transaction != null) {
-                transaction.rollback();
-            }
-        } catch (Exception e) {
+    /**
+     * Second level cache hit/miss counts per region (entity class name, plus
+     * the query cache regions). Empty when no entity is configured for
+     * caching
+     *
+     * @return
+     */
+    public Map<String, CacheRegionStatistics> getCacheStatistics() {
+        return getSecondLevelCache().getStatistics();
+    }
 
-            errorDetails = "General exception saving records in the database: " + e.toString();
+    /**
+     * Hibernate statistics of the SessionFactory: query, entity, flush and
+     * second level cache counts and the per query execution times. All zero
+     * unless sghibernate.statistics.enabled (or hibernate.generate_statistics)
+     * is set
+     *
+     * @return
+     */
+    public StatisticsSnapshot getStatisticsSnapshot() {
+        return StatisticsSnapshot.of(getSessionFactory().getStatistics());
+    }
 
-            if (transaction != null) {
-                transaction.rollback();
-            }
-        } finally {
-            closeSession(tempSession);
-        }
+    /**
+     * Named query results cached by fetchEntities, with their hit/miss counts
+     *
+     * @return
+     */
+    public NamedQueryResultCache getQueryResultCache() {
 
-        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        getSessionFactory();
+        return configureHibernate.getQueryResultCache();
     }
 
     /**
-     * Save a list of entity records while flushing a batch of records at a time
-     * (to release memory)
+     * Slow fetchBulk and fetchEntities calls, with their SQL, parameters and
+     * call site. Records nothing unless sghibernate.slow_query.threshold_ms is
+     * set
      *
-     * @param <BaseEntity>
-     * @param entityList to save
      * @return
-     * @throws com.library.customexception.MyCustomException
      */
-    public <BaseEntity> boolean saveBulk(Set<BaseEntity> entityList) throws MyCustomException {
+    public SlowQueryRecorder getSlowQueryRecorder() {
 
-        int insertCount = 0;
+        getSessionFactory();
+        return configureHibernate.getSlowQueryRecorder();
+    }
 
-        Session session = getSession();
-        Transaction transaction = null;
-        String errorDetails;
+    /**
+     * Writes through a StatelessSession bypass AuditTrailInterceptor, so they
+     * invalidate the cached named query results here
+     *
+     * @param entities written
+     */
+    private void invalidateQueryResults(Collection<?> entities) {
 
-        try {
+        Set<Class> entityTypes = new HashSet<>();
+        for (Object entity : entities) {
+            entityTypes.add(entity.getClass());
+        }
+        getQueryResultCache().invalidate(entityTypes);
+    }
 
-            transaction = session.beginTransaction();
-            for (BaseEntity entity : entityList) {
+    /**
+     * Drop the cached named query results reading a table the HQL statement
+     * wrote. Inside a unit of work the statement is only committed with the
+     * unit and a reader may cache the old rows until then, so this is done
+     * again once the unit has completed
+     *
+     * @param session the statement ran on
+     * @param hql
+     */
+    private void invalidateQueryResults(Session session, final String hql) {
 
-                session.save(entity);
+        getQueryResultCache().invalidateQuery(hql);
 
-                if ((insertCount % NamedConstants.HIBERNATE_JDBC_BATCH) == 0) { // Same as the JDBC batch size
-                    //flush a batch of inserts and release memory: Without the call to the flush method,
-                    //your first-level cache would throw an OutOfMemoryException
-                    session.flush();
-                    session.clear();
+        if (isUnitOfWorkSession(session)) {
+            UNIT_OF_WORK.get().afterCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    getQueryResultCache().invalidateQuery(hql);
                 }
+            });
+        }
+    }
 
-                insertCount++;
-            }
+    /**
+     * Same as invalidateQueryResults(Session,String) for a named query
+     *
+     * @param session the named query ran on
+     * @param namedQuery
+     */
+    private void invalidateNamedQueryResults(Session session, final String namedQuery) {
 
-            transaction.commit();
-            return Boolean.TRUE;
+        getQueryResultCache().invalidateNamedQuery(namedQuery);
 
-        } catch (HibernateException he) {
+        if (isUnitOfWorkSession(session)) {
+            UNIT_OF_WORK.get().afterCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    getQueryResultCache().invalidateNamedQuery(namedQuery);
+                }
+            });
+        }
+    }
 
-            LOGGER.error(he.toString());
+    /**
+     * Drop the cached instances of an entity, e.g. after its table was
+     * changed outside this application
+     *
+     * @param entityType
+     */
+    public void evictCache(Class entityType) {
 
-            errorDetails = "hibernate exception saving records in the database: " + he.toString();
+        SessionFactory sessionFactory = getSessionFactory();
+        if (sessionFactory != null) {
+            sessionFactory.getCache().evictEntityRegion(entityType);
+            sessionFactory.getCache().evictDefaultQueryRegion();
+        }
+    }
 
-            if (transaction != null) {
-                transaction.rollback();
-            }
+    /**
+     * Set the cache mode of a fetch, the configured default when null.
+     * Fetches of entities kept in the second level cache also use the query
+     * cache unless the mode skips cache reads (REFRESH, PUT, IGNORE)
+     *
+     * @param criteria
+     * @param entityType
+     * @param cacheMode
+     * @return true if the results may come from the query cache
+     */
+    private boolean applyCacheMode(Criteria criteria, Class entityType, CacheMode cacheMode) {
 
-        } catch (Exception e) {
+        SecondLevelCache secondLevelCache = getSecondLevelCache();
+        CacheMode mode = cacheMode == null ? secondLevelCache.getDefaultCacheMode() : cacheMode;
 
-            LOGGER.error(e.toString());
+        boolean cacheable = secondLevelCache.isCached(entityType) && mode.isGetEnabled();
 
-            errorDetails = "hibernate exception saving records in the database: " + e.toString();
+        criteria.setCacheMode(mode);
+        criteria.setCacheable(cacheable);
 
-            if (transaction != null) {
-                transaction.rollback();
-            }
+        return cacheable;
+    }
 
-        } finally {
+    /**
+     * Open a forward-only scroll over the criteria results. Callers close it
+     * before committing
+     *
+     * @param criteria
+     * @return
+     */
+    private static ScrollableResults scroll(Criteria criteria) {
+        return criteria.scroll(ScrollMode.FORWARD_ONLY);
+    }
 
-            closeSession(session);
+    /**
+     * Open a forward-only scroll for the stream* methods, which read on a
+     * StatelessSession of their own and run nothing else on its connection
+     * until the scroll is closed. When streaming is configured the fetch size
+     * makes Connector/J stream rows (or fetch them through a server side
+     * cursor in batches) instead of buffering the whole result set on the
+     * client before the first next(). The stateful fetches flush, clear and
+     * lazy-load while scrolling, so they use scroll(Criteria).
+     *
+     * @param criteria
+     * @return
+     */
+    private ScrollableResults streamScroll(Criteria criteria) {
+
+        Properties properties = getHibernateProperties();
+
+        if (HibernateProperties.getBoolean(properties, HibernateProperties.SCROLL_CURSOR_FETCH, Boolean.FALSE)) {
+            criteria.setFetchSize(HibernateProperties.getInt(properties, HibernateProperties.SCROLL_FETCH_SIZE, 1000));
+            criteria.setReadOnly(Boolean.TRUE);
+
+        } else if (HibernateProperties.getBoolean(properties, HibernateProperties.SCROLL_STREAMING, Boolean.FALSE)) {
+            //row-by-row: no other statement may run on this connection until the scroll is closed
+            criteria.setFetchSize(HibernateProperties.MYSQL_STREAMING_FETCH_SIZE);
+            criteria.setReadOnly(Boolean.TRUE);
         }
 
-        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        return criteria.scroll(ScrollMode.FORWARD_ONLY);
     }
 
     /**
+     * Latency, call, error and row counts of every operation and named query,
+     * also published over JMX by initialiseDBResources. Shared by the
+     * instances given the same config file, like the SessionFactory
      *
-     * @param namedQuery
-     * @param parameterName
-     * @param parameterValue
-     * @throws com.library.customexception.MyCustomException
+     * @return
      */
-    public void deleteRecords(String namedQuery, String parameterName, Object parameterValue) throws MyCustomException {
+    public OperationMetrics getOperationMetrics() {
+        return metrics;
+    }
 
-        Session session = getSession();
-        Transaction transaction = null;
-        String errorDetails;
+    private <T> T recorded(String operation, long started, T result) {
 
-        String queryString = "";
-        try {
+        metrics.record(operation, started, rowsOf(result), Boolean.FALSE);
+        return result;
+    }
 
-            // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
-            //query.setParameter("code", "7277");
-            //List list = updateQuery.list();
-            transaction = session.beginTransaction();
-            Query query = session.getNamedQuery(namedQuery);
+    private <T> T recorded(String operation, String namedQuery, long started, T result) {
 
-            queryString = query.getQueryString();
+        metrics.record(operation, namedQuery, started, rowsOf(result), Boolean.FALSE);
+        return result;
+    }
 
-            LOGGER.debug("Parameter Name: " + parameterName + ", and value: " + parameterValue);
+    private int recordedRows(String operation, long started, int rows) {
 
-            switch (parameterName) {
+        metrics.record(operation, started, rows, Boolean.FALSE);
+        return rows;
+    }
 
-                case "displayDate":
-                    //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) parameterValue, NamedConstants.DATE_DASH_FORMAT);
-                    LocalDate date = new LocalDate(parameterValue);
-                    query.setParameter(parameterName, date);
+    private MyCustomException failed(String operation, long started, MyCustomException error) {
 
-                    break;
+        metrics.record(operation, started, 0L, Boolean.TRUE);
+        return error;
+    }
 
-                case "id":
-                    long val = GeneralUtils.convertObjectToLong(parameterValue);
-                    query.setParameter(parameterName, val);
-                    break;
+    private MyCustomException failed(String operation, String namedQuery, long started, MyCustomException error) {
 
-                default:
-                    query.setParameter(parameterName, parameterValue);
-                    break;
-            }
+        metrics.record(operation, namedQuery, started, 0L, Boolean.TRUE);
+        return error;
+    }
 
-            query.executeUpdate();
+    private static long rowsOf(Object result) {
+
+        if (result == null) {
+            return 0L;
+        } else if (result instanceof Collection) {
+            return ((Collection) result).size();
+        } else if (result instanceof KeysetPage) {
+            return ((KeysetPage) result).getResults().size();
+        } else if (result instanceof BulkInsertReport) {
+            return ((BulkInsertReport) result).getRows();
+        } else if (result instanceof ChunkedWriteReport) {
+            return ((ChunkedWriteReport) result).getSucceededCount();
+        } else if (result instanceof Boolean) {
+            return ((Boolean) result) ? 1L : 0L;
+        }
+        return 1L;
+    }
+
+    //CRUD methods
+    /**
+     * Method supports a callback function that can process multiple records
+     * while saving in the database
+     *
+     * @param callBack
+     * @return number of records processed and saved
+     * @throws com.library.customexception.MyCustomException
+     */
+    public int processAndSave(CallBack callBack) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        StatelessSession tempSession = getStatelessSession();
+        Transaction transaction = null;
+        String errorDetails;
+
+        try {
+
+            transaction = tempSession.beginTransaction();
+
+            int recordsProcessed = callBack.processAndSaveMultipleRecords(tempSession);
 
             transaction.commit();
 
-            return;
+            return recordedRows("processAndSave", started, recordsProcessed);
 
         } catch (HibernateException he) {
 
-            errorDetails = "HibernateException occurred trying to delete records with query: " + queryString + " - " + he.toString();
+            errorDetails = "hibernate exception inserting/updating records in the database: " + he.toString();
 
             if (transaction != null) {
                 transaction.rollback();
             }
-
         } catch (Exception e) {
 
-            errorDetails = "General exception occurred trying to delete records with query: " + queryString + " - " + e.toString();
+            errorDetails = "General exception performing the processAndSave callback function that saves/updates records in the database: " + e.getCause().toString();
 
             if (transaction != null) {
                 transaction.rollback();
             }
-
         } finally {
-            closeSession(session);
+            closeSession(tempSession);
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("processAndSave", started, error);
     }
 
     /**
-     * Fetch entities (AdText, AdResources, AdPrograms) from the database using
-     * named queries
-     *
-     * @param <BaseEntity>
-     * @param namedQuery
-     * @param propertyNameValues
+     * Insert a list of entity records
      *
-     * @return
+     * @param entityList to insert
+     * @return if entity record has been inserted/saved
      * @throws com.library.customexception.MyCustomException
      */
-    public <BaseEntity> Set<BaseEntity> fetchEntities(String namedQuery, Map<String, Object> propertyNameValues) throws MyCustomException {
+    public boolean insertBulk(Set<DBInterface> entityList) throws MyCustomException {
 
-        Session session = getSession();
-        Transaction transaction = null;
+        BulkInsertReport report = insertBulkWithStatistics(entityList);
+        LOGGER.debug("Bulk insert: " + report);
+        return Boolean.TRUE;
+    }
 
-        String queryString = "";
-        String errorDetails = "";
-        Set<BaseEntity> results = new HashSet<>();
-        boolean isError = Boolean.TRUE;
+    /**
+     * What the connection really runs with, rather than what the config file
+     * asked for: a JNDI or c3p0 datasource ignores
+     * hibernate.connection.rewriteBatchedStatements
+     *
+     * @param connection
+     * @return rewriteBatchedStatements of the Connector/J connection, null if
+     * it is not one or cannot be unwrapped
+     */
+    private static Boolean rewriteBatchedStatementsOf(Connection connection) {
 
         try {
+            if (connection.isWrapperFor(com.mysql.jdbc.Connection.class)) {
+                return connection.unwrap(com.mysql.jdbc.Connection.class).getRewriteBatchedStatements();
+            }
+        } catch (SQLException ex) {
+            LOGGER.debug("Could not unwrap the Connector/J connection: " + ex.toString());
+        } catch (AbstractMethodError ex) {
+            //a pool proxy from before JDBC 4
+            LOGGER.debug("Connection cannot be unwrapped: " + ex.toString());
+        }
+        return null;
+    }
 
-            // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
-            //query.setParameter("code", "7277");
-            //List list = updateQuery.list();
-            transaction = session.beginTransaction();
-
-            Query<BaseEntity> query = session.getNamedQuery(namedQuery);
-
-//            TypedQuery<Admin> updateQuery = session.createQuery("FROM Admin");
-//    List<Admin> result = updateQuery.getResultList();
-            queryString = query.getQueryString();
-
-            //propertyNameValues.entrySet().stream().forEach((entry) -> {
-            for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
+    /**
+     * Insert entity records in JDBC batches of sghibernate.bulk_insert.batch_size
+     * rows, all in one transaction. Records are grouped by entity type first
+     * (what hibernate.order_inserts does for a Session) so that mixed types
+     * do not cut the batches short.
+     *
+     * @param entityList to insert
+     * @return rows, statements and time of every batch
+     * @throws com.library.customexception.MyCustomException
+     */
+    public BulkInsertReport insertBulkWithStatistics(Collection<? extends DBInterface> entityList) throws MyCustomException {
 
-                String name = entry.getKey();
-                Set<Object> values = (Set<Object>) entry.getValue();
+        long started = System.nanoTime();
 
-                LOGGER.debug("Field Name  : " + name);
-                LOGGER.debug("Field values: " + values);
+        Properties properties = getHibernateProperties();
+        int batchSize = HibernateProperties.getInsertBatchSize(properties);
 
-                switch (name) {
+        Map<Class, List<DBInterface>> entitiesByType = new LinkedHashMap<>();
+        for (DBInterface entity : entityList) {
 
-                    case "campaignStatuses": {
-                        Set<CampaignStatus> statuses = new HashSet<>();
-                        for (Object object : values) {
+            List<DBInterface> entities = entitiesByType.get(entity.getClass());
+            if (entities == null) {
+                entities = new ArrayList<>();
+                entitiesByType.put(entity.getClass(), entities);
+            }
+            entities.add(entity);
+        }
 
-                            //CampaignStatus val = CampaignStatus.valueOf((String) object);
-                            CampaignStatus val = (CampaignStatus) object;
-                            statuses.add(val);
-                        }
-                        query.setParameterList(name, statuses);
-                        break;
-                    }
+        StatelessSession tempSession = getStatelessSession();
+        Transaction transaction = null;
+        String errorDetails;
 
-                    case "screenIds":
-                        Set<String> screenCodes = new HashSet<>();
-                        for (Object object : values) {
+        try {
 
-                            screenCodes.add((String) object);
-                        }
-                        query.setParameterList(name, screenCodes);
-                        break;
+            long start = System.nanoTime();
+            List<InsertBatchStatistics> batches = new ArrayList<>();
 
-                    case "ispreferred":
-                        Set<Boolean> preferred = new HashSet<>();
-                        for (Object object : values) {
+            tempSession.setJdbcBatchSize(batchSize);
+            JdbcStatementCounter counter = JdbcStatementCounter.attach(tempSession);
+            JdbcCoordinator jdbcCoordinator = ((SharedSessionContractImplementor) tempSession).getJdbcCoordinator();
 
-                            preferred.add((Boolean) object);
-                        }
-                        query.setParameterList(name, preferred);
-                        break;
+            transaction = tempSession.beginTransaction();
+            Boolean rewriteBatchedStatements = rewriteBatchedStatementsOf(jdbcCoordinator.getLogicalConnection().getPhysicalConnection());
 
-                    case "campaignId":
-                        Set<Integer> campaignIds = new HashSet<>();
-                        for (Object object : values) {
+            for (Map.Entry<Class, List<DBInterface>> entities : entitiesByType.entrySet()) {
+                for (List<DBInterface> batch : chunk(entities.getValue(), batchSize)) {
 
-                            campaignIds.add(GeneralUtils.convertObjectToInteger(object));
-                        }
-                        query.setParameterList(name, campaignIds);
-                        break;
+                    long batchStart = System.nanoTime();
+                    int roundTrips = counter.getRoundTrips();
 
-                    case "internalPaymentID":
-                        Set<String> paymentIds = new HashSet<>();
-                        for (Object object : values) {
+                    for (DBInterface entity : batch) {
+                        tempSession.insert(entity);
+                    }
+                    //send what is left of the batch now, so it is timed and counted on its own
+                    jdbcCoordinator.executeBatch();
 
-                            paymentIds.add((String) object);
-                        }
-                        query.setParameterList(name, paymentIds);
-                        break;
+                    batches.add(new InsertBatchStatistics(entities.getKey().getSimpleName(), batch.size(), counter.getRoundTrips() - roundTrips, System.nanoTime() - batchStart));
+                }
+            }
+            transaction.commit();
 
-                    case "uploadId":
-                        Set<String> uploadIds = new HashSet<>();
-                        for (Object object : values) {
+            invalidateQueryResults(entityList);
+            return recorded("insertBulkWithStatistics", started, new BulkInsertReport(batches, batchSize, rewriteBatchedStatements, System.nanoTime() - start));
 
-                            uploadIds.add((String) object);
-                        }
-                        query.setParameterList(name, uploadIds);
-                        break;
+        } catch (HibernateException he) {
 
-                    case "userId":
-                        Set<String> userId = new HashSet<>();
-                        for (Object object : values) {
+            errorDetails = "hibernate exception saving records in the database: " + he.toString();
 
-                            userId.add(String.valueOf(object));
-                        }
-                        query.setParameterList(name, userId);
-                        break;
+            if (transaction != null) {
+                transaction.rollback();
+            }
+        } catch (Exception e) {
 
-                    case "displayDate":
-                        Set<LocalDate> displayDates = new HashSet<>();
-                        for (Object object : values) {
+            errorDetails = "General exception saving records in the database: " + e.toString();
 
-                            LocalDate date = new LocalDate(object);
-                            displayDates.add(date);
-                        }
-                        query.setParameterList(name, displayDates);
-                        break;
+            if (transaction != null) {
+                transaction.rollback();
+            }
+        } finally {
+            closeSession(tempSession);
+        }
 
-                    case "id":
-                        Set<Long> ids = new HashSet<>();
-                        for (Object object : values) {
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("insertBulkWithStatistics", started, error);
+    }
 
-                            long val = GeneralUtils.convertObjectToLong(object);
-                            ids.add(val);
-                        }
-                        query.setParameterList(name, ids);
-                        break;
+    /**
+     * Save a list of entity records while flushing a batch of records at a time
+     * (to release memory)
+     *
+     * @param <BaseEntity>
+     * @param entityList to save
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <BaseEntity> boolean saveBulk(Set<BaseEntity> entityList) throws MyCustomException {
 
-                    case "isUploadedToDSM": {
-                        Set<Boolean> vals = new HashSet<>();
-                        for (Object object : values) {
+        long started = System.nanoTime();
 
-                            boolean val = (Boolean) object;
-                            vals.add(val);
-                        }
-                        query.setParameterList(name, vals);
-                        break;
-                    }
-                    case "fetchStatus": {
-                        Set<FetchStatus> statuses = new HashSet<>();
-                        for (Object object : values) {
-                            FetchStatus val = FetchStatus.convertToEnum((String) object);
-                            statuses.add(val);
-                        }
-                        query.setParameterList(name, statuses);
-                        break;
-                    }
+        int insertCount = 0;
 
-                    case "audienceTypes.id":
+        Session session = getSession();
+        Transaction transaction = null;
+        String errorDetails;
 
-                        Set<Long> vals = new HashSet<>();
+        try {
 
-                        for (Object object : values) {
+            int batchSize = HibernateProperties.getInsertBatchSize(getHibernateProperties());
+            session.setJdbcBatchSize(batchSize);
 
-                            long val = GeneralUtils.convertObjectToLong(object);
-                            vals.add(val);
-                        }
+            transaction = beginTransaction(session);
+            for (BaseEntity entity : entityList) {
 
-//                    query.createAlias("audienceTypes", "audtype") //without this, keeps throwing error - org.hibernate.QueryException: could not resolve property: audienceTypes.audienceCode of: com.library.datamodel.model.v1_0.AdScreen 
-//                            .add(Restrictions.in("audtype.id", vals));
-                        query.setParameterList("id", vals);
-                        break;
+                session.save(entity);
+                insertCount++;
 
-                    default:
-                        query.setParameterList(name, values);
-                        break;
+                if ((insertCount % batchSize) == 0) { // Same as the JDBC batch size
+                    //flush a batch of inserts and release memory: Without the call to the flush method,
+                    //your first-level cache would throw an OutOfMemoryException
+                    session.flush();
+                    session.clear();
                 }
-
             }
 
-            results = new HashSet<>(query.list());
-
             transaction.commit();
-
-            isError = Boolean.FALSE;
+            return recorded("saveBulk", started, Boolean.TRUE);
 
         } catch (HibernateException he) {
 
-            he.printStackTrace();
-            errorDetails = "HibernateException occurred trying to execute query: " + queryString + " - " + he.toString();
+            LOGGER.error(he.toString());
+
+            errorDetails = "hibernate exception saving records in the database: " + he.toString();
 
             if (transaction != null) {
                 transaction.rollback();
             }
 
-        } catch (Exception ex) {
+        } catch (Exception e) {
 
-            ex.printStackTrace();
-            errorDetails = "General exception occurred trying to execute query: " + queryString + " - " + ex.toString();
+            LOGGER.error(e.toString());
+
+            errorDetails = "hibernate exception saving records in the database: " + e.toString();
 
             if (transaction != null) {
                 transaction.rollback();
             }
 
         } finally {
-            closeSession(session);
-        }
-
-        if (isError) {
-
-            MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
 
+            closeSession(session);
         }
 
-        return results;
-
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("saveBulk", started, error);
     }
 
     /**
      *
-     * @param <BaseEntity>
      * @param namedQuery
      * @param parameterName
      * @param parameterValue
-     * @return
      * @throws com.library.customexception.MyCustomException
      */
-    public <BaseEntity> Set<BaseEntity> fetchEntities(String namedQuery, String parameterName, Object parameterValue) throws MyCustomException {
+    public void deleteRecords(String namedQuery, String parameterName, Object parameterValue) throws MyCustomException {
+
+        long started = System.nanoTime();
 
         Session session = getSession();
         Transaction transaction = null;
+        String errorDetails;
 
         String queryString = "";
-        Set<BaseEntity> results = new HashSet<>();
-        boolean isError = Boolean.TRUE;
-        String errorDetails = "";
-
         try {
 
             // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
             //query.setParameter("code", "7277");
             //List list = updateQuery.list();
-            transaction = session.beginTransaction();
+            transaction = beginTransaction(session);
             Query query = session.getNamedQuery(namedQuery);
 
             queryString = query.getQueryString();
 
-            LOGGER.debug("Parameter Name : " + parameterName);
-            LOGGER.debug("Parameter value: " + parameterValue);
-
-            if (parameterValue instanceof Set) {
-                query.setParameterList(parameterName, (Collection) parameterValue);
-
-            } else {
-                //query.setParameter(parameterName, parameterValue);
+            LOGGER.debug("Parameter Name: " + parameterName + ", and value: " + parameterValue);
 
-                switch (parameterName) {
+            query.setParameter(parameterName, getFilterConverterRegistry().convertParameterValue(namedQuery, query, parameterName, parameterValue));
 
-                    case "area":
-                        String area = String.valueOf(parameterValue);
-                        query.setParameter(parameterName, area);
-                        break;
+            query.executeUpdate();
 
-                    case "screenId":
-                        String screenId = String.valueOf(parameterValue);
-                        query.setParameter(parameterName, screenId);
-                        break;
+            transaction.commit();
 
-                    case "uploadId":
-                        String uploadId = String.valueOf(parameterValue);
-                        query.setParameter(parameterName, uploadId);
-                        break;
+            invalidateNamedQueryResults(session, namedQuery);
 
-                    case "campaignId":
-                        int campaignId = GeneralUtils.convertObjectToInteger(parameterValue);
-                        query.setParameter(parameterName, campaignId);
-                        break;
+            metrics.record("deleteRecords", namedQuery, started, 0L, Boolean.FALSE);
+            return;
 
-                    case "internalPaymentID":
-                        String paymentId = String.valueOf(parameterValue);
-                        query.setParameter(parameterName, paymentId);
-                        break;
+        } catch (HibernateException he) {
 
-                    case "displayDate":
-                        LocalDate date = new LocalDate(parameterValue);
-                        query.setParameter(parameterName, date);
-                        break;
+            errorDetails = "HibernateException occurred trying to delete records with query: " + queryString + " - " + he.toString();
 
-                    case "id":
-                        long id = GeneralUtils.convertObjectToLong(parameterValue);
-                        query.setParameter(parameterName, id);
-                        break;
+            if (transaction != null) {
+                transaction.rollback();
+            }
 
-                    case "userId":
-                        String userId = String.valueOf(parameterValue);
-                        query.setParameter(parameterName, userId);
-                        break;
+        } catch (Exception e) {
 
-                    default:
-                        query.setParameter(parameterName, parameterValue);
-                        break;
-                }
+            errorDetails = "General exception occurred trying to delete records with query: " + queryString + " - " + e.toString();
 
+            if (transaction != null) {
+                transaction.rollback();
             }
 
-            results = new HashSet<>(query.list());
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("deleteRecords", namedQuery, started, error);
+    }
+
+    /**
+     * Fetch entities (AdText, AdResources, AdPrograms) from the database using
+     * named queries
+     *
+     * @param <BaseEntity>
+     * @param namedQuery
+     * @param propertyNameValues
+     *
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchEntities(String namedQuery, Map<String, Object> propertyNameValues) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        NamedQueryResultCache resultCache = getQueryResultCache();
+        Set<BaseEntity> cached = resultCache.get(namedQuery, propertyNameValues);
+        if (cached != null) {
+            return recorded("fetchEntities(String,Map)", namedQuery, started, cached);
+        }
+        long cacheGeneration = resultCache.getGeneration();
+
+        SlowQueryRecorder slowQueries = getSlowQueryRecorder();
+        Session session = getSession();
+        Transaction transaction = null;
+
+        String queryString = "";
+        String errorDetails = "";
+        Set<BaseEntity> results = new HashSet<>();
+        boolean isError = Boolean.TRUE;
+
+        try {
+
+            slowQueries.begin();
+
+            // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
+            //query.setParameter("code", "7277");
+            //List list = updateQuery.list();
+            transaction = beginReadOnlyTransaction(session);
+
+            Query<BaseEntity> query = session.getNamedQuery(namedQuery);
+
+//            TypedQuery<Admin> updateQuery = session.createQuery("FROM Admin");
+//    List<Admin> result = updateQuery.getResultList();
+            queryString = query.getQueryString();
+
+            applyNamedQueryParameters(namedQuery, query, propertyNameValues);
+
+            results = new HashSet<>(query.list());
+
+            //before the commit closes the thread-bound session
+            resultCache.put(namedQuery, propertyNameValues, results, cacheGeneration, session);
+
+            transaction.commit();
+
+            isError = Boolean.FALSE;
+
+        } catch (HibernateException he) {
+
+            he.printStackTrace();
+            errorDetails = "HibernateException occurred trying to execute query: " + queryString + " - " + he.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception ex) {
+
+            ex.printStackTrace();
+            errorDetails = "General exception occurred trying to execute query: " + queryString + " - " + ex.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } finally {
+            closeSession(session);
+            slowQueries.end("fetchEntities(String,Map)", queryString, started, propertyNameValues, results.size(), isError ? errorDetails : null);
+        }
+
+        if (isError) {
+
+            MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+            throw failed("fetchEntities(String,Map)", namedQuery, started, error);
+
+        }
+
+        return recorded("fetchEntities(String,Map)", namedQuery, started, results);
+
+    }
+
+    /**
+     * Bind a property name/values map to the list parameters of a named
+     * query, converting the values to the parameter types
+     *
+     * @param namedQuery
+     * @param query
+     * @param propertyNameValues
+     */
+    private void applyNamedQueryParameters(String namedQuery, Query query, Map<String, Object> propertyNameValues) {
+
+        FilterConverterRegistry registry = getFilterConverterRegistry();
+
+        for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
+
+            String name = entry.getKey();
+            Set<Object> values = (Set<Object>) entry.getValue();
+
+            LOGGER.debug("Field Name  : " + name);
+            LOGGER.debug("Field values: " + values);
+
+            String parameterName = registry.getParameterName(name);
+            query.setParameterList(parameterName, registry.convertParameterValues(namedQuery, query, parameterName, values));
+        }
+    }
+
+    /**
+     *
+     * @param <BaseEntity>
+     * @param namedQuery
+     * @param parameterName
+     * @param parameterValue
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchEntities(String namedQuery, String parameterName, Object parameterValue) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        Map<String, Object> parameters = Collections.singletonMap(parameterName, parameterValue);
+
+        NamedQueryResultCache resultCache = getQueryResultCache();
+        Set<BaseEntity> cached = resultCache.get(namedQuery, parameters);
+        if (cached != null) {
+            return recorded("fetchEntities(String,String,Object)", namedQuery, started, cached);
+        }
+        long cacheGeneration = resultCache.getGeneration();
+
+        SlowQueryRecorder slowQueries = getSlowQueryRecorder();
+        Session session = getSession();
+        Transaction transaction = null;
+
+        String queryString = "";
+        Set<BaseEntity> results = new HashSet<>();
+        boolean isError = Boolean.TRUE;
+        String errorDetails = "";
+
+        try {
+
+            slowQueries.begin();
+
+            // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
+            //query.setParameter("code", "7277");
+            //List list = updateQuery.list();
+            transaction = beginReadOnlyTransaction(session);
+            Query query = session.getNamedQuery(namedQuery);
+
+            queryString = query.getQueryString();
+
+            LOGGER.debug("Parameter Name : " + parameterName);
+            LOGGER.debug("Parameter value: " + parameterValue);
+
+            if (parameterValue instanceof Set) {
+                query.setParameterList(parameterName, (Collection) parameterValue);
+
+            } else {
+                //query.setParameter(parameterName, parameterValue);
+
+                query.setParameter(parameterName, getFilterConverterRegistry().convertParameterValue(namedQuery, query, parameterName, parameterValue));
+
+            }
+
+            results = new HashSet<>(query.list());
+
+            //before the commit closes the thread-bound session
+            resultCache.put(namedQuery, parameters, results, cacheGeneration, session);
+
             transaction.commit();
+
             isError = Boolean.FALSE;
 
         } catch (HibernateException he) {
@@ -733,16 +1287,17 @@ public final class CustomHibernate {
 
         } finally {
             closeSession(session);
+            slowQueries.end("fetchEntities(String,String,Object)", queryString, started, parameters, results.size(), isError ? errorDetails : null);
         }
 
         if (isError) {
 
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("fetchEntities(String,String,Object)", namedQuery, started, error);
 
         }
 
-        return results;
+        return recorded("fetchEntities(String,String,Object)", namedQuery, started, results);
 
     }
 
@@ -755,6 +1310,18 @@ public final class CustomHibernate {
      */
     public <BaseEntity> Set<BaseEntity> fetchEntities(String namedQuery) throws MyCustomException {
 
+        long started = System.nanoTime();
+
+        Map<String, Object> parameters = Collections.emptyMap();
+
+        NamedQueryResultCache resultCache = getQueryResultCache();
+        Set<BaseEntity> cached = resultCache.get(namedQuery, parameters);
+        if (cached != null) {
+            return recorded("fetchEntities(String)", namedQuery, started, cached);
+        }
+        long cacheGeneration = resultCache.getGeneration();
+
+        SlowQueryRecorder slowQueries = getSlowQueryRecorder();
         Session session = getSession();
         Transaction transaction = null;
 
@@ -765,16 +1332,21 @@ public final class CustomHibernate {
 
         try {
 
+            slowQueries.begin();
+
             // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
             //query.setParameter("code", "7277");
             //List list = updateQuery.list();
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Query query = session.getNamedQuery(namedQuery);
 
             queryString = query.getQueryString();
 
             results = new HashSet<>(query.list());
 
+            //before the commit closes the thread-bound session
+            resultCache.put(namedQuery, parameters, results, cacheGeneration, session);
+
             transaction.commit();
 
             isError = Boolean.FALSE;
@@ -797,16 +1369,17 @@ public final class CustomHibernate {
 
         } finally {
             closeSession(session);
+            slowQueries.end("fetchEntities(String)", queryString, started, parameters, results.size(), isError ? errorDetails : null);
         }
 
         if (isError) {
 
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("fetchEntities(String)", namedQuery, started, error);
 
         }
 
-        return results;
+        return recorded("fetchEntities(String)", namedQuery, started, results);
 
     }
 
@@ -819,6 +1392,8 @@ public final class CustomHibernate {
      */
     public Object saveEntity(DBInterface entity) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
         Transaction transaction = null;
         String errorDetails = "";
@@ -827,7 +1402,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginTransaction(session);
             entityId = session.save(entity);
             transaction.commit();
             isError = Boolean.FALSE;
@@ -856,10 +1431,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("saveEntity", started, error);
         }
 
-        return entityId;
+        return recorded("saveEntity", started, entityId);
 
     }
 
@@ -871,6 +1446,8 @@ public final class CustomHibernate {
      */
     public void saveOrUpdateEntity(DBInterface entity) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
         Transaction transaction = null;
         String errorDetails = "";
@@ -878,10 +1455,12 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginTransaction(session);
             session.saveOrUpdate(entity);
             session.flush();
-            session.clear();
+            if (!isUnitOfWorkSession(session)) {
+                session.clear();
+            }
             transaction.commit();
             isError = Boolean.FALSE;
 
@@ -907,15 +1486,93 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("saveOrUpdateEntity", started, error);
         }
 
+        metrics.record("saveOrUpdateEntity", started, 0L, Boolean.FALSE);
         return;
     }
 
+    /**
+     * Apply the writes queued in a WriteBehindBuffer in one transaction,
+     * flushing a JDBC batch at a time
+     *
+     * @param writes
+     * @return the database ID of each save, null for the other writes, in
+     * the order of the writes
+     * @throws MyCustomException
+     */
+    List<Object> writeBatch(List<WriteBehindBuffer.PendingWrite> writes) throws MyCustomException {
+
+        Session session = getSession();
+        Transaction transaction = null;
+        String errorDetails;
+
+        try {
+
+            List<Object> entityIds = new ArrayList<>(writes.size());
+            int writeCount = 0;
+
+            int batchSize = HibernateProperties.getInsertBatchSize(getHibernateProperties());
+            session.setJdbcBatchSize(batchSize);
+
+            transaction = beginTransaction(session);
+            for (WriteBehindBuffer.PendingWrite write : writes) {
+
+                switch (write.getOperation()) {
+                    case SAVE:
+                        entityIds.add(session.save(write.getEntity()));
+                        break;
+                    case SAVE_OR_UPDATE:
+                        session.saveOrUpdate(write.getEntity());
+                        entityIds.add(null);
+                        break;
+                    default:
+                        session.update(write.getEntity());
+                        entityIds.add(null);
+                        break;
+                }
+
+                writeCount++;
+                if ((writeCount % batchSize) == 0) { // Same as the JDBC batch size
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.flush();
+            transaction.commit();
+
+            return entityIds;
+
+        } catch (HibernateException he) {
+
+            errorDetails = "HibernateException occurred writing a batch of " + writes.size() + " buffered entities: " + he.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception ex) {
+
+            errorDetails = "General exception occurred writing a batch of " + writes.size() + " buffered entities: " + ex.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw error;
+    }
+
     //check this method before using it, dont we need to use flush just like in bulkSave??
     public boolean bulkUpdate(Set<DBInterface> dbObjectList) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
         Transaction transaction = null;
         String errorDetails;
@@ -929,7 +1586,9 @@ public final class CustomHibernate {
                 tempSession.update(dbObject);
             }
             transaction.commit();
-            return Boolean.TRUE;
+
+            invalidateQueryResults(dbObjectList);
+            return recorded("bulkUpdate", started, Boolean.TRUE);
 
         } catch (HibernateException he) {
 
@@ -951,7 +1610,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("bulkUpdate", started, error);
 
     }
 
@@ -964,6 +1623,8 @@ public final class CustomHibernate {
      */
     public boolean updateBulk(Set<BaseEntity> entityList) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         int updateCount = 0;
 
         Session session = getSession();
@@ -972,23 +1633,25 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            int batchSize = HibernateProperties.getInsertBatchSize(getHibernateProperties());
+            session.setJdbcBatchSize(batchSize);
+
+            transaction = beginTransaction(session);
             for (BaseEntity entity : entityList) {
 
                 session.update(entity);
+                updateCount++;
 
-                if ((updateCount % NamedConstants.HIBERNATE_JDBC_BATCH) == 0) { // Same as the JDBC batch size
-                    //flush a batch of inserts and release memory: Without the call to the flush method,
+                if ((updateCount % batchSize) == 0) { // Same as the JDBC batch size
+                    //flush a batch of updates and release memory: Without the call to the flush method,
                     //your first-level cache would throw an OutOfMemoryException
                     session.flush();
                     session.clear();
                 }
-
-                updateCount++;
             }
 
             transaction.commit();
-            return Boolean.TRUE;
+            return recorded("updateBulk", started, Boolean.TRUE);
 
         } catch (HibernateException he) {
             he.printStackTrace();
@@ -1015,49 +1678,210 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("updateBulk", started, error);
     }
 
     /**
-     * Update an entity in the database
+     * Save a large number of entities committing every chunkSize of them, so
+     * no transaction holds locks and undo log for the whole input. A failed
+     * chunk is rolled back on its own and the next chunk still runs. Chunks
+     * are written on a session of their own, so inside inUnitOfWork they are
+     * committed as they go and not rolled back with the unit.
      *
-     * @param entity
-     * @return
-     * @throws com.library.customexception.MyCustomException
+     * @param entityList to save
+     * @param chunkSize entities per transaction
+     * @param retryFailedRows save the entities of a failed chunk one by one,
+     * so only the bad ones are left out
+     * @return the committed and failed ranges of the input (in iteration
+     * order)
      */
-    public boolean updateEntity(BaseEntity entity) throws MyCustomException {
+    public ChunkedWriteReport saveBulkChunked(Collection<?> entityList, int chunkSize, boolean retryFailedRows) {
 
-        Session session = getSession();
-        Transaction transaction = null;
-        String errorDetails = "";
-        boolean isError = Boolean.TRUE;
+        long started = System.nanoTime();
+        return recorded("saveBulkChunked", started, writeChunked(new ArrayList<Object>(entityList), chunkSize, retryFailedRows, Boolean.FALSE));
+    }
 
-        try {
-            transaction = session.beginTransaction();
-            session.update(entity);
-            //retrievedDatabaseModel = (T)getSession().get(persistentClass, objectId);
-            //retrievedDatabaseModel = (T)session.merge(object);
-            //tempSession.update(retrievedDatabaseModel);
-            //retrievedDatabaseModel = dbObject;
-            //tempSession.update(session.merge(retrievedDatabaseModel));
-            //tempSession.update(retrievedDatabaseModel);
-            session.flush();
-            session.clear();
+    /**
+     * Update a large number of entities committing every chunkSize of them,
+     * see saveBulkChunked
+     *
+     * @param entityList to update
+     * @param chunkSize entities per transaction
+     * @param retryFailedRows update the entities of a failed chunk one by one
+     * @return the committed and failed ranges of the input (in iteration
+     * order)
+     */
+    public ChunkedWriteReport updateBulkChunked(Collection<?> entityList, int chunkSize, boolean retryFailedRows) {
 
-            transaction.commit();
-            isError = Boolean.FALSE;
+        long started = System.nanoTime();
+        return recorded("updateBulkChunked", started, writeChunked(new ArrayList<Object>(entityList), chunkSize, retryFailedRows, Boolean.TRUE));
+    }
 
-        } catch (HibernateException he) {
+    private ChunkedWriteReport writeChunked(List<Object> entities, int chunkSize, boolean retryFailedRows, boolean update) {
 
-            errorDetails = "HibernateException occurred trying to update a record: " + he.toString();
+        List<WriteRange> ranges = new ArrayList<>();
+        int chunkCount = 0;
+        int committedChunkCount = 0;
+        int fromIndex = 0;
 
-            if (transaction != null) {
-                transaction.rollback();
-            }
+        for (List<Object> chunk : chunk(entities, Math.max(1, chunkSize))) {
 
-        } catch (Exception ex) {
+            chunkCount++;
+            int toIndex = fromIndex + chunk.size();
 
-            errorDetails = "General exception occurred trying to update a record: " + ex.toString();
+            try {
+                writeChunk(chunk, update);
+                addRange(ranges, WriteRange.succeeded(fromIndex, toIndex));
+                committedChunkCount++;
+
+            } catch (MyCustomException ex) {
+
+                LOGGER.warn("Chunk [" + fromIndex + ", " + toIndex + ") rolled back" + (retryFailedRows ? ", retrying row by row" : ""));
+
+                if (!retryFailedRows) {
+                    ranges.add(WriteRange.failed(fromIndex, toIndex, ex.toString(), chunk));
+                } else {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        try {
+                            writeChunk(chunk.subList(i, i + 1), update);
+                            addRange(ranges, WriteRange.succeeded(fromIndex + i, fromIndex + i + 1));
+                        } catch (MyCustomException rowEx) {
+                            ranges.add(WriteRange.failed(fromIndex + i, fromIndex + i + 1, rowEx.toString(), chunk.subList(i, i + 1)));
+                        }
+                    }
+                }
+            }
+
+            fromIndex = toIndex;
+        }
+
+        ChunkedWriteReport report = new ChunkedWriteReport(ranges, chunkCount, committedChunkCount);
+        LOGGER.debug((update ? "Chunked update: " : "Chunked save: ") + report);
+        return report;
+    }
+
+    /**
+     * Append a committed range, merging it with the range before it if that
+     * one was committed too
+     */
+    private static void addRange(List<WriteRange> ranges, WriteRange range) {
+
+        if (!ranges.isEmpty()) {
+            WriteRange last = ranges.get(ranges.size() - 1);
+            if (last.isSucceeded() && last.getToIndex() == range.getFromIndex()) {
+                ranges.set(ranges.size() - 1, WriteRange.succeeded(last.getFromIndex(), range.getToIndex()));
+                return;
+            }
+        }
+        ranges.add(range);
+    }
+
+    /**
+     * Save or update the entities of one chunk in their own transaction. A
+     * new session is opened even inside a unit of work: joining it would turn
+     * the chunk's commit into a no-op and its failure into a rollback of the
+     * whole unit, while the report says the chunks before it were committed
+     */
+    private void writeChunk(List<Object> chunk, boolean update) throws MyCustomException {
+
+        int writeCount = 0;
+        int batchSize = HibernateProperties.getInsertBatchSize(getHibernateProperties());
+
+        Session session = requireSessionFactory().openSession();
+        Transaction transaction = null;
+        String errorDetails;
+
+        try {
+
+            session.setJdbcBatchSize(batchSize);
+
+            transaction = session.beginTransaction();
+            for (Object entity : chunk) {
+
+                if (update) {
+                    session.update(entity);
+                } else {
+                    session.save(entity);
+                }
+                writeCount++;
+
+                if ((writeCount % batchSize) == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+
+            transaction.commit();
+            return;
+
+        } catch (HibernateException he) {
+
+            errorDetails = "HibernateException occurred writing a chunk of " + chunk.size() + " records: " + he.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception ex) {
+
+            errorDetails = "General exception occurred writing a chunk of " + chunk.size() + " records: " + ex.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw error;
+    }
+
+    /**
+     * Update an entity in the database
+     *
+     * @param entity
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public boolean updateEntity(BaseEntity entity) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        Session session = getSession();
+        Transaction transaction = null;
+        String errorDetails = "";
+        boolean isError = Boolean.TRUE;
+
+        try {
+            transaction = beginTransaction(session);
+            session.update(entity);
+            //retrievedDatabaseModel = (T)getSession().get(persistentClass, objectId);
+            //retrievedDatabaseModel = (T)session.merge(object);
+            //tempSession.update(retrievedDatabaseModel);
+            //retrievedDatabaseModel = dbObject;
+            //tempSession.update(session.merge(retrievedDatabaseModel));
+            //tempSession.update(retrievedDatabaseModel);
+            session.flush();
+            if (!isUnitOfWorkSession(session)) {
+                session.clear();
+            }
+
+            transaction.commit();
+            isError = Boolean.FALSE;
+
+        } catch (HibernateException he) {
+
+            errorDetails = "HibernateException occurred trying to update a record: " + he.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception ex) {
+
+            errorDetails = "General exception occurred trying to update a record: " + ex.toString();
 
             if (transaction != null) {
                 transaction.rollback();
@@ -1069,10 +1893,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateEntity(BaseEntity)", started, error);
         }
 
-        return Boolean.TRUE;
+        return recorded("updateEntity(BaseEntity)", started, Boolean.TRUE);
 
     }
 
@@ -1085,13 +1909,15 @@ public final class CustomHibernate {
      */
     public boolean updateEntity(DBInterface entity) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session tempSession = getSession();
         Transaction transaction = null;
         String errorDetails = "";
         boolean isError = Boolean.TRUE;
 
         try {
-            transaction = tempSession.beginTransaction();
+            transaction = beginTransaction(tempSession);
             tempSession.update(entity);
             //retrievedDatabaseModel = (T)getSession().get(persistentClass, objectId);
             //retrievedDatabaseModel = (T)session.merge(object);
@@ -1124,10 +1950,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateEntity(DBInterface)", started, error);
         }
 
-        return Boolean.TRUE;
+        return recorded("updateEntity(DBInterface)", started, Boolean.TRUE);
     }
 
     /**
@@ -1138,11 +1964,13 @@ public final class CustomHibernate {
      */
     public TbTerminal selectTerminalEntity(final long terminalDeviceId) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         LOGGER.info("Terminal Device ID: " + terminalDeviceId);
 
         if (terminalDeviceId == 0L) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, "invalid terminal device id: " + terminalDeviceId);
-            throw error;
+            throw failed("selectTerminalEntity", started, error);
         }
 
         TbTerminal terminal = null;
@@ -1162,7 +1990,7 @@ public final class CustomHibernate {
             //org.hibernate.Query updateQuery = session.createSQLQuery(sqlQuery);
             final String hqlQuery = "SELECT terminal FROM TbTerminal terminal INNER JOIN FETCH terminal.tbLoopTask loopTask where terminal.id.devId=:terminalDeviceId";
 
-            transaction = tempSession.beginTransaction();
+            transaction = beginTransaction(tempSession);
 
             TypedQuery<TbTerminal> query = tempSession.createQuery(hqlQuery, TbTerminal.class);
             query.setParameter("terminalDeviceId", terminalDeviceId);
@@ -1196,10 +2024,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("selectTerminalEntity", started, error);
         }
 
-        return terminal;
+        return recorded("selectTerminalEntity", started, terminal);
 
     }
 
@@ -1213,6 +2041,8 @@ public final class CustomHibernate {
      */
     public Set<TbTerminal> selectTerminalEntityOLD(long terminalDeviceId, int cstmId) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Set<TbTerminal> terminal = new HashSet<>();
         Session tempSession = getSession();
 
@@ -1222,7 +2052,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = tempSession.beginTransaction();
+            transaction = beginTransaction(tempSession);
 
             String hqlQuery = "SELECT terminal FROM TbTerminal terminal INNER JOIN terminal.tbLoopTask loopTask where terminal.id.devId=:terminalDeviceId AND loopTask.id.cstmId=:cstmId";
             //String sqlQuery = "SELECT * FROM tb_terminal terminal INNER JOIN tb_loop_task task on task.CSTM_ID=terminal.CSTM_ID where terminal.DEV_ID=:terminalDeviceId";
@@ -1236,12 +2066,16 @@ public final class CustomHibernate {
             ScrollableResults scrollableResults = query.scroll(ScrollMode.FORWARD_ONLY);
 
             int count = 0;
-            while (scrollableResults.next()) {
+            try {
+                while (scrollableResults.next()) {
 
-                if (++count > 0 && count % 10 == 0) {
-                    LOGGER.debug("Fetched " + count + " entities");
+                    if (++count > 0 && count % 10 == 0) {
+                        LOGGER.debug("Fetched " + count + " entities");
+                    }
+                    terminal.add((TbTerminal) scrollableResults.get()[0]);
                 }
-                terminal.add((TbTerminal) scrollableResults.get()[0]);
+            } finally {
+                scrollableResults.close();
             }
 
             isError = Boolean.FALSE;
@@ -1271,10 +2105,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("selectTerminalEntityOLD", started, error);
         }
 
-        return terminal;
+        return recorded("selectTerminalEntityOLD", started, terminal);
     }
 
     /**
@@ -1289,6 +2123,8 @@ public final class CustomHibernate {
      */
     public void updateCampaignStatusChangeColumns(CampaignStatus adCampaignStatus, AdSlotsReserve adSlotReserve, String description, int sameStatusPick, LocalDateTime statusChangeTime, long id) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
 
         Transaction transaction = null;
@@ -1297,7 +2133,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginTransaction(session);
 
             String hqlUpdate = "update AdProgram prog set prog.adCampaignStatus = :adCampaignStatus, prog.adSlotReserve = :adSlotReserve, prog.description = :description, prog.sameStatusPick = :sameStatusPick, prog.statusChangeTime = :statusChangeTime where prog.id = :id";
             // or String hqlUpdate = "update Customer set name = :newName where name = :oldName";
@@ -1315,6 +2151,8 @@ public final class CustomHibernate {
             int entitiesUpdated = updateQuery.executeUpdate();
             transaction.commit();
 
+            invalidateQueryResults(session, hqlUpdate);
+
             isError = Boolean.FALSE;
 
         } catch (HibernateException he) {
@@ -1342,8 +2180,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateCampaignStatusChangeColumns", started, error);
         }
+
+        metrics.record("updateCampaignStatusChangeColumns", started, 0L, Boolean.FALSE);
     }
 
     /**
@@ -1357,6 +2197,8 @@ public final class CustomHibernate {
      */
     public void updatePaymentStatusChangeColumns(AdPaymentStatus paymentStatus, String aggregatorPaymentID, String statusDescription, long id) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
 
         Transaction transaction = null;
@@ -1365,7 +2207,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginTransaction(session);
 
             String hqlUpdate = "update AdPaymentDetails pay set pay.paymentStatus = :paymentStatus, pay.aggregatorPaymentID = :aggregatorPaymentID, pay.statusDescription = :statusDescription where pay.id = :id";
             // or String hqlUpdate = "update Customer set name = :newName where name = :oldName";
@@ -1381,6 +2223,8 @@ public final class CustomHibernate {
             int entitiesUpdated = updateQuery.executeUpdate();
             transaction.commit();
 
+            invalidateQueryResults(session, hqlUpdate);
+
             isError = Boolean.FALSE;
 
         } catch (HibernateException he) {
@@ -1410,8 +2254,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updatePaymentStatusChangeColumns", started, error);
         }
+
+        metrics.record("updatePaymentStatusChangeColumns", started, 0L, Boolean.FALSE);
     }
 
     /**
@@ -1422,6 +2268,8 @@ public final class CustomHibernate {
      */
     public void updateCampaignSameStatusColumns(int sameStatusPick, long id) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         LOGGER.info("SAME STATUS INCREMENT: " + sameStatusPick);
 
         Session session = getSession();
@@ -1432,7 +2280,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginTransaction(session);
 
             String hqlUpdate = "update AdProgram prog set prog.sameStatusPick = :sameStatusPick where prog.id = :id";
             // or String hqlUpdate = "update Customer set name = :newName where name = :oldName";
@@ -1446,6 +2294,8 @@ public final class CustomHibernate {
             int entitiesUpdated = updateQuery.executeUpdate();
             transaction.commit();
 
+            invalidateQueryResults(session, hqlUpdate);
+
             isError = Boolean.FALSE;
 
         } catch (HibernateException he) {
@@ -1473,8 +2323,152 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateCampaignSameStatusColumns", started, error);
+        }
+
+        metrics.record("updateCampaignSameStatusColumns", started, 0L, Boolean.FALSE);
+    }
+
+    /**
+     * Apply the AdProgram status updates of a scheduler tick in one
+     * transaction, one statement per distinct set of new values (and chunk of
+     * ids) instead of one statement and transaction per program. The programs
+     * of a status change group each get their own statusChangeTime through a
+     * CASE on the id
+     *
+     * @param batch
+     * @return number of rows updated
+     * @throws MyCustomException
+     */
+    public int updateCampaignColumns(CampaignUpdateBatch batch) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        if (batch.isEmpty()) {
+            return recordedRows("updateCampaignColumns", started, 0);
+        }
+
+        Session session = getSession();
+
+        Transaction transaction = null;
+        String errorDetails;
+
+        String sameStatusUpdate = "update AdProgram prog set prog.sameStatusPick = :sameStatusPick where prog.id in (:ids)";
+
+        try {
+
+            int entitiesUpdated = 0;
+            int statements = 0;
+
+            //the times are bound inside a CASE, where HQL cannot infer their (custom) type from the property
+            Type statusChangeTimeType = ((SessionFactoryImplementor) session.getSessionFactory()).getMetamodel()
+                    .entityPersister(AdProgram.class).getPropertyType("statusChangeTime");
+
+            transaction = beginTransaction(session);
+
+            for (Map.Entry<Integer, List<Long>> group : batch.getSameStatusPicks().entrySet()) {
+                for (List<Long> ids : chunk(group.getValue(), IN_LIST_CHUNK_SIZE)) {
+
+                    TypedQuery updateQuery = session.createQuery(sameStatusUpdate);
+                    updateQuery.setParameter("sameStatusPick", group.getKey());
+                    updateQuery.setParameter("ids", ids);
+
+                    entitiesUpdated += updateQuery.executeUpdate();
+                    statements++;
+                }
+            }
+
+            for (Map.Entry<CampaignUpdateBatch.StatusChange, Map<Long, LocalDateTime>> group : batch.getStatusChanges().entrySet()) {
+
+                CampaignUpdateBatch.StatusChange change = group.getKey();
+                Map<Long, LocalDateTime> statusChangeTimes = group.getValue();
+
+                for (List<Long> ids : chunk(new ArrayList<>(statusChangeTimes.keySet()), STATUS_CHANGE_CHUNK_SIZE)) {
+
+                    //rounded up (repeating the last id) so only a few distinct statements get parsed and cached
+                    int branches = ((ids.size() + STATUS_CHANGE_CASE_STEP - 1) / STATUS_CHANGE_CASE_STEP) * STATUS_CHANGE_CASE_STEP;
+
+                    Query updateQuery = session.createQuery(statusChangeUpdate(branches));
+                    updateQuery.setParameter("adCampaignStatus", change.getCampaignStatus());
+                    updateQuery.setParameter("adSlotReserve", change.getSlotsReserve());
+                    updateQuery.setParameter("description", change.getDescription());
+                    updateQuery.setParameter("sameStatusPick", change.getSameStatusPick());
+
+                    for (int i = 0; i < branches; i++) {
+                        Long id = ids.get(Math.min(i, ids.size() - 1));
+                        updateQuery.setParameter("id" + i, id);
+                        updateQuery.setParameter("statusChangeTime" + i, statusChangeTimes.get(id), statusChangeTimeType);
+                    }
+                    updateQuery.setParameterList("ids", ids);
+
+                    entitiesUpdated += updateQuery.executeUpdate();
+                    statements++;
+                }
+            }
+
+            transaction.commit();
+
+            invalidateQueryResults(session, sameStatusUpdate);
+
+            LOGGER.debug("Campaign columns of " + batch.size() + " programs updated with " + statements + " statements (" + batch.getMergedCount() + " updates merged)");
+
+            return recordedRows("updateCampaignColumns", started, entitiesUpdated);
+
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception while batch updating columns in Campaign table: " + he.toString();
+
+            LOGGER.error(errorDetails);
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+        } catch (Exception e) {
+
+            errorDetails = "General exception while batch updating columns in Campaign table: " + e.toString();
+
+            LOGGER.error(errorDetails);
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("updateCampaignColumns", started, error);
+    }
+
+    /**
+     * update setting the status change columns of up to branches programs,
+     * each with its own statusChangeTime
+     */
+    private static String statusChangeUpdate(int branches) {
+
+        StringBuilder hql = new StringBuilder("update AdProgram prog set prog.adCampaignStatus = :adCampaignStatus, prog.adSlotReserve = :adSlotReserve, prog.description = :description, prog.sameStatusPick = :sameStatusPick, prog.statusChangeTime = case prog.id");
+        for (int i = 0; i < branches; i++) {
+            hql.append(" when :id").append(i).append(" then :statusChangeTime").append(i);
+        }
+        return hql.append(" end where prog.id in (:ids)").toString();
+    }
+
+    /**
+     * Split a list into consecutive sub lists of at most chunkSize elements
+     *
+     * @param <T>
+     * @param values
+     * @param chunkSize
+     * @return
+     */
+    private static <T> List<List<T>> chunk(List<T> values, int chunkSize) {
+
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += chunkSize) {
+            chunks.add(values.subList(from, Math.min(values.size(), from + chunkSize)));
         }
+        return chunks;
     }
 
     /**
@@ -1487,6 +2481,8 @@ public final class CustomHibernate {
      */
     public void updateLoopAssignTask(int assignTaskId, int cstmId, Date versionToUse) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
 
         Transaction transaction;
@@ -1513,6 +2509,8 @@ public final class CustomHibernate {
 
             transaction.commit();
 
+            getQueryResultCache().clear();
+
             isError = Boolean.FALSE;
 
         } catch (HibernateException he) {
@@ -1532,8 +2530,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateLoopAssignTask", started, error);
         }
+
+        metrics.record("updateLoopAssignTask", started, 0L, Boolean.FALSE);
     }
 
     /**
@@ -1546,6 +2546,8 @@ public final class CustomHibernate {
      */
     public void updateTerminalEntity(long assignTaskId, TaskType taskTypeEnum, TbTerminal oldTbTerminal) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
 
         Transaction transaction;
@@ -1613,6 +2615,8 @@ public final class CustomHibernate {
             int updated = query.executeUpdate();
             transaction.commit();
 
+            getQueryResultCache().invalidate(Collections.<Class>singleton(TbTerminal.class));
+
             isError = Boolean.FALSE;
             //SELECT generated_id, row_details FROM temporary_records WHERE generated_id IN  (SELECT generated_id FROM temporary_records GROUP BY generated_id HAVING COUNT(generated_id) =2)
             //Criteria.forClass(bob.class.getName())
@@ -1642,12 +2646,16 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateTerminalEntity(long,TaskType,TbTerminal)", started, error);
         }
+
+        metrics.record("updateTerminalEntity(long,TaskType,TbTerminal)", started, 0L, Boolean.FALSE);
     }
 
     public void updateTerminalEntity(String updateSql) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
 
         Transaction transaction;
@@ -1664,6 +2672,8 @@ public final class CustomHibernate {
             int updated = query.executeUpdate();
             transaction.commit();
 
+            getQueryResultCache().clear();
+
             isError = Boolean.FALSE;
 
         } catch (HibernateException he) {
@@ -1679,11 +2689,15 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("updateTerminalEntity(String)", started, error);
         }
+
+        metrics.record("updateTerminalEntity(String)", started, 0L, Boolean.FALSE);
     }
 
     /**
+     * Reset the assigned task of many terminals, one UPDATE per customer (and
+     * chunk of IN_LIST_CHUNK_SIZE devices) in a single transaction
      *
      * @param taskTypeEnum
      * @param oldTerminalEntityList
@@ -1691,6 +2705,8 @@ public final class CustomHibernate {
      */
     public void bulkUpdateTerminalEntity(TaskType taskTypeEnum, Set<TbTerminal> oldTerminalEntityList) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
 
         Transaction transaction;
@@ -1720,21 +2736,45 @@ public final class CustomHibernate {
                     break;
             }
 
+            //one statement per customer and chunk of devices instead of one per terminal
+            Map<Object, List<Object>> devIdsByCustomer = new LinkedHashMap<>();
             for (TbTerminal oldTbTerminal : oldTerminalEntityList) {
 
-                String sqlQueryString = "UPDATE tb_terminal SET " + taskIdToSet + " = :SET_TASK_ID WHERE CSTM_ID=:CSTM_ID AND DEV_ID = :DEV_ID";
-                //SQLQuery updateQuery = session.createSQLQuery(sqlQueryString);
-                TypedQuery query = tempSession.createNativeQuery(sqlQueryString);
+                Object cstmId = oldTbTerminal.getId().getCstmId();
+                List<Object> devIds = devIdsByCustomer.get(cstmId);
+                if (devIds == null) {
+                    devIds = new ArrayList<>();
+                    devIdsByCustomer.put(cstmId, devIds);
+                }
+                devIds.add(oldTbTerminal.getId().getDevId());
+            }
+
+            String sqlQueryString = "UPDATE tb_terminal SET " + taskIdToSet + " = :SET_TASK_ID WHERE CSTM_ID=:CSTM_ID AND DEV_ID IN (:DEV_IDS)";
+            Object taskIdValue = DbUtils.ZeroToNull(NamedConstants.RESET_LOOP_TASKID);
+
+            int updated = 0;
+            int statements = 0;
 
-                query.setParameter("SET_TASK_ID", DbUtils.ZeroToNull(NamedConstants.RESET_LOOP_TASKID));
-                query.setParameter("CSTM_ID", oldTbTerminal.getId().getCstmId());
-                query.setParameter("DEV_ID", oldTbTerminal.getId().getDevId());
+            for (Map.Entry<Object, List<Object>> customer : devIdsByCustomer.entrySet()) {
+                for (List<Object> devIds : chunk(customer.getValue(), IN_LIST_CHUNK_SIZE)) {
 
-                int updated = query.executeUpdate();
-                LOGGER.debug("Update query executed: " + updated);
+                    NativeQuery query = tempSession.createNativeQuery(sqlQueryString);
+
+                    query.setParameter("SET_TASK_ID", taskIdValue);
+                    query.setParameter("CSTM_ID", customer.getKey());
+                    query.setParameterList("DEV_IDS", devIds);
+
+                    updated += query.executeUpdate();
+                    statements++;
+                }
             }
 
             transaction.commit();
+
+            LOGGER.debug("Terminals updated: " + updated + " of " + oldTerminalEntityList.size() + " in " + statements + " statements");
+
+            getQueryResultCache().invalidate(Collections.<Class>singleton(TbTerminal.class));
+            metrics.record("bulkUpdateTerminalEntity", started, 0L, Boolean.FALSE);
             return;
 
         } catch (HibernateException he) {
@@ -1749,7 +2789,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("bulkUpdateTerminalEntity", started, error);
 
     }
 
@@ -1763,6 +2803,8 @@ public final class CustomHibernate {
      */
     public <BaseEntity> Set<BaseEntity> fetchCorrespondingSet(Class entityType, String setPropertyName) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         //StatelessSession session = getStatelessSession();
         String errorDetails;
         Session session = getSession();
@@ -1772,7 +2814,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
 
             //criteria.add(Restrictions.gt("dealerId", dealerId));
@@ -1789,7 +2831,7 @@ public final class CustomHibernate {
 
             transaction.commit();
 
-            return results;
+            return recorded("fetchCorrespondingSet", started, results);
 
         } catch (HibernateException he) {
 
@@ -1812,7 +2854,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("fetchCorrespondingSet", started, error);
 
     }
 
@@ -1825,6 +2867,22 @@ public final class CustomHibernate {
      * @throws com.library.customexception.MyCustomException
      */
     public <BaseEntity> Set<BaseEntity> fetchBulk(Class entityType) throws MyCustomException {
+        return fetchBulk(entityType, (CacheMode) null);
+    }
+
+    /**
+     * Fetch records matching certain conditions
+     *
+     * @param <BaseEntity>
+     * @param entityType
+     * @param cacheMode how the fetch uses the second level cache, null for
+     * the configured default
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchBulk(Class entityType, CacheMode cacheMode) throws MyCustomException {
+
+        long started = System.nanoTime();
 
         Session session = getSession();
         Transaction transaction = null;
@@ -1837,31 +2895,41 @@ public final class CustomHibernate {
             // Query updateQuery = session.createQuery("from Stock where stockCode = :code ");
             //query.setParameter("code", "7277");
             //List list = updateQuery.list();
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
-            criteria.setCacheMode(CacheMode.REFRESH);
 
             //criteria.addOrder(Order.asc(propertyName));
             // To-Do -> add the other parameters, e.g. orderby, etc
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            if (applyCacheMode(criteria, entityType, cacheMode)) {
+                //a scroll can't be served from the query cache
+                results.addAll(criteria.list());
 
-            int count = 0;
-            while (scrollableResults.next()) {
+            } else {
 
-                if (++count > 0 && count % 10 == 0) {
+                ScrollableResults scrollableResults = scroll(criteria);
 
-                    LOGGER.debug("Fetched " + count + " entities");
-                    session.flush();
-                    session.clear();
-                }
-                results.add((BaseEntity) scrollableResults.get()[0]);
+                int count = 0;
+                try {
+                    while (scrollableResults.next()) {
 
+                        if (++count > 0 && count % 10 == 0 && clearsWhileScrolling(session)) {
+
+                            LOGGER.debug("Fetched " + count + " entities");
+                            session.flush();
+                            session.clear();
+                        }
+                        results.add((BaseEntity) scrollableResults.get()[0]);
+
+                    }
+                } finally {
+                    scrollableResults.close();
+                }
             }
 
             //session.refresh(results);
             transaction.commit();
 
-            return results;
+            return recorded("fetchBulk(Class,CacheMode)", started, results);
 
         } catch (HibernateException he) {
 
@@ -1884,7 +2952,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("fetchBulk(Class,CacheMode)", started, error);
     }
 
     /**
@@ -1898,6 +2966,8 @@ public final class CustomHibernate {
      */
     public <DBInterface> DBInterface fetchEntity(Class entityType, String propertyName, Object propertyValue) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
         Transaction transaction = null;
         String errorDetails = "";
@@ -1906,7 +2976,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
             criteria.add(Restrictions.eq(propertyName, propertyValue));
 
@@ -1916,7 +2986,7 @@ public final class CustomHibernate {
 
             transaction.commit();
             isError = Boolean.FALSE;
-            return result;
+            return recorded("fetchEntity(Class,String,Object)", started, result);
 
         } catch (HibernateException he) {
 
@@ -1940,7 +3010,7 @@ public final class CustomHibernate {
 
         //if (isError) {
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("fetchEntity(Class,String,Object)", started, error);
         //}
 
     }
@@ -1955,6 +3025,8 @@ public final class CustomHibernate {
      */
     public <BaseEntity> BaseEntity fetchEntity(Class entityType, Map<String, Set<Object>> propertyNameValues) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
         Transaction transaction = null;
         String errorDetails = "";
@@ -1963,7 +3035,7 @@ public final class CustomHibernate {
 
         try {
 
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
 
             //criteria.add(Restrictions.gt("dealerId", dealerId));
@@ -1973,98 +3045,7 @@ public final class CustomHibernate {
             // Hibernate will return instances of Dealer, but it will return the same instance several times
             // once per make the dealer has. To avoid this, you must use a distinct root entity transformer
             //criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
-            //propertyNameValues.entrySet().stream().forEach((entry) -> {
-            for (Map.Entry<String, Set<Object>> entry : propertyNameValues.entrySet()) {
-
-                String name = entry.getKey();
-                Set<Object> values = entry.getValue();
-
-                LOGGER.debug("Field Name  : " + name);
-                LOGGER.debug("Field values: " + values);
-
-                //if objects set is empty or contains a '1' - we will select all records
-                if (values == null || values.isEmpty() || values.contains(String.valueOf(1))) {
-
-                    LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
-
-                } else if (name.equals("internalPaymentID")) {
-
-                    Set<String> paymentIds = new HashSet<>();
-                    for (Object object : values) {
-
-                        String paymentId = (String) object;
-                        paymentIds.add(paymentId);
-                    }
-                    criteria.add(Restrictions.in(name, paymentIds));
-
-                } else if (name.equals("userId")) {
-
-                    Set<String> userIds = new HashSet<>();
-                    for (Object object : values) {
-
-                        String userId = (String) object;
-                        userIds.add(userId);
-                    }
-                    criteria.add(Restrictions.in(name, userIds));
-
-                } else if (name.equals("password")) {
-
-                    Set<String> passwords = new HashSet<>();
-                    for (Object object : values) {
-
-                        String password = (String) object;
-                        passwords.add(password);
-                    }
-                    criteria.add(Restrictions.in(name, passwords));
-
-                } else if (name.equals("adUsers.userId")) {
-
-                    Set<String> userIds = new HashSet<>();
-                    for (Object object : values) {
-
-                        String userId = (String) object;
-                        userIds.add(userId);
-                    }
-                    criteria.add(Restrictions.in(name, userIds));
-
-                } else if (name.equals("displayDate")) {
-
-                    Set<LocalDate> displayDates = new HashSet<>();
-                    for (Object object : values) {
-
-                        //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                        LocalDate date = new LocalDate(object);
-                        displayDates.add(date);
-                    }
-                    criteria.add(Restrictions.in(name, displayDates));
-
-                } else if (name.equals("id")) {
-
-                    Set<Long> ids = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        ids.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, ids));
-
-                } else if (name.equals("isUploadedToDSM")) {
-
-                    Set<Boolean> vals = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        boolean val = (Boolean) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else {
-                    criteria.add(Restrictions.in(name, values));
-                }
-
-            }
+            applyRestrictions(criteria, entityType, propertyNameValues);
 
             criteria.setMaxResults(1);
 
@@ -2095,10 +3076,10 @@ public final class CustomHibernate {
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("fetchEntity(Class,Map)", started, error);
         }
 
-        return result;
+        return recorded("fetchEntity(Class,Map)", started, result);
     }
 
     /**
@@ -2110,110 +3091,17 @@ public final class CustomHibernate {
      */
     public boolean isRecordExists(Class entityType, Map<String, Object> propertyNameValues) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
         Transaction transaction = null;
         String errorDetails;
 
         try {
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
 
-            //propertyNameValues.entrySet().stream().forEach((entry) -> {
-            for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
-
-                String name = entry.getKey();
-                Set<Object> values = (Set<Object>) entry.getValue();
-
-                LOGGER.debug("Field Name  : " + name);
-                LOGGER.debug("Field values: " + values);
-
-                //if objects set is empty or contains a '1' - we will select all records
-                if (values == null || values.isEmpty() || values.contains(String.valueOf(1))) {
-
-                    LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
-
-                } else if (name.equals("displayDate")) {
-
-                    Set<LocalDate> displayDates = new HashSet<>();
-                    for (Object object : values) {
-
-                        //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                        LocalDate date = new LocalDate(object);
-                        displayDates.add(date);
-                    }
-                    criteria.add(Restrictions.in(name, displayDates));
-
-                } else if (name.equals("id")) {
-
-                    Set<Long> ids = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        ids.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, ids));
-
-                } else if (name.equals("id.fileId")) {
-
-                    Set<Long> fileIds = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        fileIds.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, fileIds));
-
-                } else if (name.equals("isUploadedToDSM")) {
-
-                    Set<Boolean> vals = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        boolean val = (Boolean) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else if (name.equals("id.taskId")) {
-
-                    Set<Integer> vals = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        int val = (Integer) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else if (name.equals("id.cstmId")) {
-
-                    Set<Integer> vals = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        int val = (Integer) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else if (name.equals("cstmId")) {
-
-                    Set<Integer> vals = new HashSet<>();
-
-                    for (Object object : values) {
-
-                        int val = (Integer) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else {
-                    criteria.add(Restrictions.in(name, values));
-                }
-
-            }
+            applyRestrictions(criteria, entityType, propertyNameValues);
 
             criteria.setProjection(Projections.rowCount());
             long count = (Long) criteria.uniqueResult();
@@ -2223,10 +3111,10 @@ public final class CustomHibernate {
             LOGGER.debug("Records count is: " + count);
 
             if (count != 0) {
-                return Boolean.TRUE;
+                return recorded("isRecordExists", started, Boolean.TRUE);
             }
 
-            return Boolean.FALSE;
+            return recorded("isRecordExists", started, Boolean.FALSE);
 
         } catch (HibernateException he) {
 
@@ -2249,7 +3137,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("isRecordExists", started, error);
 
     }
 
@@ -2263,86 +3151,25 @@ public final class CustomHibernate {
      */
     public Number countRows(Class entityType, Map<String, Object> propertyNameValues) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         Session session = getSession();
         Transaction transaction = null;
         String errorDetails;
 
         try {
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
 
             if (propertyNameValues != null) {
-
-                //propertyNameValues.entrySet().stream().forEach((entry) -> {
-                for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
-
-                    String name = entry.getKey();
-                    Set<Object> values = (Set<Object>) entry.getValue();
-
-                    LOGGER.debug("Field Name  : " + name);
-                    LOGGER.debug("Field values: " + values);
-
-                    //if objects set is empty or contains a '1' - we will select all records
-                    if (values == null || values.isEmpty() || values.contains(String.valueOf(1))) {
-
-                        LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
-
-                    } else if (name.equals("displayDate")) {
-
-                        Set<LocalDate> displayDates = new HashSet<>();
-                        for (Object object : values) {
-
-                            //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                            LocalDate date = new LocalDate(object);
-                            displayDates.add(date);
-                        }
-                        criteria.add(Restrictions.in(name, displayDates));
-
-                    } else if (name.equals("id")) {
-
-                        Set<Long> ids = new HashSet<>();
-
-                        for (Object object : values) {
-
-                            long val = GeneralUtils.convertObjectToLong(object);
-                            ids.add(val);
-                        }
-                        criteria.add(Restrictions.in(name, ids));
-
-                    } else if (name.equals("isUploadedToDSM")) {
-
-                        Set<Boolean> vals = new HashSet<>();
-
-                        for (Object object : values) {
-
-                            boolean val = (Boolean) object;
-                            vals.add(val);
-                        }
-                        criteria.add(Restrictions.in(name, vals));
-
-                    } else if (name.equals("cstmId")) {
-
-                        Set<Integer> vals = new HashSet<>();
-
-                        for (Object object : values) {
-
-                            int val = (Integer) object;
-                            vals.add(val);
-                        }
-                        criteria.add(Restrictions.in(name, vals));
-
-                    } else {
-                        criteria.add(Restrictions.in(name, values));
-                    }
-
-                }
+                applyRestrictions(criteria, entityType, propertyNameValues);
             }
 
             criteria.setProjection(Projections.rowCount());
             Number count = (Number) criteria.uniqueResult();
 
             transaction.commit();
-            return count;
+            return recorded("countRows", started, count);
 
         } catch (HibernateException he) {
 
@@ -2365,7 +3192,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("countRows", started, error);
     }
 
     /**
@@ -2380,6 +3207,8 @@ public final class CustomHibernate {
      */
     public Number sumColumn(Class entityType, String columnName, Map<String, Object> propertyNameValues) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         //.setProjection(Projections.sqlProjection("sum(cast(amount as signed)* direction) as amntDir", new String[] {"amntDir"} , new Type[] {Hibernate.DOUBLE}));
         //http://stackoverflow.com/questions/4624807/using-sum-in-hibernate-criteria
         Session session = getSession();
@@ -2387,74 +3216,11 @@ public final class CustomHibernate {
         String errorDetails;
 
         try {
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
 
             if (propertyNameValues != null) {
-
-                //propertyNameValues.entrySet().stream().forEach((entry) -> {
-                for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
-
-                    String name = entry.getKey();
-                    Set<Object> values = (Set<Object>) entry.getValue();
-
-                    LOGGER.debug("Field Name  : " + name);
-                    LOGGER.debug("Field values: " + values);
-
-                    //if objects set is empty or contains a '1' - we will select all records
-                    if (values == null || values.isEmpty() || values.contains(String.valueOf(1))) {
-
-                        LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
-
-                    } else if (name.equals("displayDate")) {
-
-                        Set<LocalDate> displayDates = new HashSet<>();
-                        for (Object object : values) {
-
-                            //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                            LocalDate date = new LocalDate(object);
-                            displayDates.add(date);
-                        }
-                        criteria.add(Restrictions.in(name, displayDates));
-
-                    } else if (name.equals("id")) {
-
-                        Set<Long> ids = new HashSet<>();
-
-                        for (Object object : values) {
-
-                            long val = GeneralUtils.convertObjectToLong(object);
-                            ids.add(val);
-                        }
-                        criteria.add(Restrictions.in(name, ids));
-
-                    } else if (name.equals("isUploadedToDSM")) {
-
-                        Set<Boolean> vals = new HashSet<>();
-
-                        for (Object object : values) {
-
-                            boolean val = (Boolean) object;
-                            vals.add(val);
-                        }
-                        criteria.add(Restrictions.in(name, vals));
-
-                    } else if (name.equals("cstmId")) {
-
-                        Set<Integer> vals = new HashSet<>();
-
-                        for (Object object : values) {
-
-                            int val = (Integer) object;
-                            vals.add(val);
-                        }
-                        criteria.add(Restrictions.in(name, vals));
-
-                    } else {
-                        criteria.add(Restrictions.in(name, values));
-                    }
-
-                }
+                applyRestrictions(criteria, entityType, propertyNameValues);
             }
 
             criteria.setProjection((Projections.sum(columnName)));
@@ -2462,7 +3228,7 @@ public final class CustomHibernate {
 
             transaction.commit();
 
-            return sumOfColumn;
+            return recorded("sumColumn", started, sumOfColumn);
 
         } catch (HibernateException he) {
 
@@ -2485,7 +3251,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("sumColumn", started, error);
     }
 
     /**
@@ -2498,7 +3264,25 @@ public final class CustomHibernate {
      * @throws com.library.customexception.MyCustomException
      */
     public <BaseEntity> Set<BaseEntity> fetchBulk(Class entityType, Map<String, Object> propertyNameValues) throws MyCustomException {
+        return fetchBulk(entityType, propertyNameValues, (CacheMode) null);
+    }
+
+    /**
+     * Fetch records matching certain conditions
+     *
+     * @param <BaseEntity>
+     * @param entityType
+     * @param propertyNameValues
+     * @param cacheMode how the fetch uses the second level cache, null for
+     * the configured default
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchBulk(Class entityType, Map<String, Object> propertyNameValues, CacheMode cacheMode) throws MyCustomException {
 
+        long started = System.nanoTime();
+
+        SlowQueryRecorder slowQueries = getSlowQueryRecorder();
         Session session = getSession();
         Transaction transaction = null;
 
@@ -2508,167 +3292,45 @@ public final class CustomHibernate {
 
         try {
 
+            slowQueries.begin();
+
 //            // Create CriteriaBuilder
 //CriteriaBuilder builder = session.getCriteriaBuilder();
 //
 //// Create CriteriaQuery
 //CriteriaQuery<BaseEntity> criteria = builder.createQuery(entityType);
-            transaction = session.beginTransaction();
+            transaction = beginReadOnlyTransaction(session);
             Criteria criteria = session.createCriteria(entityType);
-            criteria.setCacheMode(CacheMode.REFRESH);
             //adding ordering
             criteria.addOrder(Order.desc("id"));
 
-            //propertyNameValues.entrySet().stream().forEach((entry) -> {
-            for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
-
-                String name = entry.getKey();
-                Set<Object> objects = (Set<Object>) entry.getValue();
-
-                LOGGER.debug("Field Name  : " + name);
-                LOGGER.debug("Field values: " + objects);
-
-                //if objects set is empty or contains a '1' - we will select all records
-                if (objects == null || objects.isEmpty() || objects.contains("1")) {
-                    LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
-
-                } else if (name.equals("campaignId")) {
-                    Set<Integer> values = new HashSet<>();
-                    for (Object object : objects) {
-
-                        //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                        int campaignId = GeneralUtils.convertObjectToInteger(object);
-                        values.add(campaignId);
-                    }
-                    criteria.add(Restrictions.in(name, values));
-
-                } else if (name.equals("displayDate")) {
-                    Set<LocalDate> displayDates = new HashSet<>();
-                    for (Object object : objects) {
-
-                        //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                        LocalDate date = new LocalDate(object);
-                        displayDates.add(date);
-                    }
-                    criteria.add(Restrictions.in(name, displayDates));
-
-                } else if (name.equals("id")) {
-
-                    Set<Long> ids = new HashSet<>();
-
-                    for (Object object : objects) {
-
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        ids.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, ids));
-
-                } else if (name.equals("isUploadedToDSM")) {
-
-                    Set<Boolean> vals = new HashSet<>();
-
-                    for (Object object : objects) {
-
-                        boolean val = (Boolean) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else if (name.equals("fetchStatus")) {
-
-                    Set<FetchStatus> vals = new HashSet<>();
-
-                    for (Object object : objects) {
-
-                        //FetchStatus val = FetchStatus.convertToEnum((String) object); //WORKS WITH external DBAdapter
-                        FetchStatus val = (FetchStatus) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else if (name.equals("paymentStatus")) {
-
-                    Set<AdPaymentStatus> vals = new HashSet<>();
-
-                    for (Object object : objects) {
-
-                        //AdPaymentStatus val = AdPaymentStatus.valueOf((String) object);
-                        AdPaymentStatus val = (AdPaymentStatus) object;
-                        vals.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, vals));
-
-                } else if (name.equals("audienceTypes.id")) {
-
-                    Set<Long> vals = new HashSet<>();
-
-                    for (Object object : objects) {
-
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        vals.add(val);
-                    }
-
-                    LOGGER.debug("aud values here: " + Arrays.toString(vals.toArray()));
-                    
-                    criteria.createAlias("audienceTypes", "audtype") //without this, keeps throwing error - org.hibernate.QueryException: could not resolve property: audienceTypes.audienceCode of: com.library.datamodel.model.v1_0.AdScreen 
-                            .add(Restrictions.in("audtype.id", vals));
-
-                } else if (name.equals("businessServices.id")) {
-
-                    Set<Long> vals = new HashSet<>();
-
-                    for (Object object : objects) {
-
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        vals.add(val);
-                    }
-                    
-                    LOGGER.debug("businessServices values here: " + Arrays.toString(vals.toArray()));
-                    
-                    criteria.createAlias("businessServices", "services") //without this, keeps throwing error - org.hibernate.QueryException: could not resolve property: audienceTypes.audienceCode of: com.library.datamodel.model.v1_0.AdScreen 
-                            .add(Restrictions.in("services.id", vals));
-
-                } else if (name.equals("adTextPrograms.campaignId")) {
-                    Set<Integer> values = new HashSet<>();
-                    for (Object object : objects) {
-
-                        int campaignId = GeneralUtils.convertObjectToInteger(object);
-                        values.add(campaignId);
-                    }
-                    criteria.createAlias("adTextPrograms", "programs")
-                            .add(Restrictions.in("programs.campaignId", values));
-
-                } else if (name.equals("adResourcePrograms.campaignId")) {
-                    Set<Integer> values = new HashSet<>();
-                    for (Object object : objects) {
-
-                        int campaignId = GeneralUtils.convertObjectToInteger(object);
-                        values.add(campaignId);
-                    }
-                    criteria.createAlias("adResourcePrograms", "programs")
-                            .add(Restrictions.in("programs.campaignId", values));
-
-                } else {
-                    criteria.add(Restrictions.in(name, objects));
-                }
-
-            }
+            applyRestrictions(criteria, entityType, propertyNameValues);
 
 //            if(!isFetchAll){
 //                criteria.add(Restrictions.allEq(propertyNameValues));
 //            }
             //criteria.addOrder(Order.asc(propertyName)); // To-Do -> add the other parameters, e.g. orderby, etc
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            if (applyCacheMode(criteria, entityType, cacheMode)) {
+                results.addAll(criteria.list());
 
-            int count = 0;
-            while (scrollableResults.next()) {
-                if (++count > 0 && count % 10 == 0) {
-                    LOGGER.debug("Fetched " + count + " entities");
-                    session.flush();
-                    session.clear();
-                }
-                results.add((BaseEntity) scrollableResults.get()[0]);
+            } else {
+
+                ScrollableResults scrollableResults = scroll(criteria);
+
+                int count = 0;
+                try {
+                    while (scrollableResults.next()) {
+                        if (++count > 0 && count % 10 == 0 && clearsWhileScrolling(session)) {
+                            LOGGER.debug("Fetched " + count + " entities");
+                            session.flush();
+                            session.clear();
+                        }
+                        results.add((BaseEntity) scrollableResults.get()[0]);
 
+                    }
+                } finally {
+                    scrollableResults.close();
+                }
             }
 
             //session.refresh(results);
@@ -2704,72 +3366,712 @@ public final class CustomHibernate {
         } finally {
             LOGGER.warn("Closing session..");
             closeSession(session);
+            slowQueries.end("fetchBulk(Class,Map,CacheMode)", entityType.getName(), started, propertyNameValues, results.size(), isError ? errorDetails : null);
         }
 
         if (isError) {
             MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-            throw error;
+            throw failed("fetchBulk(Class,Map,CacheMode)", started, error);
         }
 
-        return results;
+        return recorded("fetchBulk(Class,Map,CacheMode)", started, results);
     }
 
     /**
+     * Fetch a page of records matching certain conditions, keyed on the "id"
+     * property instead of an offset so that deep pages cost the same as the
+     * first. Takes the same property name/values map as
+     * fetchBulk(Class, Map), including the alias-join properties.
      *
-     * @param <BaseEntity>
+     * The page ids are selected first (DISTINCT, so collection joins cannot
+     * shorten a page), the entities are then loaded by id.
+     *
+     * @param <T>
+     * @param entityType entity with a numeric "id" property
+     * @param propertyNameValues restrictions, may be null
+     * @param lastSeenId key from a previous page (getNextKey() or
+     * getPreviousKey()), null to start from the newest record
+     * @param pageSize
+     * @param direction
+     * @return
+     * @throws MyCustomException
+     */
+    public <T> KeysetPage<T> fetchBulkPage(Class<T> entityType, Map<String, Object> propertyNameValues, Object lastSeenId, int pageSize, KeysetPage.Direction direction) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        Session session = getSession();
+        Transaction transaction = null;
+        String errorDetails;
+
+        try {
+
+            transaction = beginReadOnlyTransaction(session);
+
+            boolean isForward = (direction != KeysetPage.Direction.PREVIOUS);
+
+            Criteria idCriteria = session.createCriteria(entityType);
+            if (propertyNameValues != null) {
+                applyRestrictions(idCriteria, entityType, propertyNameValues);
+            }
+            if (lastSeenId != null) {
+                long key = GeneralUtils.convertObjectToLong(lastSeenId);
+                idCriteria.add(isForward ? Restrictions.lt("id", key) : Restrictions.gt("id", key));
+            }
+            idCriteria.setProjection(Projections.distinct(Projections.property("id")));
+            idCriteria.addOrder(isForward ? Order.desc("id") : Order.asc("id"));
+            idCriteria.setMaxResults(pageSize + 1);
+
+            List<Object> ids = idCriteria.list();
+
+            boolean hasMore = ids.size() > pageSize;
+            if (hasMore) {
+                ids = new ArrayList<>(ids.subList(0, pageSize));
+            }
+            if (!isForward) {
+                Collections.reverse(ids);
+            }
+
+            List<T> results = new ArrayList<>();
+            if (!ids.isEmpty()) {
+                Criteria criteria = session.createCriteria(entityType);
+                criteria.add(Restrictions.in("id", ids));
+                criteria.addOrder(Order.desc("id"));
+                results = criteria.list();
+            }
+
+            transaction.commit();
+
+            Long previousKey = ids.isEmpty() ? null : GeneralUtils.convertObjectToLong(ids.get(0));
+            Long nextKey = ids.isEmpty() ? null : GeneralUtils.convertObjectToLong(ids.get(ids.size() - 1));
+
+            return recorded("fetchBulkPage", started, new KeysetPage<>(results, previousKey, nextKey, hasMore, direction));
+
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception fetching page of: " + entityType.getName() + " after id: " + lastSeenId + " - " + he.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception e) {
+
+            errorDetails = "General exception fetching page of: " + entityType.getName() + " after id: " + lastSeenId + " - " + e.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("fetchBulkPage", started, error);
+    }
+
+    /**
+     * Fetch a page of entities with a named query, keyed on the entity id.
+     * The named query must restrict and order on its id with a
+     * ":lastSeenId" parameter, e.g.
+     * "... WHERE sched.id &lt; :lastSeenId ORDER BY sched.id DESC"
+     *
+     * Direction.PREVIOUS runs the named query of the same name suffixed
+     * ".previous" instead, which must page the other way, e.g.
+     * "... WHERE sched.id &gt; :lastSeenId ORDER BY sched.id ASC". Its page
+     * is returned highest id first as well.
+     *
+     * @param <T>
+     * @param namedQuery
+     * @param propertyNameValues list parameters, as for
+     * fetchEntities(String, Map)
+     * @param lastSeenId key from a previous page (getNextKey() or
+     * getPreviousKey()), null to start from the newest (NEXT) or oldest
+     * (PREVIOUS) record
+     * @param pageSize
+     * @param direction
+     * @return
+     * @throws MyCustomException
+     */
+    public <T> KeysetPage<T> fetchEntitiesPage(String namedQuery, Map<String, Object> propertyNameValues, Object lastSeenId, int pageSize, KeysetPage.Direction direction) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        Session session = getSession();
+        Transaction transaction = null;
+        String queryString = "";
+        String errorDetails;
+
+        try {
+
+            transaction = beginReadOnlyTransaction(session);
+
+            boolean isForward = (direction != KeysetPage.Direction.PREVIOUS);
+            String pageQuery = isForward ? namedQuery : namedQuery + PREVIOUS_PAGE_QUERY_SUFFIX;
+
+            Query<T> query = session.getNamedQuery(pageQuery);
+            queryString = query.getQueryString();
+
+            if (propertyNameValues != null) {
+                applyNamedQueryParameters(pageQuery, query, propertyNameValues);
+            }
+            if (lastSeenId == null) {
+                query.setParameter("lastSeenId", isForward ? Long.MAX_VALUE : Long.MIN_VALUE);
+            } else {
+                query.setParameter("lastSeenId", GeneralUtils.convertObjectToLong(lastSeenId));
+            }
+            query.setMaxResults(pageSize + 1);
+
+            List<T> results = query.list();
+
+            boolean hasMore = results.size() > pageSize;
+            if (hasMore) {
+                results = new ArrayList<>(results.subList(0, pageSize));
+            }
+            if (!isForward) {
+                results = new ArrayList<>(results);
+                Collections.reverse(results);
+            }
+
+            Long previousKey = null;
+            Long nextKey = null;
+            if (!results.isEmpty()) {
+                previousKey = GeneralUtils.convertObjectToLong(session.getIdentifier(results.get(0)));
+                nextKey = GeneralUtils.convertObjectToLong(session.getIdentifier(results.get(results.size() - 1)));
+            }
+
+            transaction.commit();
+
+            return recorded("fetchEntitiesPage", namedQuery, started, new KeysetPage<>(results, previousKey, nextKey, hasMore, direction));
+
+        } catch (HibernateException he) {
+
+            errorDetails = "HibernateException occurred trying to fetch page with query: " + queryString + " - " + he.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception e) {
+
+            errorDetails = "General exception occurred trying to fetch page with query: " + queryString + " - " + e.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("fetchEntitiesPage", namedQuery, started, error);
+    }
+
+    /**
+     * Add the restrictions of a property name/values map to the criteria. The
+     * values are converted to the property types bound in the filter converter
+     * registry, and paths through an association (e.g. "audienceTypes.id") are
+     * joined through an alias named after the association ("audienceTypes_").
+     * A property whose value set is empty or contains "1" is not restricted.
+     *
+     * @param criteria
+     * @param entityType
+     * @param propertyNameValues
+     */
+    private void applyRestrictions(Criteria criteria, Class entityType, Map<String, ?> propertyNameValues) {
+
+        Map<String, String> aliases = new LinkedHashMap<>();
+        List<Criterion> restrictions = restrictionsOf(entityType, propertyNameValues, aliases);
+
+        for (Map.Entry<String, String> alias : aliases.entrySet()) {
+            criteria.createAlias(alias.getKey(), alias.getValue());
+        }
+        for (Criterion restriction : restrictions) {
+            criteria.add(restriction);
+        }
+    }
+
+    /**
+     * Same as applyRestrictions(Criteria, Class, Map), for a subquery
+     *
+     * @param criteria
+     * @param entityType
+     * @param propertyNameValues
+     */
+    private void applyRestrictions(DetachedCriteria criteria, Class entityType, Map<String, ?> propertyNameValues) {
+
+        Map<String, String> aliases = new LinkedHashMap<>();
+        List<Criterion> restrictions = restrictionsOf(entityType, propertyNameValues, aliases);
+
+        for (Map.Entry<String, String> alias : aliases.entrySet()) {
+            criteria.createAlias(alias.getKey(), alias.getValue());
+        }
+        for (Criterion restriction : restrictions) {
+            criteria.add(restriction);
+        }
+    }
+
+    /**
+     * Restrictions of a property name/values map, see
+     * applyRestrictions(Criteria, Class, Map)
+     *
+     * @param entityType
+     * @param propertyNameValues
+     * @param aliases filled with the association paths to join and their alias
+     * @return
+     */
+    private List<Criterion> restrictionsOf(Class entityType, Map<String, ?> propertyNameValues, Map<String, String> aliases) {
+
+        FilterConverterRegistry registry = getFilterConverterRegistry();
+        List<Criterion> restrictions = new ArrayList<>();
+
+        for (Map.Entry<String, ?> entry : propertyNameValues.entrySet()) {
+
+            String name = entry.getKey();
+            Set<Object> values = (Set<Object>) entry.getValue();
+
+            LOGGER.debug("Field Name  : " + name);
+            LOGGER.debug("Field values: " + values);
+
+            //if objects set is empty or contains a '1' - we will select all records
+            if (values == null || values.isEmpty() || values.contains(String.valueOf(1))) {
+                LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
+                continue;
+            }
+
+            String propertyPath = name;
+            String joinPath = registry.getJoinPath(entityType, name);
+
+            if (joinPath != null) {
+                //without the alias Criteria can't resolve properties across the association
+                String alias = joinPath.replace('.', '_') + "_";
+                aliases.put(joinPath, alias);
+                propertyPath = alias + name.substring(joinPath.length());
+            }
+
+            restrictions.add(Restrictions.in(propertyPath, registry.convertAll(entityType, name, values)));
+        }
+        return restrictions;
+    }
+
+    /**
+     *
+     * @param <BaseEntity>
+     * @param entityType
+     * @param propertyNameValues
+     * @return
+     * @throws MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchBulk_TempSession(Class entityType, Map<String, Object[]> propertyNameValues) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        StatelessSession session = getStatelessSession();
+
+        Set<BaseEntity> results = new HashSet<>();
+        String errorDetails;
+
+        try {
+
+            Criteria criteria = session.createCriteria(entityType);
+
+            // propertyNameValues.entrySet().stream().forEach((entry) -> {
+            for (Map.Entry<String, Object[]> entry : propertyNameValues.entrySet()) {
+
+                String name = entry.getKey();
+                Object[] values = entry.getValue();
+
+                //criteria.add(Restrictions.in(name, objects)); //un-c0mment and sort out errors when r3ady
+            }
+
+//            if(!isFetchAll){
+//                criteria.add(Restrictions.allEq(propertyNameValues));
+//            }
+            //criteria.addOrder(Order.asc(propertyName));
+            // To-Do -> add the other parameters, e.g. orderby, etc
+            ScrollableResults scrollableResults = scroll(criteria);
+
+            int count = 0;
+            try {
+                while (scrollableResults.next()) {
+                    if (++count > 0 && count % 10 == 0) {
+                        LOGGER.debug("Fetched " + count + " entities");
+                    }
+                    results.add((BaseEntity) scrollableResults.get()[0]);
+
+                }
+            } finally {
+                scrollableResults.close();
+            }
+
+            return recorded("fetchBulk_TempSession", started, results);
+
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
+
+        } catch (Exception e) {
+
+            errorDetails = "hibernate exception Fetching records from the database: " + e.toString();
+
+        } finally {
+            closeSession(session);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("fetchBulk_TempSession", started, error);
+    }
+
+    /**
+     * fetch bulk records that have a given property value
+     *
+     * @param <DBInterface>
+     * @param entityType
+     * @param propertyName
+     * @param propertyValue
+     * @return bulk of records fetched
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <DBInterface> Set<DBInterface> fetchBulk(Class<DBInterface> entityType, String propertyName, Object propertyValue) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        StatelessSession tempSession = getStatelessSession();
+
+        String errorDetails;
+        try {
+
+            Criteria criteria = tempSession.createCriteria(entityType);
+            criteria.add(Restrictions.eq(propertyName, propertyValue));
+
+            ScrollableResults scrollableResults = scroll(criteria);
+
+            int count = 0;
+            Set<DBInterface> fetchedEntities = new HashSet<>();
+            try {
+                while (scrollableResults.next()) {
+
+                    if ((count > 0) && (count % 10 == 0)) {
+                        LOGGER.debug("Fetched " + count + " entities");
+                    }
+                    count++;
+                    fetchedEntities.add((DBInterface) scrollableResults.get()[0]);
+
+                }
+            } finally {
+                scrollableResults.close();
+            }
+            return recorded("fetchBulk(Class,String,Object)", started, fetchedEntities);
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
+        } catch (Exception e) {
+
+            errorDetails = "General exception Fetching records from the database: " + e.toString();
+        } finally {
+            closeSession(tempSession);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("fetchBulk(Class,String,Object)", started, error);
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param entityType
+     * @return
+     * @throws com.library.customexception.MyCustomException
+     */
+    public <T> Set<T> fetchBulkStateless(Class<T> entityType) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        StatelessSession tempSession = getStatelessSession();
+        String errorDetails;
+
+        try {
+
+            Criteria criteria = tempSession.createCriteria(entityType);
+
+            ScrollableResults scrollableResults = scroll(criteria);
+
+            int count = 0;
+            Set<T> fetchedEntities = new HashSet<>();
+            try {
+                while (scrollableResults.next()) {
+
+                    if ((count > 0) && (count % 10 == 0)) {
+                        LOGGER.debug("Fetched " + count + " entities");
+                    }
+                    count++;
+                    fetchedEntities.add((T) scrollableResults.get()[0]);
+
+                }
+            } finally {
+                scrollableResults.close();
+            }
+            return recorded("fetchBulkStateless", started, fetchedEntities);
+
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
+        } catch (Exception e) {
+
+            errorDetails = "General exception Fetching records from the database: " + e.toString();
+        } finally {
+            closeSession(tempSession);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("fetchBulkStateless", started, error);
+    }
+
+    /**
+     * Stream all records of an entity to a handler instead of collecting them
+     * in a Set. A stateless session is used so nothing is cached and heap
+     * stays constant whatever the size of the table; the session is only open
+     * for the duration of the scroll.
+     *
+     * @param <T>
+     * @param entityType
+     * @param handler
+     * @return number of rows handed to the handler
+     * @throws MyCustomException
+     */
+    public <T> int streamBulk(Class<T> entityType, RowHandler<T> handler) throws MyCustomException {
+
+        return streamBulk(entityType, null, handler);
+    }
+
+    /**
+     * Stream records matching certain conditions to a handler, newest (by id)
+     * first. Takes the same property name/values map as
+     * fetchBulk(Class, Map).
+     *
+     * The restrictions go in a DISTINCT id subquery, so the alias joins on
+     * collections cannot hand the same record to the handler more than once.
+     *
+     * @param <T>
+     * @param entityType
+     * @param propertyNameValues restrictions, may be null to stream all
+     * @param handler
+     * @return number of rows handed to the handler
+     * @throws MyCustomException
+     */
+    public <T> int streamBulk(Class<T> entityType, Map<String, Object> propertyNameValues, RowHandler<T> handler) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        StatelessSession tempSession = getStatelessSession();
+        String errorDetails;
+
+        try {
+
+            Criteria criteria = tempSession.createCriteria(entityType);
+
+            if (propertyNameValues != null) {
+                DetachedCriteria idCriteria = DetachedCriteria.forClass(entityType);
+                applyRestrictions(idCriteria, entityType, propertyNameValues);
+                idCriteria.setProjection(Projections.distinct(Projections.property("id")));
+
+                criteria.add(Subqueries.propertyIn("id", idCriteria));
+                criteria.addOrder(Order.desc("id"));
+            }
+
+            return recordedRows("streamBulk", started, scrollToHandler(streamScroll(criteria), handler));
+
+        } catch (MyCustomException ex) {
+            throw ex;
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception streaming records from the database: " + he.toString();
+        } catch (Exception e) {
+
+            errorDetails = "General exception streaming records from the database: " + e.toString();
+        } finally {
+            closeSession(tempSession);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("streamBulk", started, error);
+    }
+
+    /**
+     * Stream a single column of all records to a handler
+     *
+     * @param <T>
+     * @param entityType
+     * @param columToFetch
+     * @param handler
+     * @return number of rows handed to the handler
+     * @throws MyCustomException
+     */
+    public <T> int streamOnlyColumn(Class entityType, String columToFetch, RowHandler<T> handler) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        StatelessSession tempSession = getStatelessSession();
+        String errorDetails;
+
+        try {
+
+            Criteria criteria = tempSession.createCriteria(entityType);
+            criteria.setProjection(Projections.property(columToFetch));
+
+            return recordedRows("streamOnlyColumn", started, scrollToHandler(streamScroll(criteria), handler));
+
+        } catch (MyCustomException ex) {
+            throw ex;
+        } catch (HibernateException he) {
+
+            errorDetails = "hibernate exception streaming column: " + columToFetch + " from the database: " + he.toString();
+        } catch (Exception e) {
+
+            errorDetails = "General exception streaming column: " + columToFetch + " from the database: " + e.toString();
+        } finally {
+            closeSession(tempSession);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("streamOnlyColumn", started, error);
+    }
+
+    /**
+     * Read all records of an entity in parallel. The "id" range is split into
+     * partitions and each partition is scrolled on its own StatelessSession
+     * on a bounded executor; the number of threads (and so connections) is
+     * capped at sghibernate.parallel.max_threads, by default the pool size.
+     *
+     * The handler is called concurrently from several threads and must be
+     * thread-safe. Returning false from it stops only the current partition.
+     *
+     * @param <T>
+     * @param entityType entity with a numeric, non-negative "id" property
+     * @param partitions number of id ranges to split the table into
+     * @param handler
+     * @return number of rows handed to the handler
+     * @throws MyCustomException
+     */
+    public <T> int fetchBulkParallel(final Class<T> entityType, int partitions, final RowHandler<T> handler) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        long[] bounds = fetchIdBounds(entityType);
+
+        if (bounds == null) {
+            return recordedRows("fetchBulkParallel", started, 0);
+        }
+
+        long minId = bounds[0];
+        long maxId = bounds[1];
+        int parts = (int) Math.max(1L, Math.min((long) partitions, maxId - minId + 1));
+        long step = (maxId / parts) - (minId / parts) + 1;
+
+        LOGGER.debug("Reading " + entityType.getSimpleName() + " ids [" + minId + ", " + maxId + "] in " + parts + " partitions");
+
+        ExecutorService executor = getParallelReadExecutor();
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int i = 0; i < parts; i++) {
+
+            final long fromId = minId + (i * step);
+            if (fromId > maxId) {
+                break;
+            }
+            final long toId = (i == parts - 1) ? maxId : Math.min(maxId, fromId + step - 1);
+
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return streamIdRange(entityType, fromId, toId, handler);
+                }
+            }));
+        }
+
+        String errorDetails;
+
+        try {
+
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+            return recordedRows("fetchBulkParallel", started, total);
+
+        } catch (ExecutionException ex) {
+
+            if (ex.getCause() instanceof MyCustomException) {
+                cancelAll(futures);
+                throw failed("fetchBulkParallel", started, (MyCustomException) ex.getCause());
+            }
+            errorDetails = "General exception reading partitions of: " + entityType.getName() + " - " + ex.getCause();
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+            errorDetails = "Interrupted while reading partitions of: " + entityType.getName();
+        }
+
+        cancelAll(futures);
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("fetchBulkParallel", started, error);
+    }
+
+    /**
+     * Parallel counterpart of fetchBulkStateless(Class), see
+     * fetchBulkParallel(Class, int, RowHandler)
+     *
+     * @param <T>
      * @param entityType
-     * @param propertyNameValues
+     * @param partitions
      * @return
      * @throws MyCustomException
      */
-    public <BaseEntity> Set<BaseEntity> fetchBulk_TempSession(Class entityType, Map<String, Object[]> propertyNameValues) throws MyCustomException {
-
-        StatelessSession session = getStatelessSession();
-
-        Set<BaseEntity> results = new HashSet<>();
-        String errorDetails;
-
-        try {
+    public <T> Set<T> fetchBulkStatelessParallel(Class<T> entityType, int partitions) throws MyCustomException {
 
-            Criteria criteria = session.createCriteria(entityType);
+        final Set<T> fetchedEntities = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
 
-            // propertyNameValues.entrySet().stream().forEach((entry) -> {
-            for (Map.Entry<String, Object[]> entry : propertyNameValues.entrySet()) {
+        fetchBulkParallel(entityType, partitions, new RowHandler<T>() {
+            @Override
+            public boolean handle(T row) {
+                fetchedEntities.add(row);
+                return Boolean.TRUE;
+            }
+        });
 
-                String name = entry.getKey();
-                Object[] values = entry.getValue();
+        return fetchedEntities;
+    }
 
-                //criteria.add(Restrictions.in(name, objects)); //un-c0mment and sort out errors when r3ady
-            }
+    /**
+     * Scroll the records whose id is within [fromId, toId] to the handler on
+     * a StatelessSession of its own
+     */
+    private <T> int streamIdRange(Class<T> entityType, long fromId, long toId, RowHandler<T> handler) throws MyCustomException {
 
-//            if(!isFetchAll){
-//                criteria.add(Restrictions.allEq(propertyNameValues));
-//            }
-            //criteria.addOrder(Order.asc(propertyName));
-            // To-Do -> add the other parameters, e.g. orderby, etc
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+        StatelessSession tempSession = getStatelessSession();
+        String errorDetails;
 
-            int count = 0;
-            while (scrollableResults.next()) {
-                if (++count > 0 && count % 10 == 0) {
-                    LOGGER.debug("Fetched " + count + " entities");
-                }
-                results.add((BaseEntity) scrollableResults.get()[0]);
+        try {
 
-            }
+            Criteria criteria = tempSession.createCriteria(entityType);
+            criteria.add(Restrictions.between("id", fromId, toId));
 
-            return results;
+            return scrollToHandler(streamScroll(criteria), handler);
 
+        } catch (MyCustomException ex) {
+            throw ex;
         } catch (HibernateException he) {
 
-            errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
-
+            errorDetails = "hibernate exception reading ids [" + fromId + ", " + toId + "] of: " + entityType.getName() + " - " + he.toString();
         } catch (Exception e) {
 
-            errorDetails = "hibernate exception Fetching records from the database: " + e.toString();
-
+            errorDetails = "General exception reading ids [" + fromId + ", " + toId + "] of: " + entityType.getName() + " - " + e.toString();
         } finally {
-            closeSession(session);
+            closeSession(tempSession);
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
@@ -2777,45 +4079,37 @@ public final class CustomHibernate {
     }
 
     /**
-     * fetch bulk records that have a given property value
+     * Lowest and highest "id" of an entity
      *
-     * @param <DBInterface>
-     * @param entityType
-     * @param propertyName
-     * @param propertyValue
-     * @return bulk of records fetched
-     * @throws com.library.customexception.MyCustomException
+     * @return {min, max} or null if the table is empty
      */
-    public <DBInterface> Set<DBInterface> fetchBulk(Class<DBInterface> entityType, String propertyName, Object propertyValue) throws MyCustomException {
+    private long[] fetchIdBounds(Class entityType) throws MyCustomException {
 
         StatelessSession tempSession = getStatelessSession();
-
         String errorDetails;
-        try {
 
-            Criteria criteria = tempSession.createCriteria(entityType);
-            criteria.add(Restrictions.eq(propertyName, propertyValue));
+        try {
 
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            ProjectionList projections = Projections.projectionList();
+            projections.add(Projections.min("id"));
+            projections.add(Projections.max("id"));
 
-            int count = 0;
-            Set<DBInterface> fetchedEntities = new HashSet<>();
-            while (scrollableResults.next()) {
+            Criteria criteria = tempSession.createCriteria(entityType);
+            criteria.setProjection(projections);
 
-                if ((count > 0) && (count % 10 == 0)) {
-                    LOGGER.debug("Fetched " + count + " entities");
-                }
-                count++;
-                fetchedEntities.add((DBInterface) scrollableResults.get()[0]);
+            Object[] bounds = (Object[]) criteria.uniqueResult();
 
+            if (bounds == null || bounds[0] == null) {
+                return null;
             }
-            return fetchedEntities;
+            return new long[]{GeneralUtils.convertObjectToLong(bounds[0]), GeneralUtils.convertObjectToLong(bounds[1])};
+
         } catch (HibernateException he) {
 
-            errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
+            errorDetails = "hibernate exception fetching id bounds of: " + entityType.getName() + " - " + he.toString();
         } catch (Exception e) {
 
-            errorDetails = "General exception Fetching records from the database: " + e.toString();
+            errorDetails = "General exception fetching id bounds of: " + entityType.getName() + " - " + e.toString();
         } finally {
             closeSession(tempSession);
         }
@@ -2824,49 +4118,73 @@ public final class CustomHibernate {
         throw error;
     }
 
+    private static void cancelAll(List<? extends Future<?>> futures) {
+
+        for (Future<?> future : futures) {
+            future.cancel(Boolean.TRUE);
+        }
+    }
+
     /**
-     *
-     * @param <T>
-     * @param entityType
-     * @return
-     * @throws com.library.customexception.MyCustomException
+     * Executor for the parallel reads, threads are capped at the connection
+     * pool size so parallel reads cannot exhaust the pool on their own
      */
-    public <T> Set<T> fetchBulkStateless(Class<T> entityType) throws MyCustomException {
+    private synchronized ExecutorService getParallelReadExecutor() {
 
-        StatelessSession tempSession = getStatelessSession();
-        String errorDetails;
-
-        try {
+        if (parallelReadExecutor == null) {
 
-            Criteria criteria = tempSession.createCriteria(entityType);
+            Properties properties = getHibernateProperties();
+            int maxThreads = HibernateProperties.getInt(properties, HibernateProperties.PARALLEL_MAX_THREADS, HibernateProperties.getPoolSize(properties));
+            maxThreads = Math.max(1, Math.min(maxThreads, HibernateProperties.getPoolSize(properties)));
 
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
 
-            int count = 0;
-            Set<T> fetchedEntities = new HashSet<>();
-            while (scrollableResults.next()) {
+                private final AtomicInteger threadCount = new AtomicInteger();
 
-                if ((count > 0) && (count % 10 == 0)) {
-                    LOGGER.debug("Fetched " + count + " entities");
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "sghibernate-parallel-read-" + threadCount.incrementAndGet());
+                    thread.setDaemon(Boolean.TRUE);
+                    return thread;
                 }
-                count++;
-                fetchedEntities.add((T) scrollableResults.get()[0]);
+            });
+            executor.allowCoreThreadTimeOut(Boolean.TRUE);
 
-            }
-            return fetchedEntities;
+            parallelReadExecutor = executor;
+        }
+        return parallelReadExecutor;
+    }
 
-        } catch (HibernateException he) {
+    /**
+     * Hand each scrolled row to the handler until the results are exhausted
+     * or the handler asks to stop
+     *
+     * @param <T>
+     * @param scrollableResults
+     * @param handler
+     * @return number of rows handed to the handler
+     * @throws MyCustomException
+     */
+    private static <T> int scrollToHandler(ScrollableResults scrollableResults, RowHandler<T> handler) throws MyCustomException {
 
-            errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
-        } catch (Exception e) {
+        int count = 0;
 
-            errorDetails = "General exception Fetching records from the database: " + e.toString();
+        try {
+            while (scrollableResults.next()) {
+
+                count++;
+                if (count % 1000 == 0) {
+                    LOGGER.debug("Streamed " + count + " rows");
+                }
+                if (!handler.handle((T) scrollableResults.get()[0])) {
+                    break;
+                }
+            }
         } finally {
-            closeSession(tempSession);
+            scrollableResults.close();
         }
 
-        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        return count;
     }
 
     /**
@@ -2880,6 +4198,8 @@ public final class CustomHibernate {
      */
     public DBInterface fetchEntityTempSession(Class entityType, String propertyName, Object propertyValue) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
 
         String errorDetails;
@@ -2889,7 +4209,7 @@ public final class CustomHibernate {
             criteria.add(Restrictions.eq(propertyName, propertyValue));
             criteria.setMaxResults(1);
 
-            return ((DBInterface) criteria.uniqueResult());
+            return recorded("fetchEntityTempSession", started, ((DBInterface) criteria.uniqueResult()));
 
         } catch (HibernateException he) {
 
@@ -2902,7 +4222,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("fetchEntityTempSession", started, error);
     }
 
     /**
@@ -2916,6 +4236,8 @@ public final class CustomHibernate {
      */
     public <T> List<T> fetchOnlyColumn(Class classType, String columToFetch) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
         String errorDetails;
 
@@ -2928,18 +4250,22 @@ public final class CustomHibernate {
             //criteria.add(Restrictions.eq(restrictToPropertyName, restrictionValue)); //transactions should belong to the same group
             //criteria.addOrder(Order.asc(propertyName));
 
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            ScrollableResults scrollableResults = scroll(criteria);
 
             int count = 0;
             List<T> results = new ArrayList<>();
-            while (scrollableResults.next()) {
-                if (++count > 0 && count % 10 == 0) {
-                    LOGGER.debug("Fetched " + count + " entities");
-                }
-                results.add((T) scrollableResults.get()[0]);
+            try {
+                while (scrollableResults.next()) {
+                    if (++count > 0 && count % 10 == 0) {
+                        LOGGER.debug("Fetched " + count + " entities");
+                    }
+                    results.add((T) scrollableResults.get()[0]);
 
+                }
+            } finally {
+                scrollableResults.close();
             }
-            return results;
+            return recorded("fetchOnlyColumn(Class,String)", started, results);
 
         } catch (HibernateException he) {
             errorDetails = "hibernate exception Fetching records from the database: " + he.toString();
@@ -2950,7 +4276,7 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("fetchOnlyColumn(Class,String)", started, error);
     }
 
     /**
@@ -2969,6 +4295,8 @@ public final class CustomHibernate {
      */
     public <T> T getMostRecentRecord(Class<T> persistentClassType, String idColumn, String propertyName, String propertyValue) throws MyCustomException {
 
+        long started = System.nanoTime();
+
         StatelessSession tempSession = getStatelessSession();
 
         String errorDetails;
@@ -2987,7 +4315,7 @@ public final class CustomHibernate {
 
             T result = (T) criteria.uniqueResult();
 
-            return result;
+            return recorded("getMostRecentRecord", started, result);
 
         } catch (HibernateException he) {
 
@@ -3003,119 +4331,208 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("getMostRecentRecord", started, error);
     }
 
     /**
+     * Lease a block of IDs for the given segment. The segment row is locked
+     * for the duration of the transaction so concurrent leases (from this or
+     * any other node) get disjoint ranges. A segment seen for the first time
+     * starts at sghibernate.id_segment.floor: the tables were filled with the
+     * random IDs of IDCreator, so their max is no safe seed. Those IDs are
+     * looked up per block and skipped while sghibernate.id_segment.check_existing
+     * is on.
      *
-     * @param <BaseEntity>
-     * @param entityType
-     * @param columToFetch
-     * @param propertyNameValues
-     * @return
-     * @throws MyCustomException
+     * @param segmentName
+     * @param entityType entity whose id column the IDs are for
+     * @param idColumnName id property name e.g. "id.fileId"
+     * @param blockSize number of IDs to lease
+     * @param maxId largest ID the id column holds, e.g. Integer.MAX_VALUE
+     * @return the leased block [start, start + blockSize)
+     * @throws MyCustomException if the id space of the column is exhausted
      */
-    public <BaseEntity> Set<BaseEntity> fetchOnlyColumn(Class entityType, String columToFetch, Map<String, Object> propertyNameValues) throws MyCustomException {
+    public IdBlock leaseIdBlock(String segmentName, Class entityType, String idColumnName, int blockSize, long maxId) throws MyCustomException {
 
-        Session session = getSession();
-        Transaction transaction = null;
+        long started = System.nanoTime();
 
-        Set<BaseEntity> results = new HashSet<>();
+        Properties properties = getHibernateProperties();
+        long floor = HibernateProperties.getLong(properties, HibernateProperties.ID_SEGMENT_FLOOR + "." + segmentName,
+                HibernateProperties.getLong(properties, HibernateProperties.ID_SEGMENT_FLOOR, 1L));
+        boolean checkExisting = HibernateProperties.getBoolean(properties, HibernateProperties.ID_SEGMENT_CHECK_EXISTING, Boolean.TRUE);
+
+        StatelessSession tempSession = getStatelessSession();
+        Transaction transaction = null;
         String errorDetails;
+
         try {
 
-            transaction = session.beginTransaction();
-            Criteria criteria = session.createCriteria(entityType);
-            criteria.setProjection(Projections.property(columToFetch));
-            criteria.setCacheMode(CacheMode.REFRESH);
+            if (!idSegmentTableCreated) {
+                //DDL causes an implicit commit in MySQL, keep it out of the lease transaction
+                tempSession.createNativeQuery("CREATE TABLE IF NOT EXISTS " + ID_SEGMENT_TABLE + " (segment_name VARCHAR(128) NOT NULL PRIMARY KEY, next_hi BIGINT NOT NULL)").executeUpdate();
+                idSegmentTableCreated = Boolean.TRUE;
+            }
 
-            //propertyNameValues.entrySet().stream().forEach((entry) -> {
-            for (Map.Entry<String, Object> entry : propertyNameValues.entrySet()) {
+            transaction = tempSession.beginTransaction();
 
-                String name = entry.getKey();
-                Set<Object> values = (Set<Object>) entry.getValue();
+            String selectSql = "SELECT next_hi FROM " + ID_SEGMENT_TABLE + " WHERE segment_name=:segmentName FOR UPDATE";
+            List<Number> rows = tempSession.createNativeQuery(selectSql)
+                    .setParameter("segmentName", segmentName)
+                    .list();
 
-                LOGGER.debug("Field Name  : " + name);
-                LOGGER.debug("Field values: " + values);
+            if (rows.isEmpty()) {
 
-                //if objects set is empty or contains a '1' - we will select all records
-                if (values == null || values.isEmpty() || values.contains(String.valueOf(1))) {
+                LOGGER.debug("Seeding ID segment: " + segmentName + " at: " + floor);
 
-                    LOGGER.info("No Restrictions on property: " + name + ", while Fetching: " + entityType.getName() + " objects.");
+                //another node may be seeding the same segment, the re-select below picks up whichever won
+                tempSession.createNativeQuery("INSERT IGNORE INTO " + ID_SEGMENT_TABLE + " (segment_name, next_hi) VALUES (:segmentName, :nextHi)")
+                        .setParameter("segmentName", segmentName)
+                        .setParameter("nextHi", floor)
+                        .executeUpdate();
 
-                } else if (name.equals("displayDate")) {
+                rows = tempSession.createNativeQuery(selectSql)
+                        .setParameter("segmentName", segmentName)
+                        .list();
+            }
 
-                    Set<LocalDate> displayDates = new HashSet<>();
-                    for (Object object : values) {
+            long start = rows.get(0).longValue();
 
-                        //LocalDate paymentId = DateUtils.convertStringToLocalDate((String) object, NamedConstants.DATE_DASH_FORMAT);
-                        LocalDate date = new LocalDate(object);
-                        displayDates.add(date);
-                    }
-                    criteria.add(Restrictions.in(name, displayDates));
+            if (start < 0 || start > maxId - blockSize) {
 
-                } else if (name.equals("id")) {
+                //next_hi is left as it is, so the segment keeps failing instead of wrapping around
+                transaction.rollback();
+                errorDetails = "ID space exhausted for segment: " + segmentName + ", next ID: " + start + ", max ID: " + maxId;
 
-                    Set<Long> ids = new HashSet<>();
+            } else {
 
-                    for (Object object : values) {
+                long limit = start + blockSize;
 
-                        long val = GeneralUtils.convertObjectToLong(object);
-                        ids.add(val);
-                    }
-                    criteria.add(Restrictions.in(name, ids));
+                tempSession.createNativeQuery("UPDATE " + ID_SEGMENT_TABLE + " SET next_hi=:nextHi WHERE segment_name=:segmentName")
+                        .setParameter("nextHi", limit)
+                        .setParameter("segmentName", segmentName)
+                        .executeUpdate();
 
-                } else if (name.equals("isUploadedToDSM")) {
+                Set<Long> takenIds = new HashSet<>();
+                if (checkExisting) {
 
-                    Set<Boolean> vals = new HashSet<>();
+                    boolean intColumn = maxId <= Integer.MAX_VALUE;
 
-                    for (Object object : values) {
+                    Criteria criteria = tempSession.createCriteria(entityType);
+                    criteria.setProjection(Projections.property(idColumnName));
+                    criteria.add(Restrictions.between(idColumnName,
+                            intColumn ? (Object) (int) start : (Object) start,
+                            intColumn ? (Object) (int) (limit - 1) : (Object) (limit - 1)));
 
-                        boolean val = (Boolean) object;
-                        vals.add(val);
+                    for (Object id : criteria.list()) {
+                        takenIds.add(((Number) id).longValue());
                     }
-                    criteria.add(Restrictions.in(name, vals));
+                }
 
-                } else if (name.equals("audienceTypes.audienceCode")) {
+                transaction.commit();
 
-                    Set<String> vals = new HashSet<>();
+                if (!takenIds.isEmpty()) {
+                    LOGGER.debug("Skipping " + takenIds.size() + " IDs already used in block [" + start + ", " + limit + ") of: " + segmentName);
+                }
 
-                    for (Object object : values) {
+                metrics.record("leaseIdBlock", started, 1L, Boolean.FALSE);
+                return new IdBlock(start, limit, takenIds);
+            }
 
-                        String val = (String) object;
-                        vals.add(val);
-                    }
+        } catch (HibernateException he) {
 
-                    criteria.createAlias("audienceTypes", "audtype") //without this, keeps throwing error - org.hibernate.QueryException: could not resolve property: audienceTypes.audienceCode of: com.library.datamodel.model.v1_0.AdScreen 
-                            .add(Restrictions.in("audtype.audienceCode", vals));
+            errorDetails = "hibernate exception leasing ID block for segment: " + segmentName + " - " + he.toString();
 
-                } else {
-                    criteria.add(Restrictions.in(name, values));
-                }
+            if (transaction != null) {
+                transaction.rollback();
+            }
+
+        } catch (Exception e) {
 
+            errorDetails = "General exception leasing ID block for segment: " + segmentName + " - " + e.toString();
+
+            if (transaction != null) {
+                transaction.rollback();
             }
 
+        } finally {
+            closeSession(tempSession);
+        }
+
+        MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
+        throw failed("leaseIdBlock", started, error);
+    }
+
+    /**
+     *
+     * @param <BaseEntity>
+     * @param entityType
+     * @param columToFetch
+     * @param propertyNameValues
+     * @return
+     * @throws MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchOnlyColumn(Class entityType, String columToFetch, Map<String, Object> propertyNameValues) throws MyCustomException {
+        return fetchOnlyColumn(entityType, columToFetch, propertyNameValues, (CacheMode) null);
+    }
+
+    /**
+     *
+     * @param <BaseEntity>
+     * @param entityType
+     * @param columToFetch
+     * @param propertyNameValues
+     * @param cacheMode how the fetch uses the second level cache, null for
+     * the configured default
+     * @return
+     * @throws MyCustomException
+     */
+    public <BaseEntity> Set<BaseEntity> fetchOnlyColumn(Class entityType, String columToFetch, Map<String, Object> propertyNameValues, CacheMode cacheMode) throws MyCustomException {
+
+        long started = System.nanoTime();
+
+        Session session = getSession();
+        Transaction transaction = null;
+
+        Set<BaseEntity> results = new HashSet<>();
+        String errorDetails;
+        try {
+
+            transaction = beginReadOnlyTransaction(session);
+            Criteria criteria = session.createCriteria(entityType);
+            criteria.setProjection(Projections.property(columToFetch));
+
+            applyRestrictions(criteria, entityType, propertyNameValues);
+
 //            if(!isFetchAll){
 //                criteria.add(Restrictions.allEq(propertyNameValues));
 //            }
             //criteria.addOrder(Order.asc(propertyName)); // To-Do -> add the other parameters, e.g. orderby, etc
-            ScrollableResults scrollableResults = criteria.scroll(ScrollMode.FORWARD_ONLY);
+            if (applyCacheMode(criteria, entityType, cacheMode)) {
+                results.addAll(criteria.list());
 
-            int count = 0;
-            while (scrollableResults.next()) {
-                if (++count > 0 && count % 10 == 0) {
-                    LOGGER.debug("Fetched " + count + " entities");
-                    session.flush();
-                    session.clear();
-                }
-                results.add((BaseEntity) scrollableResults.get()[0]);
+            } else {
+
+                ScrollableResults scrollableResults = scroll(criteria);
+
+                int count = 0;
+                try {
+                    while (scrollableResults.next()) {
+                        if (++count > 0 && count % 10 == 0 && clearsWhileScrolling(session)) {
+                            LOGGER.debug("Fetched " + count + " entities");
+                            session.flush();
+                            session.clear();
+                        }
+                        results.add((BaseEntity) scrollableResults.get()[0]);
 
+                    }
+                } finally {
+                    scrollableResults.close();
+                }
             }
 
 //            List<BaseEntity> records = criteria.list();
 //            results = GeneralUtils.convertListToSet(records);
             transaction.commit();
-            return results;
+            return recorded("fetchOnlyColumn(Class,String,Map,CacheMode)", started, results);
 
         } catch (HibernateException he) {
 
@@ -3138,111 +4555,214 @@ public final class CustomHibernate {
         }
 
         MyCustomException error = GeneralUtils.getSingleError(ErrorCode.DATABASE_ERR, NamedConstants.GENERIC_DB_ERR_DESC, errorDetails);
-        throw error;
+        throw failed("fetchOnlyColumn(Class,String,Map,CacheMode)", started, error);
 
     }
 
     private static final class ConfigureHibernate {
 
-        private SessionFactory sessionFactory;
-
-        private ConfigureHibernate() {
+        private final String hibernateFilePath;
+        private volatile SessionFactory sessionFactory;
+        private int references;
+        //switched off until configure() succeeds, so a failed configuration never hands out null
+        private Properties properties = new Properties();
+        private FilterConverterRegistry converterRegistry;
+        private SecondLevelCache secondLevelCache = SecondLevelCache.off();
+        private NamedQueryResultCache queryResultCache = new NamedQueryResultCache(properties);
+        private SlowQueryRecorder slowQueryRecorder = new SlowQueryRecorder(properties);
+        private final OperationMetrics operationMetrics = new OperationMetrics();
+        private final ScreenIdSequencer screenIdSequencer = new ScreenIdSequencer();
+        private StatisticsExporter statisticsExporter;
+
+        private ConfigureHibernate(String hibernateFilePath) {
+            this.hibernateFilePath = hibernateFilePath;
+        }
 
-            LOGGER.debug("About to configure Hibernate!!!");
+        private SessionFactory createSessionFactory() {
 
-            try {
-                configure();
-            } catch (InvocationTargetException ex) {
-                ex.printStackTrace();
-                LOGGER.error("InvocationTargetException exception during hibernate configuration: " + ex.toString());
-            } catch (ClassNotFoundException ex) {
-                ex.printStackTrace();
-                LOGGER.error("ClassNotFoundException exception during hibernate configuration: " + ex.toString());
-            } catch (NamingException ex) {
-                ex.printStackTrace();
-                LOGGER.error("Naming exception during hibernate configuration: " + ex.toString());
-            } catch (MappingException ex) {
-                LOGGER.error("Exception class: " + ex.getClass().toString());
-                LOGGER.error("MappingException exception during hibernate configuration: " + ex.toString());
-                ex.printStackTrace();
-            } catch (HibernateException ex) {
-                LOGGER.error("Exception class: " + ex.getClass().toString());
-                LOGGER.error("Hibernate exception during hibernate configuration: " + ex.toString());
-                ex.printStackTrace();
-            } catch (Exception ex) {
-                LOGGER.error("Exception class: " + ex.getClass().toString());
-                LOGGER.error("General Exception during hibernate configuration: " + ex.toString());
-                ex.printStackTrace();
+            SessionFactory factory = sessionFactory;
+            if (factory != null && !factory.isClosed()) {
+                return factory;
             }
-        }
 
-        private static class ConfigureHibernateSingletonHolder {
+            synchronized (this) {
+
+                if (sessionFactory == null || sessionFactory.isClosed()) {
+
+                    LOGGER.debug("SessionFactory of " + hibernateFilePath + " is NULL or closed going to reconfigure");
+
+                    try {
+                        configure();
+                    } catch (InvocationTargetException ex) {
+                        ex.printStackTrace();
+                        LOGGER.error("InvocationTargetException exception during hibernate configuration: " + ex.toString());
+                    } catch (ClassNotFoundException ex) {
+                        ex.printStackTrace();
+                        LOGGER.error("ClassNotFoundException exception during hibernate configuration: " + ex.toString());
+                    } catch (NamingException ex) {
+                        ex.printStackTrace();
+                        LOGGER.error("Naming exception during hibernate configuration: " + ex.toString());
+                    } catch (MappingException ex) {
+                        LOGGER.error("Exception class: " + ex.getClass().toString());
+                        LOGGER.error("MappingException exception during hibernate configuration: " + ex.toString());
+                        ex.printStackTrace();
+                    } catch (HibernateException ex) {
+                        LOGGER.error("Exception class: " + ex.getClass().toString());
+                        LOGGER.error("Hibernate exception during hibernate configuration: " + ex.toString());
+                        ex.printStackTrace();
+                    } catch (Exception ex) {
+                        LOGGER.error("Exception class: " + ex.getClass().toString());
+                        LOGGER.error("General Exception during hibernate configuration: " + ex.toString());
+                        ex.printStackTrace();
+                    }
+                }
 
-            private static final ConfigureHibernate INSTANCE = new ConfigureHibernate();
+                return sessionFactory;
+            }
         }
 
-        private static ConfigureHibernate getInstance() {
-            return ConfigureHibernateSingletonHolder.INSTANCE;
+        private synchronized void acquire() {
+            references++;
         }
 
-        private Object readResolve() {
-            return getInstance();
+        /**
+         * One exporter over the shared SessionFactory statistics, for all the
+         * instances given this file. Stopped by the last release
+         *
+         * @param name
+         */
+        private synchronized void startStatisticsExporter(String name) {
+
+            SessionFactory factory = sessionFactory;
+            if (statisticsExporter != null
+                    || factory == null
+                    || factory.isClosed()
+                    || !factory.getStatistics().isStatisticsEnabled()
+                    || HibernateProperties.getLong(properties, HibernateProperties.STATISTICS_EXPORT_INTERVAL_SECONDS, StatisticsExporter.DEFAULT_INTERVAL_SECONDS) < 1) {
+                return;
+            }
+
+            statisticsExporter = new StatisticsExporter(factory.getStatistics(), properties);
+            statisticsExporter.register(name);
+            statisticsExporter.start();
         }
 
-        private SessionFactory createSessionFactory() {
+        /**
+         * Close the SessionFactory once no instance uses it any more. A later
+         * instance given the same file builds a new one
+         */
+        private void release() {
 
-            if (sessionFactory == null || sessionFactory.isClosed()) {
+            StatisticsExporter exporter;
 
-                LOGGER.debug("SessionFactory is NULL or closed going to reconfigure");
+            synchronized (this) {
+                if (--references > 0) {
+                    LOGGER.debug("SessionFactory of " + hibernateFilePath + " still used by " + references + " instance(s), not closing it");
+                    return;
+                }
+                references = 0;
+                exporter = statisticsExporter;
+                statisticsExporter = null;
+            }
 
-                try {
-                    configure();
-                } catch (InvocationTargetException ex) {
-                    ex.printStackTrace();
-                    LOGGER.error("InvocationTargetException exception during hibernate configuration: " + ex.toString());
-                } catch (ClassNotFoundException ex) {
-                    ex.printStackTrace();
-                    LOGGER.error("ClassNotFoundException exception during hibernate configuration: " + ex.toString());
-                } catch (NamingException ex) {
-                    ex.printStackTrace();
-                    LOGGER.error("Naming exception during hibernate configuration: " + ex.toString());
-                } catch (MappingException ex) {
-                    LOGGER.error("Exception class: " + ex.getClass().toString());
-                    LOGGER.error("MappingException exception during hibernate configuration: " + ex.toString());
-                    ex.printStackTrace();
-                } catch (HibernateException ex) {
-                    LOGGER.error("Exception class: " + ex.getClass().toString());
-                    LOGGER.error("Hibernate exception during hibernate configuration: " + ex.toString());
-                    ex.printStackTrace();
-                } catch (Exception ex) {
-                    LOGGER.error("Exception class: " + ex.getClass().toString());
-                    LOGGER.error("General Exception during hibernate configuration: " + ex.toString());
-                    ex.printStackTrace();
+            //stop() waits for a running export, so it is not called holding the lock
+            if (exporter != null) {
+                exporter.unregister();
+                exporter.stop();
+            }
+
+            synchronized (this) {
+                if (references > 0) {
+                    LOGGER.debug("SessionFactory of " + hibernateFilePath + " acquired again while releasing, not closing it");
+                    return;
                 }
+                operationMetrics.unregister();
+                closeSessionFactory();
+            }
+        }
+
+        private synchronized void closeSessionFactory() {
 
+            if (sessionFactory != null && !sessionFactory.isClosed()) {
+                sessionFactory.close();
+
+                LOGGER.debug("Closing Hibernate SessionFactory of " + hibernateFilePath + "...");
             } else {
-                LOGGER.debug(">>>>>> We are GOOD, SessionFactory is not NULL and is OPEN");
+                LOGGER.debug(">>>>>> called closeHibernateSessionFactory() but SessionFactory already CLOSED!!!!");
             }
-
-            return sessionFactory;
         }
 
         private void setSessionFactory(SessionFactory sessionFactory) {
             this.sessionFactory = sessionFactory;
         }
 
+        private Properties getProperties() {
+            return properties;
+        }
+
+        private FilterConverterRegistry getConverterRegistry() {
+            return converterRegistry;
+        }
+
+        private SecondLevelCache getSecondLevelCache() {
+            return secondLevelCache;
+        }
+
+        private NamedQueryResultCache getQueryResultCache() {
+            return queryResultCache;
+        }
+
+        private SlowQueryRecorder getSlowQueryRecorder() {
+            return slowQueryRecorder;
+        }
+
+        private OperationMetrics getOperationMetrics() {
+            return operationMetrics;
+        }
+
+        private ScreenIdSequencer getScreenIdSequencer() {
+            return screenIdSequencer;
+        }
+
         private void configure() throws NamingException, HibernateException, ClassNotFoundException, InvocationTargetException {
 
             LOGGER.debug(">>>>>>>> configure() method called here... IT IS HAPPENING, TAKE NOTE!!!!!!!");
 
-            File file = new File(CustomHibernate.hibernateFilePath);
+            File file = new File(hibernateFilePath);
 
             Configuration configuration = new Configuration();
             configuration.configure(file);
+
+            if (HibernateProperties.getBoolean(configuration.getProperties(), HibernateProperties.SCROLL_CURSOR_FETCH, Boolean.FALSE)) {
+                //passed on to Connector/J as a connection property
+                configuration.setProperty("hibernate.connection.useCursorFetch", "true");
+            }
+            if (HibernateProperties.getBoolean(configuration.getProperties(), HibernateProperties.BULK_INSERT_REWRITE_BATCHED_STATEMENTS, Boolean.FALSE)) {
+                //Connector/J sends a batch of inserts as one multi-row INSERT
+                configuration.setProperty("hibernate.connection.rewriteBatchedStatements", "true");
+                configuration.setProperty("hibernate.order_inserts", "true");
+
+                if (HibernateProperties.getString(configuration.getProperties(), "hibernate.connection.datasource") != null) {
+                    LOGGER.warn(HibernateProperties.BULK_INSERT_REWRITE_BATCHED_STATEMENTS + " is not passed on to a datasource, set rewriteBatchedStatements=true on the datasource itself");
+                }
+            }
+            if (HikariConnectionProvider.NAME.equalsIgnoreCase(HibernateProperties.getString(configuration.getProperties(), HibernateProperties.POOL_PROVIDER))) {
+                configuration.setProperty("hibernate.connection.provider_class", HikariConnectionProvider.class.getName());
+            }
+            if (HibernateProperties.getBoolean(configuration.getProperties(), HibernateProperties.STATISTICS_ENABLED, Boolean.FALSE)) {
+                configuration.setProperty("hibernate.generate_statistics", "true");
+            }
+            SlowQueryRecorder slowQueries = new SlowQueryRecorder(configuration.getProperties());
+            if (slowQueries.isEnabled()) {
+                configuration.setProperty("hibernate.session_factory.statement_inspector", SqlCaptureInspector.class.getName());
+            }
             //Name tables with lowercase_underscore_separated
             //configuration.setNamingStrategy(ImprovedNamingStrategy.INSTANCE);
             //configuration.addResource(customTypesPropsFileLoc);
-            configuration.setInterceptor(new AuditTrailInterceptor());
+            NamedQueryResultCache resultCache = new NamedQueryResultCache(configuration.getProperties());
+            configuration.setInterceptor(new AuditTrailInterceptor(resultCache));
+
+            SecondLevelCache cache = SecondLevelCache.configure(configuration, file.getName());
             //configuration.setInterceptor(new InterceptorClass());
 
             //StandardServiceRegistryBuilder serviceRegistryBuilder = new StandardServiceRegistryBuilder().applySettings(configuration.getProperties());
@@ -3262,6 +4782,18 @@ public final class CustomHibernate {
         return metadata.getSessionFactoryBuilder().build();
         
              */
+            Properties loaded = new Properties();
+            loaded.putAll(configuration.getProperties());
+            this.properties = loaded;
+            this.converterRegistry = new FilterConverterRegistry(sessFactory);
+            this.secondLevelCache = cache;
+
+            resultCache.setSessionFactory(sessFactory);
+            this.queryResultCache = resultCache;
+
+            slowQueries.setSessionFactory(sessFactory);
+            this.slowQueryRecorder = slowQueries;
+
             setSessionFactory(sessFactory);
         }
     }
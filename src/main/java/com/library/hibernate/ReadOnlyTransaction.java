@@ -0,0 +1,137 @@
+package com.library.hibernate;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.transaction.Synchronization;
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+
+/**
+ * Transaction of the read methods in read-only mode. The session loads
+ * entities read-only (no snapshot is kept for dirty checking) and never
+ * flushes. Optionally the JDBC connection is switched to read-only for the
+ * transaction, so that MySQL runs it as a read-only transaction; it is
+ * switched back before the transaction ends, as the connection goes back
+ * to the pool right after.
+ *
+ * The session settings are applied after begin because a thread-bound
+ * (current) session rejects them outside a transaction.
+ *
+ * @author smallgod
+ */
+final class ReadOnlyTransaction implements Transaction {
+
+    private static final LoggerUtil LOGGER = new LoggerUtil(ReadOnlyTransaction.class);
+
+    private final Session session;
+    private final Transaction transaction;
+    private final boolean connectionReadOnly;
+
+    private ReadOnlyTransaction(Session session, Transaction transaction, boolean connectionReadOnly) {
+        this.session = session;
+        this.transaction = transaction;
+        this.connectionReadOnly = connectionReadOnly;
+    }
+
+    /**
+     * @param session
+     * @param connectionReadOnly also mark the JDBC connection read-only
+     * @return
+     */
+    static Transaction begin(Session session, boolean connectionReadOnly) {
+
+        Transaction transaction = session.beginTransaction();
+
+        session.setDefaultReadOnly(Boolean.TRUE);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        if (connectionReadOnly) {
+            setConnectionReadOnly(session, Boolean.TRUE);
+        }
+        return new ReadOnlyTransaction(session, transaction, connectionReadOnly);
+    }
+
+    private static void setConnectionReadOnly(Session session, final boolean readOnly) {
+
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                connection.setReadOnly(readOnly);
+            }
+        });
+    }
+
+    private void restoreConnection() {
+
+        if (!connectionReadOnly) {
+            return;
+        }
+        try {
+            setConnectionReadOnly(session, Boolean.FALSE);
+        } catch (HibernateException ex) {
+            LOGGER.warn("Could not switch the connection back to read-write: " + ex.toString());
+        }
+    }
+
+    @Override
+    public void begin() {
+        transaction.begin();
+    }
+
+    @Override
+    public void commit() {
+
+        restoreConnection();
+        transaction.commit();
+    }
+
+    @Override
+    public void rollback() {
+
+        restoreConnection();
+        transaction.rollback();
+    }
+
+    @Override
+    public void setRollbackOnly() {
+        transaction.setRollbackOnly();
+    }
+
+    public void markRollbackOnly() {
+        transaction.setRollbackOnly();
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        return transaction.getRollbackOnly();
+    }
+
+    @Override
+    public boolean isActive() {
+        return transaction.isActive();
+    }
+
+    @Override
+    public TransactionStatus getStatus() {
+        return transaction.getStatus();
+    }
+
+    @Override
+    public void registerSynchronization(Synchronization synchronization) throws HibernateException {
+        transaction.registerSynchronization(synchronization);
+    }
+
+    @Override
+    public void setTimeout(int seconds) {
+        transaction.setTimeout(seconds);
+    }
+
+    @Override
+    public int getTimeout() {
+        return transaction.getTimeout();
+    }
+}
@@ -0,0 +1,139 @@
+package com.library.hibernate;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.transaction.Synchronization;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+
+/**
+ * Session and transaction of a CustomHibernate.inUnitOfWork call, bound to
+ * the calling thread. Operations inside the unit get a joined transaction
+ * whose commit does nothing and whose rollback marks the unit rollback-only,
+ * so only inUnitOfWork ends the real transaction.
+ *
+ * @author smallgod
+ */
+final class UnitOfWorkScope {
+
+    private final CustomHibernate owner;
+    private final Session session;
+    private final Transaction transaction;
+    private final Transaction joined;
+    private final List<Runnable> afterCompletion = new ArrayList<>();
+    private volatile boolean rollbackOnly;
+
+    UnitOfWorkScope(CustomHibernate owner, Session session) {
+        this.owner = owner;
+        this.session = session;
+        this.transaction = session.beginTransaction();
+        this.joined = new JoinedTransaction();
+    }
+
+    boolean isOwnedBy(CustomHibernate customHibernate) {
+        return owner == customHibernate;
+    }
+
+    Session getSession() {
+        return session;
+    }
+
+    /**
+     * @return transaction for an operation joining the unit
+     */
+    Transaction join() {
+        return joined;
+    }
+
+    /**
+     * Run the task once the unit has been committed or rolled back, e.g. a
+     * cache invalidation that must not happen before the writes are visible
+     *
+     * @param task
+     */
+    void afterCompletion(Runnable task) {
+        afterCompletion.add(task);
+    }
+
+    void runAfterCompletion() {
+
+        for (Runnable task : afterCompletion) {
+            task.run();
+        }
+        afterCompletion.clear();
+    }
+
+    boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    void commit() {
+        transaction.commit();
+    }
+
+    void rollback() {
+
+        if (transaction.getStatus().canRollback()) {
+            transaction.rollback();
+        }
+    }
+
+    private final class JoinedTransaction implements Transaction {
+
+        @Override
+        public void begin() {
+            //begun by inUnitOfWork
+        }
+
+        @Override
+        public void commit() {
+            //committed by inUnitOfWork
+        }
+
+        @Override
+        public void rollback() {
+            rollbackOnly = Boolean.TRUE;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            rollbackOnly = Boolean.TRUE;
+        }
+
+        public void markRollbackOnly() {
+            rollbackOnly = Boolean.TRUE;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        @Override
+        public boolean isActive() {
+            return transaction.isActive();
+        }
+
+        @Override
+        public TransactionStatus getStatus() {
+            return transaction.getStatus();
+        }
+
+        @Override
+        public void registerSynchronization(Synchronization synchronization) throws HibernateException {
+            transaction.registerSynchronization(synchronization);
+        }
+
+        @Override
+        public void setTimeout(int seconds) {
+            transaction.setTimeout(seconds);
+        }
+
+        @Override
+        public int getTimeout() {
+            return transaction.getTimeout();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.library.hibernate;
+
+import com.library.customexception.MyCustomException;
+import com.library.hibernate.utils.HibernateProperties;
+import com.library.sglogger.util.LoggerUtil;
+import com.library.sgsharedinterface.DBInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in write-behind mode for single entity writes. Instead of a session,
+ * transaction and commit per entity, saveEntity, saveOrUpdateEntity and
+ * updateEntity queue the entity and return at once. A writer thread applies
+ * the queued writes in one transaction (flushed as JDBC batches) once
+ * batch_size writes are waiting or flush_interval_ms after the first one
+ * was queued, whichever comes first.
+ *
+ * The returned future completes after the commit, so a caller that needs the
+ * write to be durable waits on it. When the transaction fails the writes of
+ * that batch are retried one by one, so only the bad entities fail.
+ *
+ * The buffer is bounded: a write waits up to offer_timeout_ms for room and
+ * its future then fails with a RejectedExecutionException. So do writes
+ * queued while the buffer closes and writes still queued when the writer
+ * stops or close times out, no future is left pending.
+ *
+ * A new entity queued with saveOrUpdateEntity keeps the id it was given in a
+ * failed batch, its retry then fails as an update of a missing row. Use
+ * saveEntity for new entities.
+ *
+ * Entities with IDENTITY ids are inserted one statement at a time by
+ * Hibernate, they still share the commit.
+ *
+ * @author smallgod
+ */
+public final class WriteBehindBuffer {
+
+    private static final LoggerUtil LOGGER = new LoggerUtil(WriteBehindBuffer.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50L;
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 1000L;
+
+    enum Operation {
+        SAVE, SAVE_OR_UPDATE, UPDATE
+    }
+
+    private final CustomHibernate customHibernate;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong retriedBatchCount = new AtomicLong();
+
+    public WriteBehindBuffer(CustomHibernate customHibernate) {
+
+        this.customHibernate = customHibernate;
+
+        Properties properties = customHibernate.getHibernateProperties();
+        this.batchSize = Math.max(1, HibernateProperties.getInt(properties, HibernateProperties.WRITE_BEHIND_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+        this.flushIntervalMillis = HibernateProperties.getLong(properties, HibernateProperties.WRITE_BEHIND_FLUSH_INTERVAL_MS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+        this.offerTimeoutMillis = HibernateProperties.getLong(properties, HibernateProperties.WRITE_BEHIND_OFFER_TIMEOUT_MS, DEFAULT_OFFER_TIMEOUT_MILLIS);
+        this.queue = new ArrayBlockingQueue<>(HibernateProperties.getInt(properties, HibernateProperties.WRITE_BEHIND_CAPACITY, DEFAULT_CAPACITY));
+
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "sghibernate-write-behind");
+        this.writer.setDaemon(Boolean.TRUE);
+        this.writer.start();
+
+        LOGGER.debug("Write-behind buffer: batches of " + batchSize + " every " + flushIntervalMillis + "ms, capacity " + queue.remainingCapacity());
+    }
+
+    /**
+     * Queue an entity to be saved
+     *
+     * @param entity
+     * @return completes with the database ID once committed
+     */
+    public CompletableFuture<Object> saveEntity(DBInterface entity) {
+        return enqueue(Operation.SAVE, entity);
+    }
+
+    /**
+     * Queue an entity to be saved or updated
+     *
+     * @param entity
+     * @return completes once committed
+     */
+    public CompletableFuture<Object> saveOrUpdateEntity(DBInterface entity) {
+        return enqueue(Operation.SAVE_OR_UPDATE, entity);
+    }
+
+    /**
+     * Queue an entity to be updated
+     *
+     * @param entity
+     * @return completes once committed
+     */
+    public CompletableFuture<Object> updateEntity(DBInterface entity) {
+        return enqueue(Operation.UPDATE, entity);
+    }
+
+    private CompletableFuture<Object> enqueue(Operation operation, DBInterface entity) {
+
+        PendingWrite write = new PendingWrite(operation, entity);
+
+        if (closed) {
+            return reject(write, "Write-behind buffer is closed");
+        }
+
+        try {
+            if (!queue.offer(write, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return reject(write, "Write-behind buffer full, " + queue.size() + " writes waiting");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return reject(write, "Interrupted waiting for room in the write-behind buffer");
+        }
+
+        //closed while offering, the writer may already have exited
+        if (closed && queue.remove(write)) {
+            return reject(write, "Write-behind buffer is closed");
+        }
+
+        return write.future;
+    }
+
+    private CompletableFuture<Object> reject(PendingWrite write, String reason) {
+
+        rejectedCount.incrementAndGet();
+        LOGGER.warn(reason);
+        write.future.completeExceptionally(new RejectedExecutionException(reason));
+        return write.future;
+    }
+
+    private void writeLoop() {
+
+        try {
+            writeQueued();
+        } finally {
+            failQueued("Write-behind writer stopped");
+        }
+    }
+
+    private void writeQueued() {
+
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+
+        while (!closed || !queue.isEmpty()) {
+
+            try {
+                PendingWrite first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize) {
+
+                    queue.drainTo(batch, batchSize - batch.size());
+
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0 || closed) {
+                        break;
+                    }
+
+                    PendingWrite next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+            } catch (InterruptedException ex) {
+                //stop taking writes, what is queued is still written
+                closed = Boolean.TRUE;
+            }
+
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (Throwable ex) {
+                    LOGGER.error("Write-behind batch of " + batch.size() + " failed: " + ex.toString());
+                    for (PendingWrite write : batch) {
+                        if (write.future.completeExceptionally(ex)) {
+                            failedCount.incrementAndGet();
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+
+        try {
+            List<Object> ids = customHibernate.writeBatch(batch);
+            batchCount.incrementAndGet();
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(ids.get(i));
+            }
+            writtenCount.addAndGet(batch.size());
+            return;
+
+        } catch (MyCustomException ex) {
+            LOGGER.warn("Write-behind batch of " + batch.size() + " failed, retrying one by one: " + ex.toString());
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Write-behind batch of " + batch.size() + " failed, retrying one by one: " + ex.toString());
+        }
+
+        retriedBatchCount.incrementAndGet();
+
+        for (PendingWrite write : batch) {
+
+            try {
+                write.future.complete(customHibernate.writeBatch(Collections.singletonList(write)).get(0));
+                writtenCount.incrementAndGet();
+
+            } catch (MyCustomException ex) {
+                failedCount.incrementAndGet();
+                write.future.completeExceptionally(ex);
+            } catch (RuntimeException ex) {
+                failedCount.incrementAndGet();
+                write.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Fail the futures of the writes still queued
+     *
+     * @param reason
+     */
+    private void failQueued(String reason) {
+
+        List<PendingWrite> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (leftover.isEmpty()) {
+            return;
+        }
+
+        rejectedCount.addAndGet(leftover.size());
+        LOGGER.warn(reason + ", " + leftover.size() + " queued writes not written");
+
+        for (PendingWrite write : leftover) {
+            write.future.completeExceptionally(new RejectedExecutionException(reason));
+        }
+    }
+
+    /**
+     * Stop taking writes, write what is queued and wait up to timeoutMillis
+     * for it to be committed. Writes still queued after that fail with a
+     * RejectedExecutionException, the batch being written is let finish
+     *
+     * @param timeoutMillis
+     * @return true if everything queued was written in time
+     * @throws InterruptedException
+     */
+    public boolean close(long timeoutMillis) throws InterruptedException {
+
+        closed = Boolean.TRUE;
+        writer.join(timeoutMillis);
+
+        if (writer.isAlive()) {
+            failQueued("Write-behind buffer closed before its writes were written");
+            return Boolean.FALSE;
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @return writes queued and not yet committed
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return writes committed
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return writes that failed on their own after a batch failed
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return writes refused because the buffer was full or closed, or
+     * dropped from the queue when the writer stopped
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return batches committed in one transaction
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return batches whose transaction failed and were retried one by one
+     */
+    public long getRetriedBatchCount() {
+        return retriedBatchCount.get();
+    }
+
+    static final class PendingWrite {
+
+        private final Operation operation;
+        private final DBInterface entity;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private PendingWrite(Operation operation, DBInterface entity) {
+            this.operation = operation;
+            this.entity = entity;
+        }
+
+        Operation getOperation() {
+            return operation;
+        }
+
+        DBInterface getEntity() {
+            return entity;
+        }
+    }
+}
@@ -29,9 +29,13 @@ import com.library.sgsharedinterface.Auditable;
 import com.library.sglogger.util.LoggerUtil;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.type.Type;
 import org.joda.time.LocalDateTime;
 
@@ -40,12 +44,30 @@ public class AuditTrailInterceptor extends EmptyInterceptor {
     private static final LoggerUtil logger = new LoggerUtil(AuditTrailInterceptor.class);
     private static final long serialVersionUID = 5997616111315960747L;
 
+    private final transient NamedQueryResultCache queryResultCache;
+
+    /**
+     * Entity types saved, updated or deleted in the current thread's
+     * transaction on this interceptor's SessionFactory. Removed when the
+     * transaction completes, so pooled threads keep nothing
+     */
+    private final transient ThreadLocal<Set<Class>> writtenTypes = new ThreadLocal<>();
+
     public AuditTrailInterceptor() {
+        this(null);
+    }
+
+    /**
+     * @param queryResultCache invalidated for every entity type written
+     */
+    public AuditTrailInterceptor(NamedQueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
     }
 
     @Override
     public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
         logger.debug("Delete event");
+        recordWrite(entity);
     }
 
     @Override
@@ -60,6 +82,8 @@ public class AuditTrailInterceptor extends EmptyInterceptor {
 
         logger.debug("onSave called");
 
+        recordWrite(entity);
+
         if (entity instanceof Auditable) {
             setValue(state, propertyNames, NamedConstants.PROPNAME_CREATED_BY, ((Auditable) entity).getUsername());
             setValue(state, propertyNames, NamedConstants.PROPNAME_CREATED_ON, new LocalDateTime());
@@ -160,6 +184,11 @@ public class AuditTrailInterceptor extends EmptyInterceptor {
         logger.debug("postFlush operation, after commiting to db  >> postFlush event");
         logger.debug("preFlush: List of objects to flush... ");
 
+        Set<Class> written = writtenTypes.get();
+        if (queryResultCache != null && written != null) {
+            queryResultCache.invalidate(written);
+        }
+
         int i = 0;
         while (entities.hasNext()) {
 
@@ -231,11 +260,46 @@ public class AuditTrailInterceptor extends EmptyInterceptor {
         }
     }
 
+    /**
+     * Invalidate again once the writes are committed (or rolled back), a
+     * reader may have cached the old rows between the flush and the commit
+     *
+     * @param tx
+     */
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+
+        Set<Class> written = writtenTypes.get();
+        writtenTypes.remove();
+
+        if (queryResultCache != null && written != null) {
+            queryResultCache.invalidate(written);
+        }
+    }
+
+    private void recordWrite(Object entity) {
+
+        if (queryResultCache != null) {
+            Class entityType = entity instanceof HibernateProxy
+                    ? ((HibernateProxy) entity).getHibernateLazyInitializer().getPersistentClass()
+                    : entity.getClass();
+
+            Set<Class> written = writtenTypes.get();
+            if (written == null) {
+                written = new HashSet<>();
+                writtenTypes.set(written);
+            }
+            written.add(entityType);
+        }
+    }
+
     @Override
     public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState, String[] propertyNames, Type[] types) {
 
         logger.debug("Update Operation >> onFlushDirty event");
 
+        recordWrite(entity);
+
         if (entity instanceof Auditable) {
 
             logger.debug("this is where we add some audit trail but for now leave it out till we get a proper way to deal with the 2 ever increasing string length");
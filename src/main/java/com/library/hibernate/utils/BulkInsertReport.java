@@ -0,0 +1,106 @@
+package com.library.hibernate.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of CustomHibernate.insertBulkWithStatistics: the statistics of
+ * every batch and the batching settings they ran with, so an ingestion job
+ * can check that it really gets batched (multi-row) inserts
+ *
+ * @author smallgod
+ */
+public final class BulkInsertReport {
+
+    private final List<InsertBatchStatistics> batches;
+    private final int batchSize;
+    private final Boolean rewriteBatchedStatements;
+    private final long elapsedNanos;
+
+    /**
+     * @param batches
+     * @param batchSize
+     * @param rewriteBatchedStatements as read from the connection, null if
+     * unknown
+     * @param elapsedNanos
+     */
+    public BulkInsertReport(List<InsertBatchStatistics> batches, int batchSize, Boolean rewriteBatchedStatements, long elapsedNanos) {
+        this.batches = Collections.unmodifiableList(batches);
+        this.batchSize = batchSize;
+        this.rewriteBatchedStatements = rewriteBatchedStatements;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<InsertBatchStatistics> getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return JDBC batch size the insert ran with
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return true if the Connector/J connection the insert ran on rewrites
+     * batches into multi-row inserts. False if it does not, or if that could
+     * not be read from the connection
+     */
+    public boolean isRewriteBatchedStatements() {
+        return Boolean.TRUE.equals(rewriteBatchedStatements);
+    }
+
+    /**
+     * @return rewriteBatchedStatements of the connection, null if it is not a
+     * Connector/J connection or the pool would not unwrap it
+     */
+    public Boolean getRewriteBatchedStatements() {
+        return rewriteBatchedStatements;
+    }
+
+    /**
+     * @return time of the whole insert, commit included
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getRows() {
+
+        int rows = 0;
+        for (InsertBatchStatistics batch : batches) {
+            rows += batch.getRows();
+        }
+        return rows;
+    }
+
+    public int getStatements() {
+
+        int statements = 0;
+        for (InsertBatchStatistics batch : batches) {
+            statements += batch.getStatements();
+        }
+        return statements;
+    }
+
+    /**
+     * @return true if every batch of more than one row took fewer statements
+     * than rows. False e.g. for IDENTITY ids, which Hibernate never batches
+     */
+    public boolean isBatched() {
+
+        for (InsertBatchStatistics batch : batches) {
+            if (batch.getRows() > 1 && !batch.isBatched()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkInsertReport [rows=" + getRows() + ", statements=" + getStatements() + ", batches=" + batches.size()
+                + ", batchSize=" + batchSize + ", rewriteBatchedStatements=" + (rewriteBatchedStatements == null ? "unknown" : rewriteBatchedStatements) + ", ms=" + (elapsedNanos / 1000000L) + "]";
+    }
+}
@@ -0,0 +1,54 @@
+package com.library.hibernate.utils;
+
+/**
+ * Hit/miss counts of one second level cache region since it was created
+ *
+ * @author smallgod
+ */
+public final class CacheRegionStatistics {
+
+    private final String regionName;
+    private final long hitCount;
+    private final long missCount;
+    private final long size;
+
+    public CacheRegionStatistics(String regionName, long hitCount, long missCount, long size) {
+        this.regionName = regionName;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.size = size;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return entries currently held
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return hits over lookups, 0 if there were no lookups
+     */
+    public double getHitRatio() {
+
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return regionName + " [hits=" + hitCount + ", misses=" + missCount + ", size=" + size + "]";
+    }
+}
@@ -0,0 +1,212 @@
+package com.library.hibernate.utils;
+
+import com.library.datamodel.Constants.AdSlotsReserve;
+import com.library.datamodel.Constants.CampaignStatus;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.LocalDateTime;
+
+/**
+ * AdProgram status column updates collected over a scheduler tick and
+ * applied together by CustomHibernate.updateCampaignColumns. Updates to the
+ * same program are merged, the last one wins: a status change sets every
+ * status column, a later sameStatusPick only replaces the pick.
+ *
+ * Programs getting the same values are updated by one statement, so a tick
+ * costs one statement per distinct set of values instead of one per program.
+ * Each program keeps its own statusChangeTime, it is not part of the values
+ * programs are grouped on.
+ *
+ * @author smallgod
+ */
+public final class CampaignUpdateBatch {
+
+    private final Map<Long, Object> updates = new LinkedHashMap<>();
+    private int mergedCount;
+
+    /**
+     * Same as updateCampaignSameStatusColumns
+     *
+     * @param sameStatusPick
+     * @param id
+     * @return
+     */
+    public CampaignUpdateBatch sameStatusPick(int sameStatusPick, long id) {
+
+        Object previous = updates.get(id);
+
+        if (previous instanceof StatusChange) {
+            StatusChange change = (StatusChange) previous;
+            put(id, new StatusChange(change.campaignStatus, change.slotsReserve, change.description, sameStatusPick, change.statusChangeTime));
+        } else {
+            put(id, sameStatusPick);
+        }
+        return this;
+    }
+
+    /**
+     * Same as updateCampaignStatusChangeColumns
+     *
+     * @param campaignStatus
+     * @param slotsReserve
+     * @param description
+     * @param sameStatusPick
+     * @param statusChangeTime
+     * @param id
+     * @return
+     */
+    public CampaignUpdateBatch statusChange(CampaignStatus campaignStatus, AdSlotsReserve slotsReserve, String description, int sameStatusPick, LocalDateTime statusChangeTime, long id) {
+
+        put(id, new StatusChange(campaignStatus, slotsReserve, description, sameStatusPick, statusChangeTime));
+        return this;
+    }
+
+    private void put(long id, Object update) {
+
+        if (updates.put(id, update) != null) {
+            mergedCount++;
+        }
+    }
+
+    /**
+     * @return programs to update
+     */
+    public int size() {
+        return updates.size();
+    }
+
+    public boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    /**
+     * @return updates dropped because a later one replaced them
+     */
+    public int getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * @return ids of the programs that only get a new sameStatusPick, by pick
+     */
+    public Map<Integer, List<Long>> getSameStatusPicks() {
+
+        Map<Integer, List<Long>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Long, Object> update : updates.entrySet()) {
+            if (update.getValue() instanceof Integer) {
+                addToGroup(groups, (Integer) update.getValue(), update.getKey());
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * @return ids of the programs whose status changes, with their own
+     * statusChangeTime, by new column values (statusChangeTime aside)
+     */
+    public Map<StatusChange, Map<Long, LocalDateTime>> getStatusChanges() {
+
+        Map<StatusChange, Map<Long, LocalDateTime>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Long, Object> update : updates.entrySet()) {
+            if (update.getValue() instanceof StatusChange) {
+
+                StatusChange change = (StatusChange) update.getValue();
+                Map<Long, LocalDateTime> times = groups.get(change);
+                if (times == null) {
+                    times = new LinkedHashMap<>();
+                    groups.put(change, times);
+                }
+                times.put(update.getKey(), change.statusChangeTime);
+            }
+        }
+        return groups;
+    }
+
+    private static <K> void addToGroup(Map<K, List<Long>> groups, K values, Long id) {
+
+        List<Long> ids = groups.get(values);
+        if (ids == null) {
+            ids = new ArrayList<>();
+            groups.put(values, ids);
+        }
+        ids.add(id);
+    }
+
+    /**
+     * New values of the status change columns. Two changes are equal when
+     * they set the same values apart from statusChangeTime, which is stamped
+     * per program
+     */
+    public static final class StatusChange {
+
+        private final CampaignStatus campaignStatus;
+        private final AdSlotsReserve slotsReserve;
+        private final String description;
+        private final int sameStatusPick;
+        private final LocalDateTime statusChangeTime;
+
+        private StatusChange(CampaignStatus campaignStatus, AdSlotsReserve slotsReserve, String description, int sameStatusPick, LocalDateTime statusChangeTime) {
+            this.campaignStatus = campaignStatus;
+            this.slotsReserve = slotsReserve;
+            this.description = description;
+            this.sameStatusPick = sameStatusPick;
+            this.statusChangeTime = statusChangeTime;
+        }
+
+        public CampaignStatus getCampaignStatus() {
+            return campaignStatus;
+        }
+
+        public AdSlotsReserve getSlotsReserve() {
+            return slotsReserve;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public int getSameStatusPick() {
+            return sameStatusPick;
+        }
+
+        /**
+         * @return time of this program's change, in a group of
+         * getStatusChanges the time of its first program
+         */
+        public LocalDateTime getStatusChangeTime() {
+            return statusChangeTime;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof StatusChange)) {
+                return false;
+            }
+            StatusChange other = (StatusChange) obj;
+            return sameStatusPick == other.sameStatusPick
+                    && same(campaignStatus, other.campaignStatus)
+                    && same(slotsReserve, other.slotsReserve)
+                    && same(description, other.description);
+        }
+
+        private static boolean same(Object value, Object otherValue) {
+            return value == null ? otherValue == null : value.equals(otherValue);
+        }
+
+        @Override
+        public int hashCode() {
+
+            int hash = campaignStatus == null ? 0 : campaignStatus.hashCode();
+            hash = 31 * hash + (slotsReserve == null ? 0 : slotsReserve.hashCode());
+            hash = 31 * hash + (description == null ? 0 : description.hashCode());
+            hash = 31 * hash + sameStatusPick;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.library.hibernate.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a chunked saveBulk/updateBulk: the committed and failed ranges
+ * of the input, in input order
+ *
+ * @author smallgod
+ */
+public final class ChunkedWriteReport {
+
+    private final List<WriteRange> ranges;
+    private final int chunkCount;
+    private final int committedChunkCount;
+
+    public ChunkedWriteReport(List<WriteRange> ranges, int chunkCount, int committedChunkCount) {
+        this.ranges = Collections.unmodifiableList(ranges);
+        this.chunkCount = chunkCount;
+        this.committedChunkCount = committedChunkCount;
+    }
+
+    public List<WriteRange> getRanges() {
+        return ranges;
+    }
+
+    public List<WriteRange> getFailedRanges() {
+
+        List<WriteRange> failed = new ArrayList<>();
+        for (WriteRange range : ranges) {
+            if (!range.isSucceeded()) {
+                failed.add(range);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return every entity that was not written
+     */
+    public List<Object> getFailedEntities() {
+
+        List<Object> failed = new ArrayList<>();
+        for (WriteRange range : ranges) {
+            failed.addAll(range.getFailedEntities());
+        }
+        return failed;
+    }
+
+    public int getSucceededCount() {
+
+        int succeeded = 0;
+        for (WriteRange range : ranges) {
+            if (range.isSucceeded()) {
+                succeeded += range.size();
+            }
+        }
+        return succeeded;
+    }
+
+    public int getFailedCount() {
+
+        int failed = 0;
+        for (WriteRange range : ranges) {
+            if (!range.isSucceeded()) {
+                failed += range.size();
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return chunks the input was split into
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * @return chunks committed whole, without a row by row retry
+     */
+    public int getCommittedChunkCount() {
+        return committedChunkCount;
+    }
+
+    public boolean isComplete() {
+        return getFailedCount() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkedWriteReport [succeeded=" + getSucceededCount() + ", failed=" + getFailedCount()
+                + ", chunks=" + chunkCount + ", committedChunks=" + committedChunkCount + ", failedRanges=" + getFailedRanges() + "]";
+    }
+}
@@ -0,0 +1,21 @@
+package com.library.hibernate.utils;
+
+/**
+ * JMX view of HikariConnectionProvider, registered by
+ * CustomHibernate.initialiseDBResources under
+ * com.library.hibernate:type=ConnectionPool
+ *
+ * @author smallgod
+ */
+public interface ConnectionPoolMXBean {
+
+    /**
+     * @return connection counts and the time spent waiting for a connection
+     */
+    public ConnectionPoolStats getStats();
+
+    /**
+     * Start the wait times from zero
+     */
+    public void resetWaitTimes();
+}
@@ -0,0 +1,97 @@
+package com.library.hibernate.utils;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Point in time state of the HikariCP pool, wait times in microseconds.
+ * Shown as CompositeData by the ConnectionPool MBean
+ *
+ * @author smallgod
+ */
+public final class ConnectionPoolStats {
+
+    private final int maximumPoolSize;
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int pendingThreads;
+    private final long acquireCount;
+    private final long timeoutCount;
+    private final long waitMeanMicros;
+    private final long waitP99Micros;
+    private final long waitMaxMicros;
+
+    @ConstructorProperties({"maximumPoolSize", "totalConnections", "activeConnections", "idleConnections", "pendingThreads", "acquireCount", "timeoutCount",
+        "waitMeanMicros", "waitP99Micros", "waitMaxMicros"})
+    public ConnectionPoolStats(int maximumPoolSize, int totalConnections, int activeConnections, int idleConnections, int pendingThreads, long acquireCount, long timeoutCount,
+            long waitMeanMicros, long waitP99Micros, long waitMaxMicros) {
+        this.maximumPoolSize = maximumPoolSize;
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingThreads = pendingThreads;
+        this.acquireCount = acquireCount;
+        this.timeoutCount = timeoutCount;
+        this.waitMeanMicros = waitMeanMicros;
+        this.waitP99Micros = waitP99Micros;
+        this.waitMaxMicros = waitMaxMicros;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * @return connections handed out
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * @return threads waiting for a connection
+     */
+    public int getPendingThreads() {
+        return pendingThreads;
+    }
+
+    /**
+     * @return connections handed out since start
+     */
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * @return requests that gave up waiting for a connection
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getWaitMeanMicros() {
+        return waitMeanMicros;
+    }
+
+    public long getWaitP99Micros() {
+        return waitP99Micros;
+    }
+
+    public long getWaitMaxMicros() {
+        return waitMaxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + activeConnections + " idle=" + idleConnections + " total=" + totalConnections + "/" + maximumPoolSize + " pending=" + pendingThreads
+                + " acquired=" + acquireCount + " timeouts=" + timeoutCount + " waitMeanUs=" + waitMeanMicros + " waitP99Us=" + waitP99Micros + " waitMaxUs=" + waitMaxMicros;
+    }
+}
@@ -0,0 +1,413 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import com.library.utilities.GeneralUtils;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.hibernate.MappingException;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.Query;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+
+/**
+ * Binds every filterable property path of every mapped entity to its Java
+ * type once, when the SessionFactory is built, so the property name/values
+ * maps of CustomHibernate can be converted without per-method switch blocks.
+ *
+ * Paths cover plain properties ("displayDate"), composite id members
+ * ("id.fileId") and properties one association away ("adBusiness.businessId",
+ * "audienceTypes.id"). For a path that needs a join (through a collection, or
+ * to a non-id property of a many-to-one) getJoinPath() gives the association
+ * to alias.
+ *
+ * Named query parameters are bound lazily from the parameter types Hibernate
+ * infers for the query, and cached.
+ *
+ * Lookups run for every filter property of every fetch, so no lock is taken:
+ * the bindings are concurrent maps, written once here and by register.
+ *
+ * @author smallgod
+ */
+public final class FilterConverterRegistry {
+
+    private static final LoggerUtil LOG = new LoggerUtil(FilterConverterRegistry.class);
+
+    private static final ValueConverter IDENTITY = new ValueConverter() {
+        @Override
+        public Object convert(Object value) {
+            return value;
+        }
+    };
+
+    /**
+     * Map keys that historically bind to a differently named query parameter
+     */
+    private static final Map<String, String> PARAMETER_ALIASES = new HashMap<>();
+
+    static {
+        PARAMETER_ALIASES.put("audienceTypes.id", "id");
+    }
+
+    private final ConcurrentMap<Class, ConcurrentMap<String, PropertyBinding>> entityBindings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class, ValueConverter> typeConverters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ValueConverter> parameterConverters = new ConcurrentHashMap<>();
+
+    public FilterConverterRegistry(SessionFactory sessionFactory) {
+
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+
+        for (javax.persistence.metamodel.EntityType<?> entity : factory.getMetamodel().getEntities()) {
+
+            EntityPersister persister = factory.getMetamodel().entityPersister(entity.getJavaType());
+            ConcurrentMap<String, PropertyBinding> bindings = new ConcurrentHashMap<>();
+
+            if (persister.getIdentifierPropertyName() != null) {
+                bind(factory, bindings, persister.getIdentifierPropertyName(), persister.getIdentifierType(), null, Boolean.TRUE);
+            }
+
+            String[] names = persister.getPropertyNames();
+            Type[] types = persister.getPropertyTypes();
+            for (int i = 0; i < names.length; i++) {
+                bind(factory, bindings, names[i], types[i], null, Boolean.TRUE);
+            }
+
+            entityBindings.put(entity.getJavaType(), bindings);
+        }
+
+        LOG.debug("Filter converters bound for " + entityBindings.size() + " entities");
+    }
+
+    /**
+     * Register a custom converter for a property path, e.g. for a user type
+     * whose values need special parsing
+     *
+     * @param entityType
+     * @param propertyPath
+     * @param converter
+     */
+    public void register(Class entityType, String propertyPath, ValueConverter converter) {
+
+        ConcurrentMap<String, PropertyBinding> bindings = entityBindings.get(entityType);
+        if (bindings == null) {
+            ConcurrentMap<String, PropertyBinding> created = new ConcurrentHashMap<>();
+            bindings = entityBindings.putIfAbsent(entityType, created);
+            if (bindings == null) {
+                bindings = created;
+            }
+        }
+
+        PropertyBinding existing = bindings.get(propertyPath);
+        bindings.put(propertyPath, new PropertyBinding(converter, existing == null ? null : existing.joinPath));
+    }
+
+    /**
+     * Convert the filter values of an entity property. The given collection is
+     * returned as is when its values already have the property type.
+     *
+     * @param entityType
+     * @param propertyPath
+     * @param values
+     * @return
+     */
+    public Collection<Object> convertAll(Class entityType, String propertyPath, Collection<Object> values) {
+
+        PropertyBinding binding = getBinding(entityType, propertyPath);
+        return convertAll(binding == null ? IDENTITY : binding.converter, values);
+    }
+
+    /**
+     * Association to join (createAlias) to restrict on the property path
+     *
+     * @param entityType
+     * @param propertyPath
+     * @return association path, or null if no join is needed
+     */
+    public String getJoinPath(Class entityType, String propertyPath) {
+
+        PropertyBinding binding = getBinding(entityType, propertyPath);
+        return binding == null ? null : binding.joinPath;
+    }
+
+    /**
+     * Name of the query parameter a property name/values map key binds to
+     *
+     * @param key
+     * @return
+     */
+    public String getParameterName(String key) {
+
+        String parameterName = PARAMETER_ALIASES.get(key);
+        return parameterName == null ? key : parameterName;
+    }
+
+    /**
+     * Convert the values of a named query list parameter to the parameter
+     * type Hibernate inferred for it
+     *
+     * @param namedQuery
+     * @param query
+     * @param parameterName
+     * @param values
+     * @return
+     */
+    public Collection<Object> convertParameterValues(String namedQuery, Query query, String parameterName, Collection<Object> values) {
+        return convertAll(getParameterConverter(namedQuery, query, parameterName), values);
+    }
+
+    /**
+     * Convert the value of a named query parameter to the parameter type
+     * Hibernate inferred for it
+     *
+     * @param namedQuery
+     * @param query
+     * @param parameterName
+     * @param value
+     * @return
+     */
+    public Object convertParameterValue(String namedQuery, Query query, String parameterName, Object value) {
+        return value == null ? null : getParameterConverter(namedQuery, query, parameterName).convert(value);
+    }
+
+    private ValueConverter getParameterConverter(String namedQuery, Query query, String parameterName) {
+
+        String key = namedQuery + "#" + parameterName;
+        ValueConverter converter = parameterConverters.get(key);
+
+        if (converter == null) {
+
+            converter = IDENTITY;
+            try {
+                Class parameterType = query.getParameter(parameterName).getParameterType();
+                if (parameterType != null) {
+                    converter = converterFor(parameterType);
+                }
+            } catch (IllegalArgumentException ex) {
+                LOG.warn("No parameter: " + parameterName + " in named query: " + namedQuery);
+            }
+            parameterConverters.putIfAbsent(key, converter);
+        }
+        return converter;
+    }
+
+    private PropertyBinding getBinding(Class entityType, String propertyPath) {
+
+        Map<String, PropertyBinding> bindings = entityBindings.get(entityType);
+        return bindings == null ? null : bindings.get(propertyPath);
+    }
+
+    private void bind(SessionFactoryImplementor factory, Map<String, PropertyBinding> bindings, String path, Type type, String joinPath, boolean followAssociations) {
+
+        if (type.isComponentType()) {
+
+            CompositeType componentType = (CompositeType) type;
+            String[] names = componentType.getPropertyNames();
+            Type[] subtypes = componentType.getSubtypes();
+            for (int i = 0; i < names.length; i++) {
+                bind(factory, bindings, path + "." + names[i], subtypes[i], joinPath, followAssociations);
+            }
+
+        } else if (type.isCollectionType()) {
+
+            Type elementType = ((CollectionType) type).getElementType(factory);
+            if (followAssociations && elementType.isEntityType()) {
+                bindAssociation(factory, bindings, path, (EntityType) elementType, Boolean.TRUE);
+            }
+
+        } else if (type.isEntityType()) {
+
+            if (followAssociations) {
+                bindAssociation(factory, bindings, path, (EntityType) type, Boolean.FALSE);
+            }
+
+        } else {
+            bindings.put(path, new PropertyBinding(converterFor(type.getReturnedClass()), joinPath));
+        }
+    }
+
+    private void bindAssociation(SessionFactoryImplementor factory, Map<String, PropertyBinding> bindings, String path, EntityType associationType, boolean isCollection) {
+
+        EntityPersister target;
+        try {
+            target = factory.getMetamodel().entityPersister(associationType.getAssociatedEntityName());
+        } catch (MappingException ex) {
+            return;
+        }
+
+        //the id of a many-to-one is the foreign key column, no join needed
+        if (target.getIdentifierPropertyName() != null) {
+            bind(factory, bindings, path + "." + target.getIdentifierPropertyName(), target.getIdentifierType(), isCollection ? path : null, Boolean.FALSE);
+        }
+
+        String[] names = target.getPropertyNames();
+        Type[] types = target.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            bind(factory, bindings, path + "." + names[i], types[i], path, Boolean.FALSE);
+        }
+    }
+
+    private static Collection<Object> convertAll(ValueConverter converter, Collection<Object> values) {
+
+        if (converter == IDENTITY) {
+            return values;
+        }
+
+        Set<Object> converted = null;
+        for (Object value : values) {
+
+            Object convertedValue = converter.convert(value);
+
+            if (converted == null && convertedValue != value) {
+                //first value that needed converting, copy what was seen so far
+                converted = new HashSet<>();
+                for (Object seen : values) {
+                    if (seen == value) {
+                        break;
+                    }
+                    converted.add(seen);
+                }
+            }
+            if (converted != null) {
+                converted.add(convertedValue);
+            }
+        }
+
+        return converted == null ? values : converted;
+    }
+
+    private ValueConverter converterFor(final Class javaType) {
+
+        ValueConverter converter = typeConverters.get(javaType);
+
+        if (converter == null) {
+            converter = createConverter(javaType);
+            typeConverters.putIfAbsent(javaType, converter);
+        }
+        return converter;
+    }
+
+    private static ValueConverter createConverter(final Class javaType) {
+
+        if (javaType == Long.class || javaType == long.class) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(Object value) {
+                    return value instanceof Long ? value : GeneralUtils.convertObjectToLong(value);
+                }
+            };
+
+        } else if (javaType == Integer.class || javaType == int.class) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(Object value) {
+                    return value instanceof Integer ? value : GeneralUtils.convertObjectToInteger(value);
+                }
+            };
+
+        } else if (javaType == Boolean.class || javaType == boolean.class) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(Object value) {
+                    return value instanceof Boolean ? value : Boolean.valueOf(String.valueOf(value));
+                }
+            };
+
+        } else if (javaType == String.class) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(Object value) {
+                    return value instanceof String ? value : String.valueOf(value);
+                }
+            };
+
+        } else if (javaType == LocalDate.class) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(Object value) {
+                    return value instanceof LocalDate ? value : new LocalDate(value);
+                }
+            };
+
+        } else if (javaType == LocalDateTime.class) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(Object value) {
+                    return value instanceof LocalDateTime ? value : new LocalDateTime(value);
+                }
+            };
+
+        } else if (javaType.isEnum()) {
+            return new EnumConverter(javaType);
+        }
+
+        return IDENTITY;
+    }
+
+    /**
+     * Enums are taken as is, strings go through the enum's own static
+     * convertToEnum(String) when it has one, else Enum.valueOf
+     */
+    private static final class EnumConverter implements ValueConverter {
+
+        private final Class enumType;
+        private final Method convertToEnum;
+
+        private EnumConverter(Class enumType) {
+
+            this.enumType = enumType;
+
+            Method method = null;
+            try {
+                method = enumType.getMethod("convertToEnum", String.class);
+                if (!Modifier.isStatic(method.getModifiers()) || !enumType.isAssignableFrom(method.getReturnType())) {
+                    method = null;
+                }
+            } catch (NoSuchMethodException ex) {
+                method = null;
+            }
+            this.convertToEnum = method;
+        }
+
+        @Override
+        public Object convert(Object value) {
+
+            if (enumType.isInstance(value) || value == null) {
+                return value;
+            }
+
+            if (convertToEnum != null) {
+                try {
+                    return convertToEnum.invoke(null, String.valueOf(value));
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalArgumentException("Could not convert: " + value + " to: " + enumType.getName(), ex);
+                }
+            }
+            return Enum.valueOf(enumType, String.valueOf(value));
+        }
+    }
+
+    private static final class PropertyBinding {
+
+        private final ValueConverter converter;
+        private final String joinPath;
+
+        private PropertyBinding(ValueConverter converter, String joinPath) {
+            this.converter = converter;
+            this.joinPath = joinPath;
+        }
+    }
+
+}
@@ -0,0 +1,350 @@
+package com.library.hibernate.utils;
+
+import java.util.Properties;
+
+/**
+ * Library specific settings. They are read from the same hibernate.cfg.xml
+ * that HibernateConfig points to, e.g.
+ *
+ * <pre>
+ * &lt;property name="sghibernate.scroll.streaming"&gt;true&lt;/property&gt;
+ * </pre>
+ *
+ * @author smallgod
+ */
+public final class HibernateProperties {
+
+    /**
+     * Stream the results of streamBulk, streamOnlyColumn and
+     * fetchBulkParallel from MySQL instead of letting Connector/J buffer the
+     * whole result set on the client (default false)
+     */
+    public static final String SCROLL_STREAMING = "sghibernate.scroll.streaming";
+
+    /**
+     * Use a server side cursor (useCursorFetch) and fetch this many rows per
+     * round trip. Unlike row-by-row streaming this allows other statements
+     * (e.g. eager association loads) on the connection while scrolling
+     * (default false)
+     */
+    public static final String SCROLL_CURSOR_FETCH = "sghibernate.scroll.cursor_fetch";
+
+    /**
+     * Rows per round trip when SCROLL_CURSOR_FETCH is on (default 1000)
+     */
+    public static final String SCROLL_FETCH_SIZE = "sghibernate.scroll.fetch_size";
+
+    /**
+     * Upper bound on the threads (and so connections) used by the parallel
+     * bulk reads. Defaults to the connection pool size
+     */
+    public static final String PARALLEL_MAX_THREADS = "sghibernate.parallel.max_threads";
+
+    /**
+     * Comma separated entity class names to keep in the second level cache,
+     * e.g. read-mostly reference tables. The cache is off when empty
+     */
+    public static final String CACHE_ENTITIES = "sghibernate.cache.entities";
+
+    /**
+     * Concurrency strategy of the cached entities (default read-write)
+     */
+    public static final String CACHE_STRATEGY = "sghibernate.cache.strategy";
+
+    /**
+     * Entries kept per region unless overridden for the region (default
+     * 10000)
+     */
+    public static final String CACHE_MAX_ENTRIES = "sghibernate.cache.max_entries";
+
+    /**
+     * Seconds an entry lives unless overridden for the region (default 600)
+     */
+    public static final String CACHE_TTL_SECONDS = "sghibernate.cache.ttl_seconds";
+
+    /**
+     * Prefix of the per region overrides, the region being the entity class
+     * name, e.g.
+     * sghibernate.cache.region.com.library.datamodel.model.v1_0.AdScreenSize.ttl_seconds
+     */
+    public static final String CACHE_REGION_PREFIX = "sghibernate.cache.region.";
+
+    /**
+     * CacheMode of fetches that are not given one (default NORMAL)
+     */
+    public static final String CACHE_MODE = "sghibernate.cache.mode";
+
+    /**
+     * Cache the results of the HQL named queries run by fetchEntities
+     * (default false). Results with entities are only cached for entity types
+     * in the second level cache
+     */
+    public static final String QUERY_CACHE_ENABLED = "sghibernate.query_results.enabled";
+
+    /**
+     * Named query results kept, least recently used go first (default 1000)
+     */
+    public static final String QUERY_CACHE_MAX_ENTRIES = "sghibernate.query_results.max_entries";
+
+    /**
+     * Seconds a named query result is kept (default 60)
+     */
+    public static final String QUERY_CACHE_TTL_SECONDS = "sghibernate.query_results.ttl_seconds";
+
+    /**
+     * Threads running AsyncCustomHibernate calls. Defaults to (and is capped
+     * at) the connection pool size
+     */
+    public static final String ASYNC_THREADS = "sghibernate.async.threads";
+
+    /**
+     * Async calls allowed to wait for a thread (or, in virtual mode, a
+     * connection permit) before new ones are rejected (default 1000, 100000 in
+     * virtual mode)
+     */
+    public static final String ASYNC_QUEUE_SIZE = "sghibernate.async.queue_size";
+
+    /**
+     * platform (default) or virtual. Virtual threads need Java 21 and a jar
+     * built with the virtual-threads profile
+     */
+    public static final String ASYNC_MODE = "sghibernate.async.mode";
+
+    /**
+     * Writes a WriteBehindBuffer commits in one transaction (default 100).
+     * They are flushed in JDBC batches of getInsertBatchSize, so a multiple of
+     * it avoids a short last batch
+     */
+    public static final String WRITE_BEHIND_BATCH_SIZE = "sghibernate.write_behind.batch_size";
+
+    /**
+     * Milliseconds a write waits in the WriteBehindBuffer for a batch to fill
+     * (default 50)
+     */
+    public static final String WRITE_BEHIND_FLUSH_INTERVAL_MS = "sghibernate.write_behind.flush_interval_ms";
+
+    /**
+     * Writes the WriteBehindBuffer holds before callers have to wait (default
+     * 10000)
+     */
+    public static final String WRITE_BEHIND_CAPACITY = "sghibernate.write_behind.capacity";
+
+    /**
+     * Milliseconds a caller waits for room in a full WriteBehindBuffer before
+     * its write is rejected (default 1000)
+     */
+    public static final String WRITE_BEHIND_OFFER_TIMEOUT_MS = "sghibernate.write_behind.offer_timeout_ms";
+
+    /**
+     * Rows per JDBC batch of insertBulk. Defaults to hibernate.jdbc.batch_size
+     * or, if that is not set, DEFAULT_INSERT_BATCH_SIZE
+     */
+    public static final String BULK_INSERT_BATCH_SIZE = "sghibernate.bulk_insert.batch_size";
+
+    /**
+     * Have Connector/J rewrite JDBC batches of inserts into multi-row INSERT
+     * statements (default false). Only passed on to the driver by Hibernate's
+     * own connection provider and the hikari pool; for a JNDI or c3p0
+     * datasource set rewriteBatchedStatements on the datasource.
+     * BulkInsertReport tells what the connection really ran with
+     */
+    public static final String BULK_INSERT_REWRITE_BATCHED_STATEMENTS = "sghibernate.bulk_insert.rewrite_batched_statements";
+
+    /**
+     * Turn on hibernate.generate_statistics and export them (default false)
+     */
+    public static final String STATISTICS_ENABLED = "sghibernate.statistics.enabled";
+
+    /**
+     * Seconds between statistics exports, 0 to only keep the statistics for
+     * CustomHibernate.getStatisticsSnapshot (default 60)
+     */
+    public static final String STATISTICS_EXPORT_INTERVAL_SECONDS = "sghibernate.statistics.export_interval_seconds";
+
+    /**
+     * File the statistics deltas are appended to, a java.util.logging
+     * FileHandler pattern, e.g. %t/sghibernate-stats.%g.log. Exported over JMX
+     * only when empty
+     */
+    public static final String STATISTICS_EXPORT_FILE = "sghibernate.statistics.export_file";
+
+    /**
+     * Bytes written to a statistics file before rolling over to the next one
+     * (default 10MB)
+     */
+    public static final String STATISTICS_EXPORT_FILE_MAX_BYTES = "sghibernate.statistics.export_file_max_bytes";
+
+    /**
+     * Statistics files kept (default 5)
+     */
+    public static final String STATISTICS_EXPORT_FILE_COUNT = "sghibernate.statistics.export_file_count";
+
+    /**
+     * Most expensive queries listed per exported interval (default 10)
+     */
+    public static final String STATISTICS_EXPORT_TOP_QUERIES = "sghibernate.statistics.top_queries";
+
+    /**
+     * Milliseconds from which fetchBulk and fetchEntities calls are recorded
+     * as slow, 0 to record none (default 0)
+     */
+    public static final String SLOW_QUERY_THRESHOLD_MS = "sghibernate.slow_query.threshold_ms";
+
+    /**
+     * Slow calls kept, the oldest go first (default 100)
+     */
+    public static final String SLOW_QUERY_CAPACITY = "sghibernate.slow_query.capacity";
+
+    /**
+     * Comma separated words, a parameter whose name contains one is recorded
+     * as **** (default password,passwd,pin,secret,token)
+     */
+    public static final String SLOW_QUERY_REDACT = "sghibernate.slow_query.redact";
+
+    /**
+     * Run EXPLAIN on the SQL of a slow call (default false). Statements
+     * with bound parameters are listed but not explained
+     */
+    public static final String SLOW_QUERY_EXPLAIN = "sghibernate.slow_query.explain";
+
+    /**
+     * Run the fetch methods, countRows and isRecordExists on a read-only
+     * session that never flushes (default true)
+     */
+    public static final String READ_ONLY_ENABLED = "sghibernate.read_only.enabled";
+
+    /**
+     * Also mark the JDBC connection read-only during those reads, so MySQL
+     * runs them as read-only transactions. Costs two extra statements per
+     * read (default false)
+     */
+    public static final String READ_ONLY_CONNECTION = "sghibernate.read_only.connection";
+
+    /**
+     * hikari to pool connections with HikariConnectionProvider. Otherwise the
+     * connection provider set up in the config file is used
+     */
+    public static final String POOL_PROVIDER = "sghibernate.pool.provider";
+
+    /**
+     * Connections in the pool. Defaults to hibernate.c3p0.max_size or
+     * hibernate.connection.pool_size
+     */
+    public static final String POOL_MAX_SIZE = "sghibernate.pool.max_size";
+
+    /**
+     * Idle connections the pool keeps open (default max_size, a fixed size
+     * pool)
+     */
+    public static final String POOL_MIN_IDLE = "sghibernate.pool.min_idle";
+
+    /**
+     * Milliseconds a caller waits for a connection before failing (default
+     * 30000)
+     */
+    public static final String POOL_CONNECTION_TIMEOUT_MS = "sghibernate.pool.connection_timeout_ms";
+
+    /**
+     * Open the pool's connections in initialiseDBResources (default true)
+     */
+    public static final String POOL_PREFILL = "sghibernate.pool.prefill";
+
+    /**
+     * Prepared statements Connector/J caches per connection, 0 for none
+     * (default 250)
+     */
+    public static final String POOL_PREP_STMT_CACHE_SIZE = "sghibernate.pool.prep_stmt_cache_size";
+
+    /**
+     * Use server side prepared statements with the cache (default false)
+     */
+    public static final String POOL_SERVER_PREP_STMTS = "sghibernate.pool.server_prep_stmts";
+
+    /**
+     * First ID of a new SegmentIdAllocator segment, also settable per segment
+     * e.g. sghibernate.id_segment.floor.TbCustomer.cstmId (default 1)
+     */
+    public static final String ID_SEGMENT_FLOOR = "sghibernate.id_segment.floor";
+
+    /**
+     * Skip segment IDs already used by rows, e.g. the random IDs of the legacy
+     * generators. Turn off once those rows are migrated (default true)
+     */
+    public static final String ID_SEGMENT_CHECK_EXISTING = "sghibernate.id_segment.check_existing";
+
+    public static final int DEFAULT_INSERT_BATCH_SIZE = 50;
+
+    /**
+     * Used when no pool size can be found in the configuration
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    /**
+     * Connector/J's signal for row-by-row result set streaming
+     */
+    public static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private HibernateProperties() {
+    }
+
+    public static boolean getBoolean(Properties properties, String key, boolean defaultValue) {
+
+        String value = getString(properties, key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public static int getInt(Properties properties, String key, int defaultValue) {
+
+        String value = getString(properties, key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static long getLong(Properties properties, String key, long defaultValue) {
+
+        String value = getString(properties, key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Maximum size of the configured connection pool
+     *
+     * @param properties
+     * @return
+     */
+    public static int getPoolSize(Properties properties) {
+
+        int poolSize = getInt(properties, POOL_MAX_SIZE, 0);
+        if (poolSize < 1) {
+            poolSize = getInt(properties, "hibernate.c3p0.max_size", 0);
+        }
+        if (poolSize < 1) {
+            poolSize = getInt(properties, "hibernate.connection.pool_size", DEFAULT_POOL_SIZE);
+        }
+        return poolSize;
+    }
+
+    /**
+     * Rows per JDBC batch of bulk inserts and updates
+     *
+     * @param properties
+     * @return
+     */
+    public static int getInsertBatchSize(Properties properties) {
+
+        int batchSize = getInt(properties, "hibernate.jdbc.batch_size", DEFAULT_INSERT_BATCH_SIZE);
+        return Math.max(1, getInt(properties, BULK_INSERT_BATCH_SIZE, batchSize));
+    }
+
+    public static String getString(Properties properties, String key) {
+
+        if (properties == null) {
+            return null;
+        }
+
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+}
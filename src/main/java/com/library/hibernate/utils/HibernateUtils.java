@@ -6,20 +6,18 @@
 package com.library.hibernate.utils;
 
 import com.library.customexception.MyCustomException;
-import com.library.datamodel.Constants.NamedConstants;
 import com.library.datamodel.dsm_bridge.TbCustomer;
 import com.library.datamodel.dsm_bridge.TbFile;
-import com.library.datamodel.dsm_bridge.TbFileId;
 import com.library.datamodel.model.v1_0.AdScreen;
 import com.library.hibernate.CustomHibernate;
 import com.library.sglogger.util.LoggerUtil;
-import com.library.utilities.GeneralUtils;
 import com.library.utilities.dsmbridge.IDCreator;
 import static com.library.utilities.GeneralUtils.convertListToSet;
-import com.library.utilities.NumericIDGenerator;
 import java.io.File;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -30,61 +28,73 @@ import java.util.Set;
 public class HibernateUtils {
 
     private static final LoggerUtil LOG = new LoggerUtil(HibernateUtils.class);
+    private static final int MAX_SCREEN_ID_ATTEMPTS = 5;
 
     /**
-     * Generate the FileID To-Do -> Method fetches entire file list for each
-     * call, we need to come up with a better way of doing this.
+     * Generate the FileID. Used to fetch the entire file list for each call to
+     * check for collisions, IDs are now time-ordered and unique per node and
+     * only the generated ID is checked against the random legacy TbFile IDs
      *
      * @param customHibernate
      * @return
      * @throws com.library.customexception.MyCustomException
      */
-    public static synchronized long generateLongIDOld(CustomHibernate customHibernate) throws MyCustomException {
+    public static long generateLongIDOld(CustomHibernate customHibernate) throws MyCustomException {
 
-        List<TbFileId> fileIdList = customHibernate.fetchOnlyColumn(TbFile.class, "FILE_ID");
-
-        LOG.debug("Records fetched size [TbFile.class] : " + fileIdList.size());
-
-        Set<Long> fileIds = new HashSet<>();
-        for (TbFileId id : fileIdList) {
-            LOG.debug("file id found: " + id.getFileId());
-            fileIds.add(id.getFileId());
-        }
-
-        long fileID;
-
-        do {
-            fileID = IDCreator.GenerateLong();
-        } while (fileIds.contains(fileID));
-
-        return fileID;
+        return generateFileID(customHibernate);
     }
 
     /**
-     * Generate the FileID To-Do -> Method fetches entire file list for each
-     * call, we need to come up with a better way of doing this.
+     * Generate the FileID. Used to fetch the entire file list for each call to
+     * check for collisions, IDs are now time-ordered and unique per node and
+     * only the generated ID is checked against the random legacy TbFile IDs
      *
      * @param customHibernate
      * @return
      * @throws com.library.customexception.MyCustomException
      */
-    public static synchronized long generateLongIDOLD2(CustomHibernate customHibernate) throws MyCustomException {
+    public static long generateLongIDOLD2(CustomHibernate customHibernate) throws MyCustomException {
 
-        List<Long> fileIdList = customHibernate.fetchOnlyColumn(TbFile.class, "id.fileId");
+        return generateFileID(customHibernate);
+    }
 
-        LOG.debug("Records fetched size: " + fileIdList.size());
+    /**
+     * Time-ordered FileID not used by an existing TbFile. Keep the check until
+     * the legacy rows with random IDs are migrated
+     *
+     * @param customHibernate
+     * @return
+     * @throws MyCustomException
+     */
+    private static long generateFileID(CustomHibernate customHibernate) throws MyCustomException {
 
-        Set<Long> fileIds = GeneralUtils.convertListToSet(fileIdList);
+        Set<Object> fileIds = new HashSet<>();
+        Map<String, Object> propertyNameValues = new HashMap<>();
+        propertyNameValues.put("id.fileId", fileIds);
 
         long fileID;
 
         do {
-            fileID = IDCreator.GenerateLong();
-        } while (fileIds.contains(fileID));
+            fileID = generateTimeOrderedID();
+            fileIds.clear();
+            fileIds.add(fileID);
+        } while (customHibernate.isRecordExists(TbFile.class, propertyNameValues));
 
         return fileID;
     }
 
+    /**
+     * Generate a time-ordered, node-aware unique long ID (e.g. TbFile,
+     * TbCustomer keys) without any database round trip. Needs the
+     * sghibernate.nodeId system property, see TimeOrderedIdGenerator
+     *
+     * @return
+     */
+    public static long generateTimeOrderedID() {
+
+        return TimeOrderedIdGenerator.getInstance().nextId();
+    }
+
     /**
      * Generate a customer ID
      *
@@ -109,7 +119,8 @@ public class HibernateUtils {
     }
 
     /**
-     * Generate a customer ID
+     * Generate a unique integer ID, e.g. a customer ID. IDs are handed out
+     * from a block leased from the database so no table scan is done per call
      *
      * @param customHibernate
      * @param classType
@@ -117,24 +128,14 @@ public class HibernateUtils {
      * @return
      * @throws com.library.customexception.MyCustomException
      */
-    public static synchronized int generateIntegerID(CustomHibernate customHibernate, Class classType, String idColumnName) throws MyCustomException {
-
-        List<Integer> idList = customHibernate.fetchOnlyColumn(classType, idColumnName);
+    public static int generateIntegerID(CustomHibernate customHibernate, Class classType, String idColumnName) throws MyCustomException {
 
-        Set<Integer> set = convertListToSet(idList);
-
-        int generatedId;
-
-        do {
-            generatedId = IDCreator.GenerateInt();
-        } while (set.contains(generatedId));
-
-        return generatedId;
+        return customHibernate.getIdAllocator().nextInteger(classType, idColumnName);
     }
 
     /**
-     * Generate the FileID To-Do -> Method fetches entire file list for each
-     * call, we need to come up with a better way of doing this.
+     * Generate a unique long ID, e.g. a FileID. IDs are handed out from a
+     * block leased from the database so no table scan is done per call
      *
      * @param customHibernate
      * @param classType
@@ -142,53 +143,64 @@ public class HibernateUtils {
      * @return
      * @throws com.library.customexception.MyCustomException
      */
-    public static synchronized long generateLongID(CustomHibernate customHibernate, Class classType, String idColumnName) throws MyCustomException {
-
-        List<Long> idList = customHibernate.fetchOnlyColumn(classType, idColumnName);
-        LOG.debug("Records fetched size: " + idList.size());
-
-        Set<Long> setOfIds = GeneralUtils.convertListToSet(idList);
+    public static long generateLongID(CustomHibernate customHibernate, Class classType, String idColumnName) throws MyCustomException {
 
-        long generatedId;
+        return customHibernate.getIdAllocator().nextLong(classType, idColumnName);
+    }
 
-        do {
-            generatedId = IDCreator.GenerateLong();
-        } while (setOfIds.contains(generatedId));
+    /**
+     * Generate Screen Id. The database is only consulted the first time a
+     * business is seen, see ScreenIdSequencer
+     *
+     * @param customHibernate
+     * @param businessId
+     * @return
+     * @throws MyCustomException
+     */
+    public static String generateScreenId(CustomHibernate customHibernate, String businessId) throws MyCustomException {
 
-        return generatedId;
+        return customHibernate.getScreenIdSequencer().nextScreenId(customHibernate, businessId);
     }
 
     /**
-     * Generate Screen Id
+     * Assign a new screen Id and save the screen. If the save fails because
+     * the generated Id was taken in the meantime (e.g. by another node), the
+     * sequence is reconciled with the database and the save retried.
      *
      * @param customHibernate
+     * @param screen
      * @param businessId
-     * @return
+     * @return Database ID of saved screen
      * @throws MyCustomException
      */
-    public static synchronized String generateScreenId(CustomHibernate customHibernate, String businessId) throws MyCustomException {
+    public static Object saveNewScreen(CustomHibernate customHibernate, AdScreen screen, String businessId) throws MyCustomException {
 
-        //get the most recent Screen under this business
-        AdScreen recentScreen = customHibernate.getMostRecentRecord(AdScreen.class, "id", "adBusiness.businessId", businessId);
-        String incremStart;
+        ScreenIdSequencer sequencer = customHibernate.getScreenIdSequencer();
+        int attempts = 0;
 
-        if (recentScreen == null) {
-            LOG.debug("recentScreen is null");
+        while (true) {
 
-            incremStart = NamedConstants.SCREEN_START_ID;
-        } else {
-            String idToIncrement = recentScreen.getScreenId();
-            int len = idToIncrement.length();
-            idToIncrement = idToIncrement.substring(len - 2); //e.g. if screenId is SASS01, substring will give us -> '01'
+            String screenId = sequencer.nextScreenId(customHibernate, businessId);
+            screen.setScreenId(screenId);
 
-            //generatorId = AlphaNumericIDGenerator.generateNextId(idToIncrement);
-            incremStart = NumericIDGenerator.generateNextId(idToIncrement);
-        }
+            try {
+                return customHibernate.saveEntity(screen);
 
-        String screenId = businessId + "-" + incremStart;
+            } catch (MyCustomException ex) {
 
-        return screenId;
+                Set<Object> screenIds = new HashSet<>();
+                screenIds.add(screenId);
+                Map<String, Object> propertyNameValues = new HashMap<>();
+                propertyNameValues.put("screenId", screenIds);
 
+                if (++attempts >= MAX_SCREEN_ID_ATTEMPTS || !customHibernate.isRecordExists(AdScreen.class, propertyNameValues)) {
+                    throw ex;
+                }
+
+                LOG.warn("Screen Id: " + screenId + " already taken, reconciling sequence for business: " + businessId);
+                sequencer.reconcile(customHibernate, businessId);
+            }
+        }
     }
 
 }
@@ -0,0 +1,271 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.internal.ConnectionProviderInitiator;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+/**
+ * HikariCP connection pool, used when sghibernate.pool.provider is hikari.
+ * Connection settings come from the usual hibernate.connection.* properties
+ * (the driver specific ones, e.g. useCursorFetch, are passed to the driver),
+ * pool settings from sghibernate.pool.* and any HikariConfig property can be
+ * set as hibernate.hikari.&lt;property&gt;.
+ *
+ * Against MySQL, Connector/J caches the parsed prepared statements of each
+ * connection (prep_stmt_cache_size). The pool is fixed size by default
+ * (min_idle = max_size) and CustomHibernate.initialiseDBResources opens every
+ * connection up front, so the first requests do not pay for the connects.
+ *
+ * @author smallgod
+ */
+public final class HikariConnectionProvider implements ConnectionProvider, Configurable, Stoppable, ConnectionPoolMXBean {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final LoggerUtil LOG = new LoggerUtil(HikariConnectionProvider.class);
+
+    public static final String NAME = "hikari";
+
+    public static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30000L;
+    public static final int DEFAULT_PREP_STMT_CACHE_SIZE = 250;
+    public static final int PREP_STMT_CACHE_SQL_LIMIT = 2048;
+
+    private static final String HIKARI_PREFIX = "hibernate.hikari.";
+
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private HikariDataSource dataSource;
+    private ObjectName objectName;
+
+    @Override
+    public void configure(Map configurationValues) {
+
+        Properties properties = new Properties();
+        properties.putAll(configurationValues);
+
+        Properties hikariProperties = new Properties();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(HIKARI_PREFIX)) {
+                hikariProperties.setProperty(key.substring(HIKARI_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+
+        HikariConfig config = new HikariConfig(hikariProperties);
+
+        String url = HibernateProperties.getString(properties, AvailableSettings.URL);
+        if (config.getJdbcUrl() == null) {
+            config.setJdbcUrl(url);
+        }
+        if (config.getDriverClassName() == null && HibernateProperties.getString(properties, AvailableSettings.DRIVER) != null) {
+            config.setDriverClassName(HibernateProperties.getString(properties, AvailableSettings.DRIVER));
+        }
+        if (config.getUsername() == null) {
+            config.setUsername(HibernateProperties.getString(properties, AvailableSettings.USER));
+        }
+        if (config.getPassword() == null) {
+            config.setPassword(properties.getProperty(AvailableSettings.PASS));
+        }
+        if (!hikariProperties.containsKey("autoCommit")) {
+            config.setAutoCommit(HibernateProperties.getBoolean(properties, AvailableSettings.AUTOCOMMIT, Boolean.FALSE));
+        }
+
+        int maxSize = HibernateProperties.getPoolSize(properties);
+        if (!hikariProperties.containsKey("maximumPoolSize")) {
+            config.setMaximumPoolSize(maxSize);
+        }
+        if (!hikariProperties.containsKey("minimumIdle")) {
+            config.setMinimumIdle(Math.min(config.getMaximumPoolSize(), HibernateProperties.getInt(properties, HibernateProperties.POOL_MIN_IDLE, config.getMaximumPoolSize())));
+        }
+        if (!hikariProperties.containsKey("connectionTimeout")) {
+            config.setConnectionTimeout(HibernateProperties.getLong(properties, HibernateProperties.POOL_CONNECTION_TIMEOUT_MS, DEFAULT_CONNECTION_TIMEOUT_MILLIS));
+        }
+        if (config.getPoolName() == null) {
+            config.setPoolName("sghibernate");
+        }
+
+        //driver specific hibernate.connection.* settings
+        Properties driverProperties = ConnectionProviderInitiator.getConnectionProperties(configurationValues);
+        for (String key : driverProperties.stringPropertyNames()) {
+            config.addDataSourceProperty(key, driverProperties.getProperty(key));
+        }
+
+        int statementCacheSize = HibernateProperties.getInt(properties, HibernateProperties.POOL_PREP_STMT_CACHE_SIZE, DEFAULT_PREP_STMT_CACHE_SIZE);
+        if (statementCacheSize > 0 && config.getJdbcUrl() != null && config.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(PREP_STMT_CACHE_SQL_LIMIT));
+            config.addDataSourceProperty("useServerPrepStmts", String.valueOf(HibernateProperties.getBoolean(properties, HibernateProperties.POOL_SERVER_PREP_STMTS, Boolean.FALSE)));
+        }
+
+        dataSource = new HikariDataSource(config);
+
+        LOG.debug("HikariCP pool " + config.getPoolName() + ": " + config.getMinimumIdle() + " to " + config.getMaximumPoolSize() + " connections");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        long started = System.nanoTime();
+        try {
+            Connection connection = dataSource.getConnection();
+            waitTimes.record(System.nanoTime() - started);
+            return connection;
+
+        } catch (SQLTransientConnectionException ex) {
+            timeoutCount.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    /**
+     * Open the pool's minimum idle connections now instead of in the
+     * background, e.g. before taking traffic
+     *
+     * @return connections open in the pool
+     */
+    public int prefill() {
+
+        long started = System.nanoTime();
+        int target = Math.max(1, dataSource.getMinimumIdle());
+        List<Connection> borrowed = new ArrayList<>(target);
+
+        try {
+            for (int i = 0; i < target; i++) {
+                borrowed.add(dataSource.getConnection());
+            }
+        } catch (SQLException ex) {
+            LOG.warn("Pool prefill stopped after " + borrowed.size() + " of " + target + " connections: " + ex.toString());
+        } finally {
+            for (Connection connection : borrowed) {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    LOG.warn("Could not return a prefilled connection: " + ex.toString());
+                }
+            }
+        }
+
+        int total = dataSource.getHikariPoolMXBean().getTotalConnections();
+        LOG.debug("Prefilled the connection pool with " + total + " connections in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+        return total;
+    }
+
+    @Override
+    public ConnectionPoolStats getStats() {
+
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return new ConnectionPoolStats(dataSource.getMaximumPoolSize(),
+                pool.getTotalConnections(),
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(),
+                waitTimes.getCount(),
+                timeoutCount.get(),
+                TimeUnit.NANOSECONDS.toMicros(waitTimes.getMeanNanos()),
+                TimeUnit.NANOSECONDS.toMicros(waitTimes.getPercentile(99.0)),
+                TimeUnit.NANOSECONDS.toMicros(waitTimes.getMaxNanos()));
+    }
+
+    @Override
+    public void resetWaitTimes() {
+
+        waitTimes.reset();
+        timeoutCount.set(0L);
+    }
+
+    /**
+     * Publish over JMX, replacing an MBean of the same name
+     *
+     * @param name value of the name key, e.g. the configuration file
+     */
+    public synchronized void register(String name) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName newName = new ObjectName("com.library.hibernate:type=ConnectionPool,name=" + ObjectName.quote(name));
+
+            if (server.isRegistered(newName)) {
+                server.unregisterMBean(newName);
+            }
+            server.registerMBean(this, newName);
+            objectName = newName;
+
+        } catch (JMException ex) {
+            LOG.warn("Could not register connection pool MBean: " + ex.toString());
+        }
+    }
+
+    public synchronized void unregister() {
+
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException ex) {
+            LOG.warn("Could not unregister connection pool MBean: " + ex.toString());
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void stop() {
+
+        unregister();
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType)
+                || HikariConnectionProvider.class.isAssignableFrom(unwrapType)
+                || HikariDataSource.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> unwrapType) {
+
+        if (ConnectionProvider.class.equals(unwrapType) || HikariConnectionProvider.class.isAssignableFrom(unwrapType)) {
+            return (T) this;
+        } else if (HikariDataSource.class.isAssignableFrom(unwrapType)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+}
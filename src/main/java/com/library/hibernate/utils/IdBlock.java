@@ -0,0 +1,46 @@
+package com.library.hibernate.utils;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A block of IDs [start, limit) leased by SegmentIdAllocator, with the IDs in
+ * it that existing rows already use
+ *
+ * @author smallgod
+ */
+public final class IdBlock {
+
+    private final long start;
+    private final long limit;
+    private final Set<Long> takenIds;
+
+    public IdBlock(long start, long limit, Set<Long> takenIds) {
+        this.start = start;
+        this.limit = limit;
+        this.takenIds = Collections.unmodifiableSet(takenIds);
+    }
+
+    /**
+     * @return first ID of the block, inclusive
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return ID after the last one of the block, exclusive
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return IDs of the block already used by rows, e.g. random IDs of the
+     * legacy generators. Empty unless sghibernate.id_segment.check_existing is
+     * on
+     */
+    public Set<Long> getTakenIds() {
+        return takenIds;
+    }
+}
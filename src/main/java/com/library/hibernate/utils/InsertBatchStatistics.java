@@ -0,0 +1,55 @@
+package com.library.hibernate.utils;
+
+/**
+ * Rows inserted by one batch of a bulk insert and the JDBC round trips it
+ * took. With JDBC batching on, a batch of one entity type takes a single
+ * round trip (a multi-row INSERT when MySQL rewriteBatchedStatements is on)
+ *
+ * @author smallgod
+ */
+public final class InsertBatchStatistics {
+
+    private final String entityName;
+    private final int rows;
+    private final int statements;
+    private final long elapsedNanos;
+
+    public InsertBatchStatistics(String entityName, int rows, int statements, long elapsedNanos) {
+        this.entityName = entityName;
+        this.rows = rows;
+        this.statements = statements;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return JDBC round trips (executeBatch or executeUpdate calls)
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return true if the rows went to the database in fewer statements than
+     * rows
+     */
+    public boolean isBatched() {
+        return statements < rows;
+    }
+
+    @Override
+    public String toString() {
+        return entityName + " [rows=" + rows + ", statements=" + statements + ", ms=" + (elapsedNanos / 1000000L) + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package com.library.hibernate.utils;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.engine.spi.SessionEventListenerManager;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * Counts the JDBC round trips of a session: batches sent with executeBatch
+ * and statements executed on their own. Attach it with attach(session)
+ *
+ * @author smallgod
+ */
+public final class JdbcStatementCounter extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private int batchCount;
+    private int statementCount;
+
+    /**
+     * Start counting the round trips of a Session or StatelessSession
+     *
+     * @param session
+     * @return the counter
+     */
+    public static JdbcStatementCounter attach(Object session) {
+
+        JdbcStatementCounter counter = new JdbcStatementCounter();
+        SessionEventListenerManager listeners = ((SharedSessionContractImplementor) session).getEventListenerManager();
+        listeners.addListener(counter);
+        return counter;
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        batchCount++;
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statementCount++;
+    }
+
+    /**
+     * @return executeBatch calls
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return statements executed outside a batch
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return batches plus statements executed outside a batch
+     */
+    public int getRoundTrips() {
+        return batchCount + statementCount;
+    }
+}
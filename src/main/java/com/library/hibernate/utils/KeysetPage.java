@@ -0,0 +1,77 @@
+package com.library.hibernate.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of records fetched by key (the "id" property) rather than by
+ * offset, so the cost of a page does not grow with its depth. Records are
+ * always ordered newest (highest id) first, like fetchBulk(Class, Map).
+ *
+ * To move on pass getNextKey() with Direction.NEXT (older records) or
+ * getPreviousKey() with Direction.PREVIOUS (newer records).
+ *
+ * @author smallgod
+ * @param <T> entity type
+ */
+public final class KeysetPage<T> {
+
+    public enum Direction {
+
+        /**
+         * Records with an id lower than the key (older)
+         */
+        NEXT,
+        /**
+         * Records with an id higher than the key (newer)
+         */
+        PREVIOUS
+    }
+
+    private final List<T> results;
+    private final Long previousKey;
+    private final Long nextKey;
+    private final boolean hasMore;
+    private final Direction direction;
+
+    public KeysetPage(List<T> results, Long previousKey, Long nextKey, boolean hasMore, Direction direction) {
+        this.results = Collections.unmodifiableList(results);
+        this.previousKey = previousKey;
+        this.nextKey = nextKey;
+        this.hasMore = hasMore;
+        this.direction = direction;
+    }
+
+    /**
+     * @return records of this page, highest id first
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * @return id of the first record on this page, null if the page is empty
+     */
+    public Long getPreviousKey() {
+        return previousKey;
+    }
+
+    /**
+     * @return id of the last record on this page, null if the page is empty
+     */
+    public Long getNextKey() {
+        return nextKey;
+    }
+
+    /**
+     * @return true if more records exist beyond this page in the direction it
+     * was fetched
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+}
@@ -0,0 +1,595 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Filter;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.NamedQueryDefinition;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.joda.time.DateTime;
+import org.joda.time.ReadablePartial;
+
+/**
+ * Results of HQL named queries keyed by query name and parameter values,
+ * bounded by entry count (least recently used go first) and TTL.
+ *
+ * Every entry remembers the tables (query spaces) its query reads. When an
+ * entity is written, AuditTrailInterceptor invalidates the entries reading
+ * its table, after the flush and again after the transaction completes, so a
+ * concurrent reader cannot cache rows that were about to change. Bulk updates
+ * run by CustomHibernate invalidate the same way.
+ *
+ * Native named queries are not cached: their tables are unknown.
+ *
+ * Entities are cached by entity name and id, and only for entity types kept
+ * in the second level cache. A hit loads them again from there in a session
+ * of its own, so no two callers share an instance and no connection is
+ * checked out. If one of them has left the second level cache the hit counts
+ * as a miss and the query runs. Other results are only cached if they are
+ * immutable values, or rows of such values and entities.
+ *
+ * @author smallgod
+ */
+public final class NamedQueryResultCache {
+
+    private static final LoggerUtil LOG = new LoggerUtil(NamedQueryResultCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TTL_SECONDS = 60L;
+
+    private static final Set<Serializable> NOT_CACHEABLE = Collections.emptySet();
+
+    /**
+     * A result that is neither an entity nor an immutable value
+     */
+    private static final Object NOT_CACHEABLE_VALUE = new Object();
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final Map<Key, Entry> entries;
+    private final ConcurrentMap<String, Set<Serializable>> querySpaces = new ConcurrentHashMap<>();
+
+    /**
+     * Bumped by every invalidation. A result read before an invalidation is
+     * not cached
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private volatile SessionFactoryImplementor sessionFactory;
+
+    public NamedQueryResultCache(Properties properties) {
+
+        this.enabled = HibernateProperties.getBoolean(properties, HibernateProperties.QUERY_CACHE_ENABLED, Boolean.FALSE);
+        this.maxEntries = HibernateProperties.getInt(properties, HibernateProperties.QUERY_CACHE_MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+        this.ttlMillis = HibernateProperties.getLong(properties, HibernateProperties.QUERY_CACHE_TTL_SECONDS, DEFAULT_TTL_SECONDS) * 1000L;
+
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, Boolean.TRUE) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > NamedQueryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Needed to find the tables of queries and entities, until it is set
+     * every invalidation clears the whole cache
+     *
+     * @param sessionFactory
+     */
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = (SessionFactoryImplementor) sessionFactory;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cached results of the named query, as a new set the caller may change.
+     * The entities in it are loaded from the second level cache
+     *
+     * @param <T>
+     * @param namedQuery
+     * @param parameters parameter values by name, empty if none
+     * @return null if not cached, or if a cached entity is no longer in the
+     * second level cache
+     */
+    public <T> Set<T> get(String namedQuery, Map<String, ?> parameters) {
+
+        if (!enabled) {
+            return null;
+        }
+
+        Key key = new Key(namedQuery, parameters);
+        Entry entry;
+
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+
+        Set<Object> results = entry == null ? null : load(namedQuery, entry.results);
+
+        if (results == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return (Set<T>) results;
+    }
+
+    /**
+     * Load the cached entities from the second level cache. A session is only
+     * opened if there are entities, and never begins a transaction
+     *
+     * @return null if one of the entities is not in the second level cache
+     */
+    private Set<Object> load(String namedQuery, List<Object> cached) {
+
+        Set<EntityRef> refs = new HashSet<>();
+        for (Object value : cached) {
+            collectRefs(value, refs);
+        }
+
+        Map<EntityRef, Object> loaded = new HashMap<>();
+
+        if (!refs.isEmpty()) {
+
+            SessionFactoryImplementor factory = sessionFactory;
+            if (factory == null) {
+                return null;
+            }
+
+            for (EntityRef ref : refs) {
+                if (!factory.getCache().containsEntity(ref.entityName, ref.id)) {
+                    LOG.debug("Cached " + ref.entityName + " " + ref.id + " not in the second level cache, running: " + namedQuery);
+                    return null;
+                }
+            }
+
+            Session session = null;
+            try {
+                session = factory.openSession();
+                session.setDefaultReadOnly(Boolean.TRUE);
+
+                for (EntityRef ref : refs) {
+                    Object entity = session.get(ref.entityName, ref.id);
+                    if (entity == null) {
+                        LOG.debug("Cached " + ref.entityName + " " + ref.id + " no longer exists, running: " + namedQuery);
+                        return null;
+                    }
+                    loaded.put(ref, entity);
+                }
+
+            } catch (HibernateException ex) {
+                LOG.warn("Could not load the cached results of: " + namedQuery + ", running the query - " + ex.toString());
+                return null;
+
+            } finally {
+                if (session != null && session.isOpen()) {
+                    session.close();
+                }
+            }
+        }
+
+        Set<Object> results = new HashSet<>();
+        for (Object value : cached) {
+            results.add(resolve(value, loaded));
+        }
+        return results;
+    }
+
+    private static void collectRefs(Object value, Set<EntityRef> refs) {
+
+        if (value instanceof EntityRef) {
+            refs.add((EntityRef) value);
+
+        } else if (value instanceof Object[]) {
+            for (Object column : (Object[]) value) {
+                collectRefs(column, refs);
+            }
+        }
+    }
+
+    private static Object resolve(Object value, Map<EntityRef, Object> loaded) {
+
+        if (value instanceof EntityRef) {
+            return loaded.get(value);
+        }
+        if (value instanceof Object[]) {
+            Object[] row = (Object[]) value;
+            Object[] copy = new Object[row.length];
+            for (int i = 0; i < row.length; i++) {
+                copy[i] = resolve(row[i], loaded);
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * @return what is kept of a result: a reference to an entity kept in the
+     * second level cache, an immutable value as it is, or NOT_CACHEABLE_VALUE
+     */
+    private Object toCached(Object result, Session session) {
+
+        if (result == null || isImmutable(result)) {
+            return result;
+        }
+
+        if (result instanceof Object[]) {
+            Object[] row = (Object[]) result;
+            Object[] cached = new Object[row.length];
+            for (int i = 0; i < row.length; i++) {
+                cached[i] = toCached(row[i], session);
+                if (cached[i] == NOT_CACHEABLE_VALUE) {
+                    return NOT_CACHEABLE_VALUE;
+                }
+            }
+            return cached;
+        }
+
+        boolean isEntity;
+        try {
+            isEntity = session.contains(result);
+        } catch (IllegalArgumentException | MappingException ex) {
+            //not an entity, e.g. a select new ... instance
+            isEntity = Boolean.FALSE;
+        }
+
+        SessionFactoryImplementor factory = sessionFactory;
+        if (!isEntity || factory == null) {
+            return NOT_CACHEABLE_VALUE;
+        }
+
+        String entityName = session.getEntityName(result);
+        if (!factory.getMetamodel().entityPersister(entityName).hasCache()) {
+            //a hit would cost a select per entity, the query is as cheap
+            return NOT_CACHEABLE_VALUE;
+        }
+        return new EntityRef(entityName, session.getIdentifier(result));
+    }
+
+    private static boolean isImmutable(Object value) {
+
+        return value instanceof String
+                || value instanceof Number
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof Enum
+                || value instanceof ReadablePartial
+                || value instanceof DateTime;
+    }
+
+    /**
+     * Current generation, to be taken before running a query whose results
+     * will be put in the cache
+     *
+     * @return
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Cache the results of a named query, unless something was invalidated
+     * since the query ran
+     *
+     * @param namedQuery
+     * @param parameters
+     * @param results
+     * @param generationAtRead getGeneration() from before the query ran
+     * @param session the session that loaded the results, still open: call
+     * before committing a thread-bound session
+     */
+    public void put(String namedQuery, Map<String, ?> parameters, Collection<?> results, long generationAtRead, Session session) {
+
+        if (!enabled) {
+            return;
+        }
+
+        if (!session.isOpen()) {
+            throw new IllegalStateException("Results of: " + namedQuery + " must be cached before their session is closed");
+        }
+
+        Set<Serializable> spaces = getQuerySpaces(namedQuery);
+        if (spaces == NOT_CACHEABLE) {
+            return;
+        }
+
+        List<Object> cached = new ArrayList<>(results.size());
+        for (Object result : results) {
+
+            Object value = toCached(result, session);
+            if (value == NOT_CACHEABLE_VALUE) {
+                LOG.debug("Not caching results of: " + namedQuery + ", " + result.getClass().getName() + " is neither a second level cached entity nor an immutable value");
+                return;
+            }
+            cached.add(value);
+        }
+
+        Entry entry = new Entry(cached, spaces, System.currentTimeMillis() + ttlMillis);
+
+        synchronized (entries) {
+            if (generation.get() == generationAtRead) {
+                entries.put(new Key(namedQuery, parameters), entry);
+            }
+        }
+    }
+
+    /**
+     * Drop the entries whose query reads the table(s) of the entity type
+     *
+     * @param entityTypes
+     */
+    public void invalidate(Collection<Class> entityTypes) {
+
+        if (!enabled || entityTypes.isEmpty()) {
+            return;
+        }
+
+        SessionFactoryImplementor factory = sessionFactory;
+        if (factory == null) {
+            clear();
+            return;
+        }
+
+        Set<Serializable> spaces = new HashSet<>();
+        for (Class entityType : entityTypes) {
+            try {
+                EntityPersister persister = factory.getMetamodel().entityPersister(entityType);
+                spaces.addAll(Arrays.asList(persister.getQuerySpaces()));
+            } catch (RuntimeException ex) {
+                LOG.warn("Unknown entity: " + entityType.getName() + ", clearing the query result cache");
+                clear();
+                return;
+            }
+        }
+        invalidateSpaces(spaces);
+    }
+
+    /**
+     * Drop the entries whose query reads a table written by the HQL
+     * statement, e.g. a bulk update
+     *
+     * @param hql
+     */
+    public void invalidateQuery(String hql) {
+
+        if (!enabled) {
+            return;
+        }
+
+        SessionFactoryImplementor factory = sessionFactory;
+        if (factory == null) {
+            clear();
+            return;
+        }
+        invalidateSpaces(getQuerySpaces(factory, hql));
+    }
+
+    /**
+     * Drop the entries whose query reads a table written by the named query.
+     * Everything is dropped for a native named query
+     *
+     * @param namedQuery
+     */
+    public void invalidateNamedQuery(String namedQuery) {
+
+        if (!enabled) {
+            return;
+        }
+
+        Set<Serializable> spaces = getQuerySpaces(namedQuery);
+        if (spaces == NOT_CACHEABLE) {
+            clear();
+        } else {
+            invalidateSpaces(spaces);
+        }
+    }
+
+    /**
+     * Drop the entries whose query reads any of the tables
+     *
+     * @param spaces table names
+     */
+    public void invalidateSpaces(Collection<? extends Serializable> spaces) {
+
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (entries) {
+
+            generation.incrementAndGet();
+
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (!Collections.disjoint(iterator.next().spaces, spaces)) {
+                    iterator.remove();
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidationCount.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return entries dropped because a table they read was written
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Set<Serializable> getQuerySpaces(String namedQuery) {
+
+        Set<Serializable> spaces = querySpaces.get(namedQuery);
+        if (spaces != null) {
+            return spaces;
+        }
+
+        SessionFactoryImplementor factory = sessionFactory;
+        if (factory == null) {
+            return NOT_CACHEABLE;
+        }
+
+        spaces = NOT_CACHEABLE;
+
+        NamedQueryDefinition definition = factory.getNamedQueryRepository().getNamedQueryDefinition(namedQuery);
+        if (definition != null) {
+            spaces = getQuerySpaces(factory, definition.getQueryString());
+        } else {
+            LOG.debug("Not caching results of native named query: " + namedQuery);
+        }
+
+        querySpaces.putIfAbsent(namedQuery, spaces);
+        return spaces;
+    }
+
+    private static Set<Serializable> getQuerySpaces(SessionFactoryImplementor factory, String hql) {
+
+        return new HashSet<>(factory.getQueryPlanCache()
+                .getHQLQueryPlan(hql, Boolean.FALSE, Collections.<String, Filter>emptyMap())
+                .getQuerySpaces());
+    }
+
+    private static final class Key {
+
+        private final String namedQuery;
+        private final Map<String, Object> parameters;
+        private final int hashCode;
+
+        private Key(String namedQuery, Map<String, ?> parameters) {
+
+            Map<String, Object> normalized = new HashMap<>();
+            if (parameters != null) {
+                for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+                    Object value = parameter.getValue();
+                    //order of list parameter values does not change the results
+                    normalized.put(parameter.getKey(), value instanceof Collection ? new HashSet<>((Collection) value) : value);
+                }
+            }
+
+            this.namedQuery = namedQuery;
+            this.parameters = normalized;
+            this.hashCode = 31 * namedQuery.hashCode() + normalized.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return namedQuery.equals(other.namedQuery) && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class EntityRef {
+
+        private final String entityName;
+        private final Serializable id;
+
+        private EntityRef(String entityName, Serializable id) {
+            this.entityName = entityName;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EntityRef)) {
+                return false;
+            }
+            EntityRef other = (EntityRef) obj;
+            return entityName.equals(other.entityName) && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityName.hashCode() + id.hashCode();
+        }
+    }
+
+    private static final class Entry {
+
+        /**
+         * EntityRefs, immutable values and rows of them, see toCached
+         */
+        private final List<Object> results;
+        private final Set<Serializable> spaces;
+        private final long expiresAt;
+
+        private Entry(List<Object> results, Set<Serializable> spaces, long expiresAt) {
+            this.results = results;
+            this.spaces = spaces;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
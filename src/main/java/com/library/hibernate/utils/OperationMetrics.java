@@ -0,0 +1,160 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency histogram, call, error and row counts per CustomHibernate
+ * operation and per named query, one per configuration file. Once an operation has been seen, recording
+ * costs a map lookup and a few atomic increments, without allocating.
+ *
+ * @author smallgod
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    private static final LoggerUtil LOG = new LoggerUtil(OperationMetrics.class);
+
+    private final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, OperationStats> namedQueries = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+
+    /**
+     * @param operation
+     * @param startNanos System.nanoTime() when the call started
+     * @param rows rows returned or written
+     * @param failed
+     */
+    public void record(String operation, long startNanos, long rows, boolean failed) {
+        stats(operations, operation).record(System.nanoTime() - startNanos, rows, failed);
+    }
+
+    /**
+     * Record an operation that ran a named query, under both names
+     *
+     * @param operation
+     * @param namedQuery
+     * @param startNanos
+     * @param rows
+     * @param failed
+     */
+    public void record(String operation, String namedQuery, long startNanos, long rows, boolean failed) {
+
+        long elapsed = System.nanoTime() - startNanos;
+
+        stats(operations, operation).record(elapsed, rows, failed);
+        if (namedQuery != null) {
+            stats(namedQueries, namedQuery).record(elapsed, rows, failed);
+        }
+    }
+
+    private static OperationStats stats(ConcurrentMap<String, OperationStats> statsByName, String name) {
+
+        OperationStats stats = statsByName.get(name);
+        if (stats == null) {
+            stats = new OperationStats(name);
+            OperationStats existing = statsByName.putIfAbsent(name, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @param operation
+     * @return null if the operation was never called
+     */
+    public OperationStats getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @param namedQuery
+     * @return null if the named query never ran
+     */
+    public OperationStats getNamedQuery(String namedQuery) {
+        return namedQueries.get(namedQuery);
+    }
+
+    @Override
+    public List<OperationStatsSnapshot> getOperations() {
+        return snapshot(operations);
+    }
+
+    @Override
+    public List<OperationStatsSnapshot> getNamedQueries() {
+        return snapshot(namedQueries);
+    }
+
+    private static List<OperationStatsSnapshot> snapshot(ConcurrentMap<String, OperationStats> statsByName) {
+
+        List<OperationStatsSnapshot> snapshots = new ArrayList<>();
+        for (OperationStats stats : statsByName.values()) {
+            snapshots.add(stats.snapshot());
+        }
+        return snapshots;
+    }
+
+    @Override
+    public void reset() {
+
+        for (OperationStats stats : operations.values()) {
+            stats.reset();
+        }
+        for (OperationStats stats : namedQueries.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Publish over JMX, once. An MBean of the same name belongs to another
+     * configuration and is left alone
+     *
+     * @param name value of the name key, e.g. the configuration file
+     */
+    public synchronized void register(String name) {
+
+        if (objectName != null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName newName = new ObjectName("com.library.hibernate:type=OperationMetrics,name=" + ObjectName.quote(name));
+
+            if (server.isRegistered(newName)) {
+                LOG.warn("Operation metrics MBean " + newName + " already registered by another configuration, not publishing these");
+                return;
+            }
+            server.registerMBean(this, newName);
+            objectName = newName;
+
+        } catch (JMException ex) {
+            LOG.warn("Could not register operation metrics MBean: " + ex.toString());
+        }
+    }
+
+    public synchronized void unregister() {
+
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException ex) {
+            LOG.warn("Could not unregister operation metrics MBean: " + ex.toString());
+        }
+        objectName = null;
+    }
+}
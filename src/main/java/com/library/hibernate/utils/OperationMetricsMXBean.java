@@ -0,0 +1,28 @@
+package com.library.hibernate.utils;
+
+import java.util.List;
+
+/**
+ * JMX view of OperationMetrics, registered by
+ * CustomHibernate.initialiseDBResources under
+ * com.library.hibernate:type=OperationMetrics
+ *
+ * @author smallgod
+ */
+public interface OperationMetricsMXBean {
+
+    /**
+     * @return stats of every CustomHibernate operation called so far
+     */
+    public List<OperationStatsSnapshot> getOperations();
+
+    /**
+     * @return stats of every named query run so far
+     */
+    public List<OperationStatsSnapshot> getNamedQueries();
+
+    /**
+     * Start counting from zero
+     */
+    public void reset();
+}
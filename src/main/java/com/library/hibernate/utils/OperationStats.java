@@ -0,0 +1,63 @@
+package com.library.hibernate.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls, errors, rows returned and latency of one operation
+ *
+ * @author smallgod
+ */
+public final class OperationStats {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong rowCount = new AtomicLong();
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long elapsedNanos, long rows, boolean failed) {
+
+        latency.record(elapsedNanos);
+        if (failed) {
+            errorCount.incrementAndGet();
+        } else if (rows > 0) {
+            rowCount.addAndGet(rows);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    public OperationStatsSnapshot snapshot() {
+
+        return new OperationStatsSnapshot(name, latency.getCount(), errorCount.get(), rowCount.get(),
+                latency.getMeanNanos() / 1000L,
+                latency.getPercentile(50.0) / 1000L,
+                latency.getPercentile(99.0) / 1000L,
+                latency.getPercentile(99.9) / 1000L,
+                latency.getMaxNanos() / 1000L);
+    }
+
+    public void reset() {
+
+        latency.reset();
+        errorCount.set(0L);
+        rowCount.set(0L);
+    }
+}
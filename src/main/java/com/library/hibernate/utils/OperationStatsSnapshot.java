@@ -0,0 +1,80 @@
+package com.library.hibernate.utils;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Point in time copy of an OperationStats, latencies in microseconds. Shown
+ * as a CompositeData row by the OperationMetrics MBean
+ *
+ * @author smallgod
+ */
+public final class OperationStatsSnapshot {
+
+    private final String name;
+    private final long callCount;
+    private final long errorCount;
+    private final long rowCount;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    @ConstructorProperties({"name", "callCount", "errorCount", "rowCount", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public OperationStatsSnapshot(String name, long callCount, long errorCount, long rowCount, long meanMicros, long p50Micros, long p99Micros, long p999Micros, long maxMicros) {
+        this.name = name;
+        this.callCount = callCount;
+        this.errorCount = errorCount;
+        this.rowCount = rowCount;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCallCount() {
+        return callCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return rows returned (or written) by the successful calls
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [calls=" + callCount + ", errors=" + errorCount + ", rows=" + rowCount
+                + ", p50=" + p50Micros + "us, p99=" + p99Micros + "us, p999=" + p999Micros + "us, max=" + maxMicros + "us]";
+    }
+}
@@ -0,0 +1,71 @@
+package com.library.hibernate.utils;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Execution counts and times (milliseconds) of one HQL/SQL query, as kept by
+ * Hibernate statistics
+ *
+ * @author smallgod
+ */
+public final class QueryStatisticsSnapshot {
+
+    private final String query;
+    private final long executionCount;
+    private final long executionRowCount;
+    private final long executionTotalTime;
+    private final long executionMaxTime;
+
+    @ConstructorProperties({"query", "executionCount", "executionRowCount", "executionTotalTime", "executionMaxTime"})
+    public QueryStatisticsSnapshot(String query, long executionCount, long executionRowCount, long executionTotalTime, long executionMaxTime) {
+        this.query = query;
+        this.executionCount = executionCount;
+        this.executionRowCount = executionRowCount;
+        this.executionTotalTime = executionTotalTime;
+        this.executionMaxTime = executionMaxTime;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getExecutionCount() {
+        return executionCount;
+    }
+
+    public long getExecutionRowCount() {
+        return executionRowCount;
+    }
+
+    public long getExecutionTotalTime() {
+        return executionTotalTime;
+    }
+
+    /**
+     * @return slowest execution since statistics were cleared (not a delta)
+     */
+    public long getExecutionMaxTime() {
+        return executionMaxTime;
+    }
+
+    /**
+     * @param previous snapshot of the same query, null if there was none
+     * @return executions since the previous snapshot
+     */
+    public QueryStatisticsSnapshot minus(QueryStatisticsSnapshot previous) {
+
+        if (previous == null) {
+            return this;
+        }
+        return new QueryStatisticsSnapshot(query,
+                executionCount - previous.executionCount,
+                executionRowCount - previous.executionRowCount,
+                executionTotalTime - previous.executionTotalTime,
+                executionMaxTime);
+    }
+
+    @Override
+    public String toString() {
+        return "[executions=" + executionCount + ", rows=" + executionRowCount + ", totalMs=" + executionTotalTime + ", maxMs=" + executionMaxTime + "] " + query;
+    }
+}
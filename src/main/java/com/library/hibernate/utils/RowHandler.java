@@ -0,0 +1,25 @@
+package com.library.hibernate.utils;
+
+import com.library.customexception.MyCustomException;
+
+/**
+ * Receives rows one at a time from the streaming fetch methods in
+ * CustomHibernate, so that large tables can be processed without collecting
+ * every row in memory first
+ *
+ * @author smallgod
+ * @param <T> entity or column type of the rows
+ */
+public interface RowHandler<T> {
+
+    /**
+     * Handle a single row. The row is detached, it is not tracked by any
+     * session once handed over.
+     *
+     * @param row
+     * @return true to continue scrolling, false to stop early
+     * @throws MyCustomException to abort the scroll, it is rethrown to the
+     * caller of the streaming method
+     */
+    public boolean handle(T row) throws MyCustomException;
+}
@@ -0,0 +1,158 @@
+package com.library.hibernate.utils;
+
+import com.library.customexception.MyCustomException;
+import com.library.datamodel.Constants.NamedConstants;
+import com.library.datamodel.model.v1_0.AdScreen;
+import com.library.hibernate.CustomHibernate;
+import com.library.sglogger.util.LoggerUtil;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory screen ID sequence per business. Each business is seeded once
+ * from the highest screen ID already in the database, after that IDs are
+ * handed out with an atomic increment. Screen IDs have the form
+ * businessId-NN, the number is zero-padded to the width of
+ * NamedConstants.SCREEN_START_ID and simply grows wider past 99.
+ *
+ * If another node inserted the same ID first, call reconcile() (or use
+ * HibernateUtils.saveNewScreen which does so) to move the sequence past the
+ * highest ID in the database.
+ *
+ * The sequences belong to one database: use the sequencer of the
+ * CustomHibernate (shared by the instances given the same config file), see
+ * CustomHibernate.getScreenIdSequencer().
+ *
+ * @author smallgod
+ */
+public final class ScreenIdSequencer {
+
+    private static final LoggerUtil LOG = new LoggerUtil(ScreenIdSequencer.class);
+
+    private static final String BUSINESS_ID_PROPERTY = "adBusiness.businessId";
+    private static final String SCREEN_ID_PROPERTY = "screenId";
+
+    private final ConcurrentMap<String, AtomicInteger> sequences = new ConcurrentHashMap<>();
+    private final int startValue;
+    private final int width;
+
+    public ScreenIdSequencer() {
+        this.startValue = trailingNumber(NamedConstants.SCREEN_START_ID, 1);
+        this.width = NamedConstants.SCREEN_START_ID.length();
+    }
+
+    /**
+     * Next screen ID for the business
+     *
+     * @param customHibernate
+     * @param businessId
+     * @return
+     * @throws MyCustomException
+     */
+    public String nextScreenId(CustomHibernate customHibernate, String businessId) throws MyCustomException {
+
+        AtomicInteger sequence = sequences.get(businessId);
+
+        if (sequence == null) {
+            sequence = seed(customHibernate, businessId);
+        }
+
+        return format(businessId, sequence.incrementAndGet());
+    }
+
+    /**
+     * Move the business sequence past the highest screen ID currently in the
+     * database, e.g. after a unique-key violation on insert
+     *
+     * @param customHibernate
+     * @param businessId
+     * @throws MyCustomException
+     */
+    public void reconcile(CustomHibernate customHibernate, String businessId) throws MyCustomException {
+
+        int highest = loadHighest(customHibernate, businessId);
+
+        AtomicInteger sequence = sequences.get(businessId);
+        if (sequence == null) {
+            sequences.putIfAbsent(businessId, new AtomicInteger(highest));
+            return;
+        }
+
+        int current;
+        do {
+            current = sequence.get();
+        } while (current < highest && !sequence.compareAndSet(current, highest));
+
+        LOG.debug("Reconciled screen sequence for business: " + businessId + " to: " + Math.max(current, highest));
+    }
+
+    private AtomicInteger seed(CustomHibernate customHibernate, String businessId) throws MyCustomException {
+
+        //one DB lookup per business, concurrent first callers only race on putIfAbsent
+        AtomicInteger seeded = new AtomicInteger(loadHighest(customHibernate, businessId));
+        AtomicInteger existing = sequences.putIfAbsent(businessId, seeded);
+
+        return existing == null ? seeded : existing;
+    }
+
+    private int loadHighest(CustomHibernate customHibernate, String businessId) throws MyCustomException {
+
+        Set<Object> businessIds = new HashSet<>();
+        businessIds.add(businessId);
+
+        Map<String, Object> propertyNameValues = new HashMap<>();
+        propertyNameValues.put(BUSINESS_ID_PROPERTY, businessIds);
+
+        Set<String> screenIds = customHibernate.fetchOnlyColumn(AdScreen.class, SCREEN_ID_PROPERTY, propertyNameValues);
+
+        int highest = startValue - 1;
+        for (String screenId : screenIds) {
+            highest = Math.max(highest, trailingNumber(screenId, startValue - 1));
+        }
+
+        LOG.debug("Highest screen number for business: " + businessId + " is: " + highest);
+
+        return highest;
+    }
+
+    private String format(String businessId, int number) {
+
+        String digits = String.valueOf(number);
+        StringBuilder screenId = new StringBuilder(businessId.length() + 1 + Math.max(width, digits.length()));
+        screenId.append(businessId).append('-');
+        for (int i = digits.length(); i < width; i++) {
+            screenId.append('0');
+        }
+        return screenId.append(digits).toString();
+    }
+
+    /**
+     * Numeric suffix of a screen id, e.g. 12 for "SASS-12" or "SASS12"
+     */
+    private static int trailingNumber(String value, int defaultValue) {
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        int start = value.length();
+        while (start > 0 && Character.isDigit(value.charAt(start - 1))) {
+            start--;
+        }
+
+        if (start == value.length()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.substring(start));
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
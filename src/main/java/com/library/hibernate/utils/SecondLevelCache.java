@@ -0,0 +1,200 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.hibernate.CacheMode;
+import org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory;
+import org.hibernate.cache.internal.StandardQueryCache;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.hibernate.cfg.Configuration;
+
+/**
+ * In-process (Ehcache) second level cache for the entities listed in
+ * sghibernate.cache.entities. Every region is bounded by entry count and TTL,
+ * both configurable per region:
+ *
+ * <pre>
+ * &lt;property name="sghibernate.cache.entities"&gt;com.library.datamodel.model.v1_0.AdScreenSize,com.library.datamodel.model.v1_0.AdAudienceType&lt;/property&gt;
+ * &lt;property name="sghibernate.cache.ttl_seconds"&gt;600&lt;/property&gt;
+ * &lt;property name="sghibernate.cache.region.com.library.datamodel.model.v1_0.AdScreenSize.max_entries"&gt;500&lt;/property&gt;
+ * </pre>
+ *
+ * Criteria fetches of a cached entity also go through the query cache, whose
+ * results Hibernate invalidates whenever the entity's table is written.
+ *
+ * Every SessionFactory shares the one CacheManager, its regions are kept apart
+ * by hibernate.cache.region_prefix (default the config file name).
+ *
+ * @author smallgod
+ */
+public final class SecondLevelCache {
+
+    private static final LoggerUtil LOG = new LoggerUtil(SecondLevelCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    public static final long DEFAULT_TTL_SECONDS = 600L;
+
+    private static final String DEFAULT_STRATEGY = "read-write";
+
+    private final Set<String> cachedEntities;
+    private final CacheManager cacheManager;
+    private final String regionPrefix;
+    private final CacheMode defaultCacheMode;
+
+    private SecondLevelCache(Set<String> cachedEntities, CacheManager cacheManager, String regionPrefix, CacheMode defaultCacheMode) {
+        this.cachedEntities = cachedEntities;
+        this.cacheManager = cacheManager;
+        this.regionPrefix = regionPrefix;
+        this.defaultCacheMode = defaultCacheMode;
+    }
+
+    /**
+     * @return a cache that caches nothing, e.g. until the configuration
+     * succeeds
+     */
+    public static SecondLevelCache off() {
+        return new SecondLevelCache(Collections.<String>emptySet(), null, null, CacheMode.NORMAL);
+    }
+
+    /**
+     * Turn the cache on in the configuration (before the SessionFactory is
+     * built) if any entity is listed for caching
+     *
+     * @param configuration
+     * @param defaultRegionPrefix used when hibernate.cache.region_prefix is
+     * not set
+     * @return
+     */
+    public static SecondLevelCache configure(Configuration configuration, String defaultRegionPrefix) {
+
+        Properties properties = configuration.getProperties();
+
+        String cacheMode = HibernateProperties.getString(properties, HibernateProperties.CACHE_MODE);
+        CacheMode defaultCacheMode = cacheMode == null ? CacheMode.NORMAL : CacheMode.valueOf(cacheMode.toUpperCase());
+
+        Set<String> entities = new HashSet<>();
+        String entityList = HibernateProperties.getString(properties, HibernateProperties.CACHE_ENTITIES);
+        if (entityList != null) {
+            for (String entity : entityList.split(",")) {
+                if (!entity.trim().isEmpty()) {
+                    entities.add(entity.trim());
+                }
+            }
+        }
+
+        if (entities.isEmpty()) {
+            LOG.debug("No entities listed in " + HibernateProperties.CACHE_ENTITIES + ", second level cache is off");
+            return new SecondLevelCache(Collections.<String>emptySet(), null, null, defaultCacheMode);
+        }
+
+        int defaultMaxEntries = HibernateProperties.getInt(properties, HibernateProperties.CACHE_MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+        long defaultTtl = HibernateProperties.getLong(properties, HibernateProperties.CACHE_TTL_SECONDS, DEFAULT_TTL_SECONDS);
+
+        net.sf.ehcache.config.Configuration cacheConfig = new net.sf.ehcache.config.Configuration()
+                .name("sghibernate")
+                .updateCheck(Boolean.FALSE)
+                .defaultCache(new CacheConfiguration()
+                        .maxEntriesLocalHeap(defaultMaxEntries)
+                        .timeToLiveSeconds(defaultTtl));
+
+        String regionPrefix = HibernateProperties.getString(properties, "hibernate.cache.region_prefix");
+        if (regionPrefix == null) {
+            regionPrefix = defaultRegionPrefix;
+        }
+
+        configuration.setProperty("hibernate.cache.use_second_level_cache", "true");
+        configuration.setProperty("hibernate.cache.use_query_cache", "true");
+        configuration.setProperty("hibernate.cache.region.factory_class", SingletonEhCacheRegionFactory.class.getName());
+        configuration.setProperty("hibernate.cache.region_prefix", regionPrefix);
+
+        //the region factory picks up this singleton instead of reading an ehcache.xml.
+        //If another SessionFactory created it first, only its regions are added below
+        CacheManager cacheManager = CacheManager.create(cacheConfig);
+
+        String strategy = HibernateProperties.getString(properties, HibernateProperties.CACHE_STRATEGY);
+
+        for (String entity : entities) {
+
+            addRegion(cacheManager, regionConfiguration(properties, regionPrefix, entity, defaultMaxEntries, defaultTtl));
+            configuration.setCacheConcurrencyStrategy(entity, strategy == null ? DEFAULT_STRATEGY : strategy);
+        }
+
+        addRegion(cacheManager, regionConfiguration(properties, regionPrefix, StandardQueryCache.class.getName(), defaultMaxEntries, defaultTtl));
+        //query results are only valid while these timestamps are kept, so they are never evicted (0 = unbounded)
+        addRegion(cacheManager, new CacheConfiguration(regionPrefix + "." + UpdateTimestampsCache.REGION_NAME, 0).eternal(Boolean.TRUE));
+
+        LOG.info("Second level cache on for: " + entities + ", regions prefixed " + regionPrefix);
+
+        return new SecondLevelCache(Collections.unmodifiableSet(entities), cacheManager, regionPrefix + ".", defaultCacheMode);
+    }
+
+    private static CacheConfiguration regionConfiguration(Properties properties, String regionPrefix, String regionName, int defaultMaxEntries, long defaultTtl) {
+
+        String prefix = HibernateProperties.CACHE_REGION_PREFIX + regionName;
+
+        return new CacheConfiguration(regionPrefix + "." + regionName, HibernateProperties.getInt(properties, prefix + ".max_entries", defaultMaxEntries))
+                .timeToLiveSeconds(HibernateProperties.getLong(properties, prefix + ".ttl_seconds", defaultTtl));
+    }
+
+    private static void addRegion(CacheManager cacheManager, CacheConfiguration regionConfiguration) {
+
+        //a rebuilt SessionFactory finds its regions still there
+        cacheManager.addCacheIfAbsent(new Cache(regionConfiguration));
+    }
+
+    /**
+     * @param entityType
+     * @return true if the entity type is kept in the second level cache
+     */
+    public boolean isCached(Class entityType) {
+        return cachedEntities.contains(entityType.getName());
+    }
+
+    /**
+     * @return CacheMode to use when a fetch is not given one
+     */
+    public CacheMode getDefaultCacheMode() {
+        return defaultCacheMode;
+    }
+
+    /**
+     * Hit/miss counts per region of this configuration, without the region
+     * prefix. Empty if the cache is off
+     *
+     * @return
+     */
+    public Map<String, CacheRegionStatistics> getStatistics() {
+
+        Map<String, CacheRegionStatistics> statistics = new LinkedHashMap<>();
+
+        if (cacheManager == null) {
+            return statistics;
+        }
+
+        for (String cacheName : cacheManager.getCacheNames()) {
+
+            if (!cacheName.startsWith(regionPrefix)) {
+                continue;
+            }
+
+            String regionName = cacheName.substring(regionPrefix.length());
+            Ehcache cache = cacheManager.getEhcache(cacheName);
+            if (cache != null) {
+                statistics.put(regionName, new CacheRegionStatistics(regionName,
+                        cache.getStatistics().cacheHitCount(),
+                        cache.getStatistics().cacheMissCount(),
+                        cache.getSize()));
+            }
+        }
+        return statistics;
+    }
+}
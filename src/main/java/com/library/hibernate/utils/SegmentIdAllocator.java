@@ -0,0 +1,129 @@
+package com.library.hibernate.utils;
+
+import com.library.customexception.MyCustomException;
+import com.library.hibernate.CustomHibernate;
+import com.library.sglogger.util.LoggerUtil;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hi/lo style ID allocator. A block of IDs is leased per entity class from
+ * the id segment table (one short row-locked transaction) and then handed out
+ * from memory with an atomic counter, so no table scan or JVM-wide lock is
+ * needed per ID. Blocks leased by different nodes never overlap because the
+ * lease itself is serialised by the database row lock.
+ *
+ * A new segment starts at sghibernate.id_segment.floor, and IDs that rows
+ * already use (the random IDs of the legacy generators) are skipped.
+ *
+ * @author smallgod
+ */
+public final class SegmentIdAllocator {
+
+    private static final LoggerUtil LOG = new LoggerUtil(SegmentIdAllocator.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    private final CustomHibernate customHibernate;
+    private final int blockSize;
+    private final ConcurrentMap<String, Segment> segments = new ConcurrentHashMap<>();
+
+    public SegmentIdAllocator(CustomHibernate customHibernate) {
+        this(customHibernate, DEFAULT_BLOCK_SIZE);
+    }
+
+    public SegmentIdAllocator(CustomHibernate customHibernate, int blockSize) {
+
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive: " + blockSize);
+        }
+        this.customHibernate = customHibernate;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Next unique long ID for the given entity/id property
+     *
+     * @param classType
+     * @param idColumnName id property name as used in criteria, e.g.
+     * "id.fileId"
+     * @return
+     * @throws MyCustomException
+     */
+    public long nextLong(Class classType, String idColumnName) throws MyCustomException {
+        return next(classType, idColumnName, Long.MAX_VALUE);
+    }
+
+    /**
+     * Next unique int ID for the given entity/id property
+     *
+     * @param classType
+     * @param idColumnName
+     * @return
+     * @throws MyCustomException if the id space of the column is exhausted
+     */
+    public int nextInteger(Class classType, String idColumnName) throws MyCustomException {
+        return (int) next(classType, idColumnName, Integer.MAX_VALUE);
+    }
+
+    private long next(Class classType, String idColumnName, long maxId) throws MyCustomException {
+
+        String segmentName = segmentName(classType, idColumnName);
+
+        while (true) {
+
+            Segment segment = segments.get(segmentName);
+
+            if (segment != null) {
+                long id = segment.next.getAndIncrement();
+                if (id < segment.limit) {
+                    if (segment.takenIds.contains(id)) {
+                        continue;
+                    }
+                    return id;
+                }
+            }
+
+            refill(segmentName, segment, classType, idColumnName, maxId);
+        }
+    }
+
+    /**
+     * Lease a new block unless another thread has already replaced the
+     * exhausted segment
+     */
+    private void refill(String segmentName, Segment exhausted, Class classType, String idColumnName, long maxId) throws MyCustomException {
+
+        //refills happen once per block, a single lock is good enough here
+        synchronized (this) {
+
+            if (segments.get(segmentName) != exhausted) {
+                return;
+            }
+
+            IdBlock block = customHibernate.leaseIdBlock(segmentName, classType, idColumnName, blockSize, maxId);
+            segments.put(segmentName, new Segment(block));
+
+            LOG.debug("Leased ID block [" + block.getStart() + ", " + block.getLimit() + ") for: " + segmentName);
+        }
+    }
+
+    private static String segmentName(Class classType, String idColumnName) {
+        return classType.getSimpleName() + "." + idColumnName;
+    }
+
+    private static final class Segment {
+
+        private final AtomicLong next;
+        private final long limit;
+        private final Set<Long> takenIds;
+
+        private Segment(IdBlock block) {
+            this.next = new AtomicLong(block.getStart());
+            this.limit = block.getLimit();
+            this.takenIds = block.getTakenIds();
+        }
+    }
+}
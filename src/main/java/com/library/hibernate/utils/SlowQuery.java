@@ -0,0 +1,118 @@
+package com.library.hibernate.utils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One call recorded by SlowQueryRecorder
+ *
+ * @author smallgod
+ */
+public final class SlowQuery {
+
+    private final long timestamp;
+    private final String operation;
+    private final String query;
+    private final List<String> statements;
+    private final Map<String, String> parameters;
+    private final long rows;
+    private final long elapsedMillis;
+    private final String error;
+    private final String callSite;
+    private final List<String> plan;
+
+    SlowQuery(long timestamp, String operation, String query, List<String> statements, Map<String, String> parameters, long rows, long elapsedMillis, String error, String callSite, List<String> plan) {
+        this.timestamp = timestamp;
+        this.operation = operation;
+        this.query = query;
+        this.statements = Collections.unmodifiableList(statements);
+        this.parameters = Collections.unmodifiableMap(parameters);
+        this.rows = rows;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+        this.callSite = callSite;
+        this.plan = Collections.unmodifiableList(plan);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return HQL of a named query, or the entity name of a criteria fetch
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return SQL statements the call prepared
+     */
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return parameter values by name, redacted ones as ****
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return error details if the call failed, otherwise null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return first stack frame outside this library
+     */
+    public String getCallSite() {
+        return callSite;
+    }
+
+    /**
+     * @return EXPLAIN output, one row per line, empty unless explain is on
+     */
+    public List<String> getPlan() {
+        return plan;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder text = new StringBuilder()
+                .append(String.format("%tF %<tT ", new Date(timestamp)))
+                .append(operation).append(" took ").append(elapsedMillis).append("ms, ")
+                .append(rows).append(" rows, called from ").append(callSite)
+                .append("\n  query: ").append(query)
+                .append("\n  parameters: ").append(parameters);
+
+        if (error != null) {
+            text.append("\n  error: ").append(error);
+        }
+        for (String statement : statements) {
+            text.append("\n  sql: ").append(statement);
+        }
+        for (String row : plan) {
+            text.append("\n  plan: ").append(row);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,293 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
+
+/**
+ * Keeps the last capacity calls that took threshold_ms or longer, with the
+ * SQL they ran (see SqlCaptureInspector), their parameters, row count and
+ * the calling frame. Parameters whose name contains one of the redact words
+ * are kept as ****.
+ *
+ * With explain on, the captured SELECT statements of a slow call are run
+ * again as EXPLAIN on a new connection, in the calling thread. Only
+ * statements without placeholders are explained: the values Hibernate bound
+ * are not captured, and the call's parameters cannot be matched to the
+ * placeholders (map order, expanded lists, association loads of the same
+ * call), so binding them could explain a different query.
+ *
+ * Recording is off when threshold_ms is 0 (the default): begin and end then
+ * cost a field read.
+ *
+ * @author smallgod
+ */
+public final class SlowQueryRecorder {
+
+    private static final LoggerUtil LOG = new LoggerUtil(SlowQueryRecorder.class);
+
+    public static final int DEFAULT_CAPACITY = 100;
+    public static final String DEFAULT_REDACT = "password,passwd,pin,secret,token";
+
+    private static final String REDACTED = "****";
+    private static final int MAX_VALUE_LENGTH = 200;
+    private static final String LIBRARY_PACKAGE = "com.library.hibernate.";
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final boolean explain;
+    private final List<String> redact = new ArrayList<>();
+
+    private final Deque<SlowQuery> recent;
+    private final AtomicLong slowCount = new AtomicLong();
+
+    private volatile SessionFactory sessionFactory;
+
+    public SlowQueryRecorder(Properties properties) {
+
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(HibernateProperties.getLong(properties, HibernateProperties.SLOW_QUERY_THRESHOLD_MS, 0L));
+        this.capacity = Math.max(1, HibernateProperties.getInt(properties, HibernateProperties.SLOW_QUERY_CAPACITY, DEFAULT_CAPACITY));
+        this.explain = HibernateProperties.getBoolean(properties, HibernateProperties.SLOW_QUERY_EXPLAIN, Boolean.FALSE);
+        this.recent = new ArrayDeque<>(capacity);
+
+        String words = HibernateProperties.getString(properties, HibernateProperties.SLOW_QUERY_REDACT);
+        for (String word : (words == null ? DEFAULT_REDACT : words).split(",")) {
+            if (!word.trim().isEmpty()) {
+                redact.add(word.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    /**
+     * @return true when a threshold is configured
+     */
+    public boolean isEnabled() {
+        return thresholdNanos > 0;
+    }
+
+    /**
+     * Used to run EXPLAIN
+     *
+     * @param sessionFactory
+     */
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Start capturing the SQL prepared by this thread
+     */
+    public void begin() {
+
+        if (isEnabled()) {
+            SqlCaptureInspector.start();
+        }
+    }
+
+    /**
+     * Stop capturing and record the call if it was slow
+     *
+     * @param operation
+     * @param query HQL of a named query, or the entity name
+     * @param startNanos System.nanoTime() when the call started
+     * @param parameters property/parameter name values, may be null
+     * @param rows
+     * @param error error details if the call failed, otherwise null
+     */
+    public void end(String operation, String query, long startNanos, Map<String, ?> parameters, long rows, String error) {
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        List<String> statements = SqlCaptureInspector.stop();
+
+        long elapsed = System.nanoTime() - startNanos;
+        if (elapsed < thresholdNanos) {
+            return;
+        }
+
+        List<String> plan = explain ? explain(statements) : Collections.<String>emptyList();
+
+        SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), operation, query, statements, redacted(parameters), rows,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), error, callSite(), plan);
+
+        slowCount.incrementAndGet();
+        LOG.warn("Slow query: " + slowQuery);
+
+        synchronized (recent) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(slowQuery);
+        }
+    }
+
+    private Map<String, String> redacted(Map<String, ?> parameters) {
+
+        Map<String, String> values = new LinkedHashMap<>();
+        if (parameters == null) {
+            return values;
+        }
+
+        for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+
+            String value = isRedacted(parameter.getKey()) ? REDACTED : String.valueOf(parameter.getValue());
+            if (value.length() > MAX_VALUE_LENGTH) {
+                value = value.substring(0, MAX_VALUE_LENGTH) + "...";
+            }
+            values.put(parameter.getKey(), value);
+        }
+        return values;
+    }
+
+    private boolean isRedacted(String name) {
+
+        String lowerCaseName = String.valueOf(name).toLowerCase(Locale.ENGLISH);
+        for (String word : redact) {
+            if (lowerCaseName.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String callSite() {
+
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            if (!frame.getClassName().startsWith(LIBRARY_PACKAGE)) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    private List<String> explain(List<String> statements) {
+
+        final List<String> plan = new ArrayList<>();
+
+        SessionFactory factory = sessionFactory;
+        if (factory == null || factory.isClosed()) {
+            return plan;
+        }
+
+        Session session = null;
+        try {
+            session = factory.openSession();
+
+            for (final String sql : statements) {
+
+                if (!sql.trim().toLowerCase(Locale.ENGLISH).startsWith("select")) {
+                    continue;
+                }
+
+                int placeholders = countPlaceholders(sql);
+                if (placeholders > 0) {
+                    plan.add("not explained, " + placeholders + " bound parameters: " + sql);
+                    continue;
+                }
+
+                session.doWork(new Work() {
+                    @Override
+                    public void execute(Connection connection) throws SQLException {
+
+                        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+
+                            try (ResultSet resultSet = statement.executeQuery()) {
+                                ResultSetMetaData metaData = resultSet.getMetaData();
+                                while (resultSet.next()) {
+                                    StringBuilder row = new StringBuilder();
+                                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                                        row.append(column > 1 ? ", " : "").append(metaData.getColumnLabel(column)).append('=').append(resultSet.getString(column));
+                                    }
+                                    plan.add(row.toString());
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+
+        } catch (HibernateException ex) {
+            plan.add("EXPLAIN failed: " + ex.toString());
+        } finally {
+            if (session != null && session.isOpen()) {
+                session.close();
+            }
+        }
+        return plan;
+    }
+
+    private static int countPlaceholders(String sql) {
+
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return slow calls recorded, oldest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    /**
+     * Log the recorded slow calls
+     *
+     * @return the logged text
+     */
+    public String dump() {
+
+        StringBuilder text = new StringBuilder();
+        for (SlowQuery slowQuery : getSlowQueries()) {
+            text.append(slowQuery).append('\n');
+        }
+
+        LOG.info("Recent slow queries (" + slowCount.get() + " since start):\n" + text);
+        return text.toString();
+    }
+
+    /**
+     * @return slow calls since start, including those no longer kept
+     */
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+
+    public void clear() {
+
+        synchronized (recent) {
+            recent.clear();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.library.hibernate.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Keeps the SQL Hibernate prepares on a thread between
+ * SlowQueryRecorder.begin and end, so a slow call can be reported with the
+ * statements it ran. Registered as hibernate.session_factory.statement_inspector
+ * when the slow query threshold is set, a no-op on threads not capturing.
+ *
+ * @author smallgod
+ */
+public final class SqlCaptureInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Statements kept per call, e.g. a fetch followed by N association loads
+     */
+    static final int MAX_STATEMENTS = 20;
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+
+        List<String> statements = CAPTURED.get();
+        if (statements != null && statements.size() < MAX_STATEMENTS) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    static void start() {
+        CAPTURED.set(new ArrayList<String>());
+    }
+
+    /**
+     * @return statements prepared since start, empty if not capturing
+     */
+    static List<String> stop() {
+
+        List<String> statements = CAPTURED.get();
+        CAPTURED.remove();
+        return statements == null ? new ArrayList<String>() : statements;
+    }
+}
@@ -0,0 +1,232 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Takes a StatisticsSnapshot of a SessionFactory every export_interval_seconds
+ * and publishes the activity since the previous one: over JMX as the last
+ * delta and, when export_file is set, as a few lines appended to a local file
+ * that rolls over at export_file_max_bytes. Each export lists the
+ * top_queries queries that took the most time during the interval.
+ *
+ * @author smallgod
+ */
+public final class StatisticsExporter implements StatisticsExporterMXBean {
+
+    private static final LoggerUtil LOG = new LoggerUtil(StatisticsExporter.class);
+
+    public static final long DEFAULT_INTERVAL_SECONDS = 60L;
+    public static final int DEFAULT_FILE_MAX_BYTES = 10 * 1024 * 1024;
+    public static final int DEFAULT_FILE_COUNT = 5;
+    public static final int DEFAULT_TOP_QUERIES = 10;
+
+    private final Statistics statistics;
+    private final long intervalSeconds;
+    private final int topQueries;
+    private final FileHandler file;
+    private final ScheduledExecutorService scheduler;
+
+    private StatisticsSnapshot previous;
+    private volatile StatisticsSnapshot lastDelta;
+    private ObjectName objectName;
+
+    /**
+     * @param statistics of the SessionFactory to export
+     * @param properties settings from the hibernate config file
+     */
+    public StatisticsExporter(Statistics statistics, Properties properties) {
+
+        this.statistics = statistics;
+        this.intervalSeconds = Math.max(1L, HibernateProperties.getLong(properties, HibernateProperties.STATISTICS_EXPORT_INTERVAL_SECONDS, DEFAULT_INTERVAL_SECONDS));
+        this.topQueries = HibernateProperties.getInt(properties, HibernateProperties.STATISTICS_EXPORT_TOP_QUERIES, DEFAULT_TOP_QUERIES);
+        this.file = openFile(properties);
+
+        this.previous = StatisticsSnapshot.of(statistics);
+        this.lastDelta = previous.minus(previous);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sghibernate-statistics-exporter");
+                thread.setDaemon(Boolean.TRUE);
+                return thread;
+            }
+        });
+    }
+
+    private static FileHandler openFile(Properties properties) {
+
+        String pattern = HibernateProperties.getString(properties, HibernateProperties.STATISTICS_EXPORT_FILE);
+        if (pattern == null) {
+            return null;
+        }
+
+        try {
+            FileHandler handler = new FileHandler(pattern,
+                    HibernateProperties.getInt(properties, HibernateProperties.STATISTICS_EXPORT_FILE_MAX_BYTES, DEFAULT_FILE_MAX_BYTES),
+                    HibernateProperties.getInt(properties, HibernateProperties.STATISTICS_EXPORT_FILE_COUNT, DEFAULT_FILE_COUNT),
+                    Boolean.TRUE);
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return record.getMessage() + System.lineSeparator();
+                }
+            });
+            return handler;
+
+        } catch (IOException ex) {
+            LOG.warn("Could not open statistics export file " + pattern + ", exporting over JMX only: " + ex.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Export every interval from now on
+     */
+    public void start() {
+
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    export();
+                } catch (RuntimeException ex) {
+                    //an exception would cancel the schedule
+                    LOG.warn("Statistics export failed: " + ex.toString());
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+
+        LOG.debug("Exporting Hibernate statistics every " + intervalSeconds + "s" + (file == null ? "" : " to file"));
+    }
+
+    /**
+     * Publish the activity since the previous export
+     *
+     * @return the published delta
+     */
+    public synchronized StatisticsSnapshot export() {
+
+        StatisticsSnapshot current = StatisticsSnapshot.of(statistics);
+        StatisticsSnapshot delta = current.minus(previous);
+
+        previous = current;
+        lastDelta = delta;
+
+        if (file != null) {
+            write(delta);
+        }
+        return delta;
+    }
+
+    private void write(StatisticsSnapshot delta) {
+
+        file.publish(new LogRecord(Level.INFO, String.format("%tF %<tT intervalMs=%d %s", new Date(delta.getTimestamp()), delta.getIntervalMillis(), delta)));
+
+        List<QueryStatisticsSnapshot> queries = delta.getQueries();
+        for (int i = 0; i < queries.size() && i < topQueries; i++) {
+            file.publish(new LogRecord(Level.INFO, "    " + queries.get(i)));
+        }
+        file.flush();
+    }
+
+    /**
+     * Stop exporting, after a last export of what happened since the previous
+     * one
+     */
+    public void stop() {
+
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(intervalSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            export();
+        } catch (RuntimeException ex) {
+            LOG.warn("Final statistics export failed: " + ex.toString());
+        }
+
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    @Override
+    public long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    @Override
+    public StatisticsSnapshot getLastDelta() {
+        return lastDelta;
+    }
+
+    @Override
+    public StatisticsSnapshot getTotals() {
+        return StatisticsSnapshot.of(statistics);
+    }
+
+    /**
+     * Publish over JMX, once. An MBean of the same name belongs to another
+     * configuration and is left alone
+     *
+     * @param name value of the name key, e.g. the configuration file
+     */
+    public synchronized void register(String name) {
+
+        if (objectName != null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName newName = new ObjectName("com.library.hibernate:type=Statistics,name=" + ObjectName.quote(name));
+
+            if (server.isRegistered(newName)) {
+                LOG.warn("Statistics MBean " + newName + " already registered by another configuration, not publishing these");
+                return;
+            }
+            server.registerMBean(this, newName);
+            objectName = newName;
+
+        } catch (JMException ex) {
+            LOG.warn("Could not register statistics MBean: " + ex.toString());
+        }
+    }
+
+    public synchronized void unregister() {
+
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException ex) {
+            LOG.warn("Could not unregister statistics MBean: " + ex.toString());
+        }
+        objectName = null;
+    }
+}
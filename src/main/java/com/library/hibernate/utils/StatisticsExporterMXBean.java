@@ -0,0 +1,26 @@
+package com.library.hibernate.utils;
+
+/**
+ * JMX view of StatisticsExporter, registered by
+ * CustomHibernate.initialiseDBResources under
+ * com.library.hibernate:type=Statistics
+ *
+ * @author smallgod
+ */
+public interface StatisticsExporterMXBean {
+
+    /**
+     * @return seconds between exports
+     */
+    public long getIntervalSeconds();
+
+    /**
+     * @return activity during the last completed interval
+     */
+    public StatisticsSnapshot getLastDelta();
+
+    /**
+     * @return totals since the statistics were last cleared
+     */
+    public StatisticsSnapshot getTotals();
+}
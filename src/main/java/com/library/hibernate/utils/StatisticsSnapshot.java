@@ -0,0 +1,286 @@
+package com.library.hibernate.utils;
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Typed copy of the Hibernate statistics of a SessionFactory at one point in
+ * time, or (see minus) the activity between two such points. Queries are
+ * ordered by total execution time, the most expensive first.
+ *
+ * @author smallgod
+ */
+public final class StatisticsSnapshot {
+
+    private final long timestamp;
+    private final long intervalMillis;
+    private final long sessionOpenCount;
+    private final long transactionCount;
+    private final long connectCount;
+    private final long prepareStatementCount;
+    private final long flushCount;
+    private final long queryExecutionCount;
+    private final long queryExecutionMaxTime;
+    private final String queryExecutionMaxTimeQueryString;
+    private final long entityLoadCount;
+    private final long entityFetchCount;
+    private final long entityInsertCount;
+    private final long entityUpdateCount;
+    private final long entityDeleteCount;
+    private final long collectionLoadCount;
+    private final long secondLevelCacheHitCount;
+    private final long secondLevelCacheMissCount;
+    private final long queryCacheHitCount;
+    private final long queryCacheMissCount;
+    private final List<QueryStatisticsSnapshot> queries;
+
+    @ConstructorProperties({"timestamp", "intervalMillis", "sessionOpenCount", "transactionCount", "connectCount", "prepareStatementCount", "flushCount",
+        "queryExecutionCount", "queryExecutionMaxTime", "queryExecutionMaxTimeQueryString", "entityLoadCount", "entityFetchCount", "entityInsertCount",
+        "entityUpdateCount", "entityDeleteCount", "collectionLoadCount", "secondLevelCacheHitCount", "secondLevelCacheMissCount", "queryCacheHitCount",
+        "queryCacheMissCount", "queries"})
+    public StatisticsSnapshot(long timestamp, long intervalMillis, long sessionOpenCount, long transactionCount, long connectCount, long prepareStatementCount, long flushCount,
+            long queryExecutionCount, long queryExecutionMaxTime, String queryExecutionMaxTimeQueryString, long entityLoadCount, long entityFetchCount, long entityInsertCount,
+            long entityUpdateCount, long entityDeleteCount, long collectionLoadCount, long secondLevelCacheHitCount, long secondLevelCacheMissCount, long queryCacheHitCount,
+            long queryCacheMissCount, List<QueryStatisticsSnapshot> queries) {
+
+        this.timestamp = timestamp;
+        this.intervalMillis = intervalMillis;
+        this.sessionOpenCount = sessionOpenCount;
+        this.transactionCount = transactionCount;
+        this.connectCount = connectCount;
+        this.prepareStatementCount = prepareStatementCount;
+        this.flushCount = flushCount;
+        this.queryExecutionCount = queryExecutionCount;
+        this.queryExecutionMaxTime = queryExecutionMaxTime;
+        this.queryExecutionMaxTimeQueryString = queryExecutionMaxTimeQueryString;
+        this.entityLoadCount = entityLoadCount;
+        this.entityFetchCount = entityFetchCount;
+        this.entityInsertCount = entityInsertCount;
+        this.entityUpdateCount = entityUpdateCount;
+        this.entityDeleteCount = entityDeleteCount;
+        this.collectionLoadCount = collectionLoadCount;
+        this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+        this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+        this.queryCacheHitCount = queryCacheHitCount;
+        this.queryCacheMissCount = queryCacheMissCount;
+        this.queries = Collections.unmodifiableList(queries);
+    }
+
+    /**
+     * Copy the current statistics
+     *
+     * @param statistics of a SessionFactory
+     * @return
+     */
+    public static StatisticsSnapshot of(Statistics statistics) {
+
+        List<QueryStatisticsSnapshot> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            queries.add(new QueryStatisticsSnapshot(query,
+                    queryStatistics.getExecutionCount(),
+                    queryStatistics.getExecutionRowCount(),
+                    queryStatistics.getExecutionTotalTime(),
+                    queryStatistics.getExecutionMaxTime()));
+        }
+
+        return new StatisticsSnapshot(System.currentTimeMillis(), 0L,
+                statistics.getSessionOpenCount(),
+                statistics.getTransactionCount(),
+                statistics.getConnectCount(),
+                statistics.getPrepareStatementCount(),
+                statistics.getFlushCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getEntityInsertCount(),
+                statistics.getEntityUpdateCount(),
+                statistics.getEntityDeleteCount(),
+                statistics.getCollectionLoadCount(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                byTotalTime(queries));
+    }
+
+    /**
+     * Activity since an earlier snapshot. Maximum times are not deltas, they
+     * stay the maximum since statistics were cleared
+     *
+     * @param previous
+     * @return
+     */
+    public StatisticsSnapshot minus(StatisticsSnapshot previous) {
+
+        Map<String, QueryStatisticsSnapshot> previousQueries = new HashMap<>();
+        for (QueryStatisticsSnapshot query : previous.queries) {
+            previousQueries.put(query.getQuery(), query);
+        }
+
+        List<QueryStatisticsSnapshot> queryDeltas = new ArrayList<>();
+        for (QueryStatisticsSnapshot query : queries) {
+
+            QueryStatisticsSnapshot delta = query.minus(previousQueries.get(query.getQuery()));
+            if (delta.getExecutionCount() > 0) {
+                queryDeltas.add(delta);
+            }
+        }
+
+        return new StatisticsSnapshot(timestamp, timestamp - previous.timestamp,
+                sessionOpenCount - previous.sessionOpenCount,
+                transactionCount - previous.transactionCount,
+                connectCount - previous.connectCount,
+                prepareStatementCount - previous.prepareStatementCount,
+                flushCount - previous.flushCount,
+                queryExecutionCount - previous.queryExecutionCount,
+                queryExecutionMaxTime,
+                queryExecutionMaxTimeQueryString,
+                entityLoadCount - previous.entityLoadCount,
+                entityFetchCount - previous.entityFetchCount,
+                entityInsertCount - previous.entityInsertCount,
+                entityUpdateCount - previous.entityUpdateCount,
+                entityDeleteCount - previous.entityDeleteCount,
+                collectionLoadCount - previous.collectionLoadCount,
+                secondLevelCacheHitCount - previous.secondLevelCacheHitCount,
+                secondLevelCacheMissCount - previous.secondLevelCacheMissCount,
+                queryCacheHitCount - previous.queryCacheHitCount,
+                queryCacheMissCount - previous.queryCacheMissCount,
+                byTotalTime(queryDeltas));
+    }
+
+    private static List<QueryStatisticsSnapshot> byTotalTime(List<QueryStatisticsSnapshot> queries) {
+
+        Collections.sort(queries, new Comparator<QueryStatisticsSnapshot>() {
+            @Override
+            public int compare(QueryStatisticsSnapshot first, QueryStatisticsSnapshot second) {
+                return Long.compare(second.getExecutionTotalTime(), first.getExecutionTotalTime());
+            }
+        });
+        return queries;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return milliseconds covered by a delta, 0 for a plain snapshot
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public long getSessionOpenCount() {
+        return sessionOpenCount;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public long getConnectCount() {
+        return connectCount;
+    }
+
+    public long getPrepareStatementCount() {
+        return prepareStatementCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getQueryExecutionCount() {
+        return queryExecutionCount;
+    }
+
+    public long getQueryExecutionMaxTime() {
+        return queryExecutionMaxTime;
+    }
+
+    public String getQueryExecutionMaxTimeQueryString() {
+        return queryExecutionMaxTimeQueryString;
+    }
+
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    public long getEntityFetchCount() {
+        return entityFetchCount;
+    }
+
+    public long getEntityInsertCount() {
+        return entityInsertCount;
+    }
+
+    public long getEntityUpdateCount() {
+        return entityUpdateCount;
+    }
+
+    public long getEntityDeleteCount() {
+        return entityDeleteCount;
+    }
+
+    public long getCollectionLoadCount() {
+        return collectionLoadCount;
+    }
+
+    public long getSecondLevelCacheHitCount() {
+        return secondLevelCacheHitCount;
+    }
+
+    public long getSecondLevelCacheMissCount() {
+        return secondLevelCacheMissCount;
+    }
+
+    public long getQueryCacheHitCount() {
+        return queryCacheHitCount;
+    }
+
+    public long getQueryCacheMissCount() {
+        return queryCacheMissCount;
+    }
+
+    /**
+     * @return queries by total execution time, the most expensive first
+     */
+    public List<QueryStatisticsSnapshot> getQueries() {
+        return queries;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder text = new StringBuilder()
+                .append("sessions=").append(sessionOpenCount)
+                .append(" transactions=").append(transactionCount)
+                .append(" connects=").append(connectCount)
+                .append(" statements=").append(prepareStatementCount)
+                .append(" flushes=").append(flushCount)
+                .append(" queries=").append(queryExecutionCount)
+                .append(" entityLoads=").append(entityLoadCount)
+                .append(" entityFetches=").append(entityFetchCount)
+                .append(" inserts=").append(entityInsertCount)
+                .append(" updates=").append(entityUpdateCount)
+                .append(" deletes=").append(entityDeleteCount)
+                .append(" collectionLoads=").append(collectionLoadCount)
+                .append(" l2Hits=").append(secondLevelCacheHitCount)
+                .append(" l2Misses=").append(secondLevelCacheMissCount)
+                .append(" queryCacheHits=").append(queryCacheHitCount)
+                .append(" queryCacheMisses=").append(queryCacheMissCount)
+                .append(" slowestQueryMs=").append(queryExecutionMaxTime);
+        return text.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package com.library.hibernate.utils;
+
+import com.library.sglogger.util.LoggerUtil;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, time-ordered 64-bit ID generator (Snowflake layout). No database
+ * round trip is needed, uniqueness across nodes comes from the node id.
+ *
+ * <pre>
+ * | 1 bit unused | 41 bits millis since EPOCH | 10 bits node id | 12 bits sequence |
+ * </pre>
+ *
+ * The last issued (timestamp, sequence) pair is kept in a single AtomicLong
+ * and advanced with CAS. The timestamp never runs ahead of the clock, so a
+ * restarted process cannot issue IDs the previous one already handed out:
+ * once the 4096 IDs of a millisecond are used up, callers spin until the
+ * next one. If the clock moves back by up to MAX_BACKWARD_DRIFT_MILLIS (e.g.
+ * an NTP step) the generator keeps counting on the last timestamp, and
+ * waits for the clock once those IDs are used up. Further back, nextId fails.
+ *
+ * The node id is read from the "sghibernate.nodeId" system property
+ * (0 - 1023) and must be set, a different one per node. Only a single-node
+ * deployment ("sghibernate.singleNode" system property set to true) may leave
+ * it out, it then uses node id 0.
+ *
+ * @author smallgod
+ */
+public final class TimeOrderedIdGenerator {
+
+    private static final LoggerUtil LOG = new LoggerUtil(TimeOrderedIdGenerator.class);
+
+    public static final String NODE_ID_PROPERTY = "sghibernate.nodeId";
+    public static final String SINGLE_NODE_PROPERTY = "sghibernate.singleNode";
+
+    /**
+     * 2017-01-01T00:00:00Z, gives about 69 years of IDs
+     */
+    public static final long EPOCH = 1483228800000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * How far back the clock may move before nextId fails
+     */
+    public static final long MAX_BACKWARD_DRIFT_MILLIS = 5L;
+
+    private final long nodeBits;
+
+    /**
+     * (millis since EPOCH << SEQUENCE_BITS) | sequence of the last issued ID
+     */
+    private final AtomicLong lastState = new AtomicLong();
+
+    public TimeOrderedIdGenerator(long nodeId) {
+
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    private static volatile TimeOrderedIdGenerator instance;
+
+    /**
+     * Process-wide generator using the configured node id
+     *
+     * @return
+     * @throws IllegalStateException if sghibernate.nodeId is not set and the
+     * deployment is not marked single-node
+     */
+    public static TimeOrderedIdGenerator getInstance() {
+
+        TimeOrderedIdGenerator generator = instance;
+        if (generator == null) {
+            synchronized (TimeOrderedIdGenerator.class) {
+                generator = instance;
+                if (generator == null) {
+                    generator = new TimeOrderedIdGenerator(resolveNodeId());
+                    instance = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * Next unique ID
+     *
+     * @return
+     * @throws IllegalStateException if the clock moved back more than
+     * MAX_BACKWARD_DRIFT_MILLIS
+     */
+    public long nextId() {
+
+        while (true) {
+
+            long now = System.currentTimeMillis() - EPOCH;
+            long last = lastState.get();
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long next;
+
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+
+            } else if (lastMillis - now > MAX_BACKWARD_DRIFT_MILLIS) {
+                throw new IllegalStateException("Clock moved back " + (lastMillis - now) + "ms, more than " + MAX_BACKWARD_DRIFT_MILLIS + "ms, not issuing IDs");
+
+            } else if ((last & SEQUENCE_MASK) == SEQUENCE_MASK) {
+                //the IDs of this millisecond are used up, wait for the next one instead of borrowing it
+                Thread.yield();
+                continue;
+
+            } else {
+                //same millisecond, or the clock went back a little: keep counting on the last timestamp
+                next = last + 1;
+            }
+
+            if (lastState.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Time (epoch millis) at which the given ID was generated
+     *
+     * @param id
+     * @return
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * Node that generated the given ID
+     *
+     * @param id
+     * @return
+     */
+    public static long extractNodeId(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    private static long resolveNodeId() {
+
+        String configured = System.getProperty(NODE_ID_PROPERTY);
+
+        if (configured != null && !configured.trim().isEmpty()) {
+            try {
+                return Long.parseLong(configured.trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalStateException(NODE_ID_PROPERTY + " must be a number between 0 and " + MAX_NODE_ID + ": " + configured);
+            }
+        }
+
+        //a node id derived from the host name can collide across hosts, so it is never guessed
+        if (!Boolean.getBoolean(SINGLE_NODE_PROPERTY)) {
+            throw new IllegalStateException(NODE_ID_PROPERTY + " is not set. Give every node its own id (0 - " + MAX_NODE_ID + "), or set " + SINGLE_NODE_PROPERTY + "=true when running one node only");
+        }
+
+        LOG.info(NODE_ID_PROPERTY + " not set, single-node deployment, using node id 0");
+        return 0L;
+    }
+}
@@ -0,0 +1,21 @@
+package com.library.hibernate.utils;
+
+import com.library.customexception.MyCustomException;
+
+/**
+ * Operations run by CustomHibernate.inUnitOfWork. The CustomHibernate
+ * methods called from execute share one session and transaction, committed
+ * when execute returns
+ *
+ * @author smallgod
+ * @param <T> result of the work
+ */
+public interface UnitOfWork<T> {
+
+    /**
+     * @return result handed back by inUnitOfWork
+     * @throws MyCustomException to roll the whole unit back, it is rethrown
+     * to the caller of inUnitOfWork
+     */
+    public T execute() throws MyCustomException;
+}
@@ -0,0 +1,13 @@
+package com.library.hibernate.utils;
+
+/**
+ * Converts a raw filter value (as passed in the property name/values maps of
+ * CustomHibernate) to the Java type of the property or query parameter it
+ * restricts
+ *
+ * @author smallgod
+ */
+public interface ValueConverter {
+
+    public Object convert(Object value);
+}
@@ -0,0 +1,34 @@
+package com.library.hibernate.utils;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads (Java 21). This is the version used on older
+ * JVMs or when the jar was not built with the virtual-threads profile; the
+ * real one lives in src/main/java21 and is packaged under
+ * META-INF/versions/21 of the multi-release jar.
+ *
+ * @author smallgod
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if this JVM and build can run tasks on virtual threads
+     */
+    public static boolean isSupported() {
+        return Boolean.FALSE;
+    }
+
+    /**
+     * An executor starting a new virtual thread per task
+     *
+     * @param namePrefix
+     * @return
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        throw new UnsupportedOperationException("Virtual threads need Java 21 and a jar built with the virtual-threads profile");
+    }
+}
@@ -0,0 +1,76 @@
+package com.library.hibernate.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A run of consecutive entities (by position in the input) of a chunked
+ * write that was either committed or failed
+ *
+ * @author smallgod
+ */
+public final class WriteRange {
+
+    private final int fromIndex;
+    private final int toIndex;
+    private final String errorDetails;
+    private final List<Object> failedEntities;
+
+    private WriteRange(int fromIndex, int toIndex, String errorDetails, List<Object> failedEntities) {
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.errorDetails = errorDetails;
+        this.failedEntities = failedEntities;
+    }
+
+    public static WriteRange succeeded(int fromIndex, int toIndex) {
+        return new WriteRange(fromIndex, toIndex, null, Collections.emptyList());
+    }
+
+    public static WriteRange failed(int fromIndex, int toIndex, String errorDetails, List<?> failedEntities) {
+        return new WriteRange(fromIndex, toIndex, errorDetails, Collections.unmodifiableList(new ArrayList<Object>(failedEntities)));
+    }
+
+    /**
+     * @return position of the first entity, inclusive
+     */
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    /**
+     * @return position after the last entity, exclusive
+     */
+    public int getToIndex() {
+        return toIndex;
+    }
+
+    public int size() {
+        return toIndex - fromIndex;
+    }
+
+    public boolean isSucceeded() {
+        return errorDetails == null;
+    }
+
+    /**
+     * @return why the range failed, null if it succeeded
+     */
+    public String getErrorDetails() {
+        return errorDetails;
+    }
+
+    /**
+     * @return the entities that were not written, empty if the range
+     * succeeded
+     */
+    public List<Object> getFailedEntities() {
+        return failedEntities;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + fromIndex + ", " + toIndex + ") " + (isSucceeded() ? "committed" : "failed: " + errorDetails);
+    }
+}
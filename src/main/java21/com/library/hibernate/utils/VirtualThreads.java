@@ -0,0 +1,24 @@
+package com.library.hibernate.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 version of VirtualThreads, packaged under META-INF/versions/21 by
+ * the virtual-threads profile
+ *
+ * @author smallgod
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return Boolean.TRUE;
+    }
+
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 1).factory());
+    }
+}